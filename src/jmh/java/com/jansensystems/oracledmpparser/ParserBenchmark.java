@@ -0,0 +1,185 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End to end parsing of a generated dump file. Besides the operations per second,
+ * the counters "megabytes" and "rows" are reported per second, with -prof gc the allocation per file.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ParserBenchmark {
+    @Param({"10", "7"})
+    public int version;
+    @Param({"64"})
+    public int sizeMb;
+    @Param({"4"})
+    public int tables;
+    @Param({"NUMBER,STRING,DATE,TIMESTAMP"})
+    public String columns;
+    @Param({"0.1"})
+    public double nullDensity;
+
+    private Path file;
+    private long fileSize;
+    private long rowCount;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+	public double megabytes;
+	public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setVersion(version);
+	generator.setTables(tables);
+	generator.setTargetSize(sizeMb * 1000000L);
+	generator.setColumns(Arrays.stream(columns.split(",")).map(x -> DMPItemType.valueOf(x.trim())).toList());
+	generator.setNullDensity(nullDensity);
+	file = Files.createTempFile("bench", ".dmp");
+	generator.write(file);
+	fileSize = Files.size(file);
+	rowCount = generator.getRowCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+	Files.deleteIfExists(file);
+    }
+
+    private void count(Counters counters) {
+	counters.megabytes += fileSize / 1e6;
+	counters.rows += rowCount;
+    }
+
+    @Benchmark
+    public List<DMPTable> parseFile(Counters counters) throws IOException {
+	try (InputStream in = Files.newInputStream(file)) {
+	    List<DMPTable> ret = new DMPParser().parseFile(in);
+	    count(counters);
+	    return ret;
+	}
+    }
+
+    @Benchmark
+    public List<DMPTable> parseMapped(Counters counters) throws IOException {
+	List<DMPTable> ret = new DMPParser().parse(file);
+	count(counters);
+	return ret;
+    }
+
+    /**
+     * Incremental parsing with every value decoded to its Java type.
+     */
+    @Benchmark
+    public void parseRowsDecoded(Counters counters, Blackhole bh) throws IOException {
+	new DMPParser().parseRows(file, (table, row) -> {
+	    for (DMPItem item : row.items) ValueDecoderBenchmark.decode(item, bh);
+	});
+	count(counters);
+    }
+
+    @Benchmark
+    public void parseBatches(Counters counters, Blackhole bh) throws IOException {
+	new DMPParser().parseBatches(file, 4096, (table, batch) -> bh.consume(batch));
+	count(counters);
+    }
+
+    /**
+     * Only the records and the ends of the data segments are found, with the block scanner.
+     */
+    @Benchmark
+    public DMPCatalog scanRecords(Counters counters) throws IOException {
+	try (InputStream in = Files.newInputStream(file)) {
+	    DMPCatalog ret = new DMPParser().catalog(in);
+	    count(counters);
+	    return ret;
+	}
+    }
+
+    /**
+     * Same as scanRecords() with the record loop of the first version as baseline: one in.read() per byte,
+     * the last bytes boxed in a LinkedList for the end marker and a new ByteArrayOutputStream and String per record.
+     * The stream is buffered, unbuffered it would be a system call per byte.
+     */
+    @Benchmark
+    public void scanRecordsLegacy(Counters counters, Blackhole bh) throws IOException {
+	try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+	    int major = 0;
+	    boolean afterInsertStatement = false;
+	    ByteArrayOutputStream temp = new ByteArrayOutputStream();
+	    Queue<Integer> lastBytes = new LinkedList<>();
+	    int b;
+	    while ((b = in.read()) >= 0) {
+		if (b == 0x0a) {
+		    if (afterInsertStatement) {
+			// the data segment with its newlines, which the first version decoded with parseDataRow()
+			temp.write(b);
+			if (!lastBytesEndOfInsertData(lastBytes, major)) continue;
+			bh.consume(temp.toByteArray());
+			afterInsertStatement = false;
+		    } else {
+			String testString = new String(temp.toByteArray());
+			if (testString.startsWith("INSERT INTO ")) {
+			    afterInsertStatement = true;
+			} else if (testString.contains("EXPORT:V")) {
+			    int v = testString.indexOf("EXPORT:V") + 8;
+			    major = Integer.parseInt(testString.substring(v, v + 2));
+			}
+			bh.consume(testString);
+		    }
+		    temp = new ByteArrayOutputStream();
+		} else {
+		    temp.write(b);
+		    lastBytes.add(b);
+		    if (lastBytes.size() > 4) lastBytes.poll();
+		}
+	    }
+	    bh.consume(temp.toByteArray());
+	}
+	count(counters);
+    }
+
+    private static boolean lastBytesEndOfInsertData(Queue<Integer> lastBytes, int major) {
+	if (lastBytes.size() < 4) return false;
+	Integer[] bytes = lastBytes.toArray(new Integer[4]);
+	if (major > 7) {
+	    return bytes[0] == 0 && bytes[1] == 0 && (bytes[2] & 0xff) == 0xff && (bytes[3] & 0xff) == 0xff;
+	}
+	return (bytes[2] & 0xff) == 0xff && (bytes[3] & 0xff) == 0xff;
+    }
+}
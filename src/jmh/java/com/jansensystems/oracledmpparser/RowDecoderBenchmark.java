@@ -0,0 +1,97 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Row decoding alone on a data segment in memory, without reading the file and parsing the statements.
+ * One operation is one row, so the score is rows per second and -prof gc reports the allocation per row.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowDecoderBenchmark {
+    private static final int ROWS = 100000;
+
+    @Param({"10", "7"})
+    public int version;
+    @Param({"NUMBER,STRING,DATE,TIMESTAMP", "NUMBER,NUMBER,NUMBER,NUMBER", "STRING,STRING,STRING,STRING", "NUMBER,STRING,BLOB"})
+    public String columns;
+    @Param({"0.1"})
+    public double nullDensity;
+
+    private ByteBuffer data;
+    private DMPExportVersion exportVersion;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+	public double megabytes;
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setVersion(version);
+	generator.setRowsPerTable(ROWS);
+	generator.setColumns(Arrays.stream(columns.split(",")).map(x -> DMPItemType.valueOf(x.trim())).toList());
+	generator.setNullDensity(nullDensity);
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	generator.write(out);
+	byte[] bytes = out.toByteArray();
+	// the data segment starts after the INSERT statement
+	String text = new String(bytes, StandardCharsets.ISO_8859_1);
+	int start = text.indexOf('\n', text.indexOf("INSERT INTO ")) + 1;
+	data = ByteBuffer.wrap(bytes).slice(start, bytes.length - start);
+	exportVersion = new DMPExportVersion();
+	exportVersion.setMajor(version);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decodeRows(Counters counters, Blackhole bh) throws IOException {
+	DMPTable table = new DMPTable();
+	new DMPRowDecoder(exportVersion, false, false).decode(new DMPScanner(data), table, (t, row) -> bh.consume(row));
+	counters.megabytes += data.limit() / 1e6;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decodeBatches(Counters counters, Blackhole bh) throws IOException {
+	DMPTable table = new DMPTable();
+	new DMPRowDecoder(exportVersion, false, false).decodeBatches(new DMPScanner(data), table, 4096, (t, batch) -> bh.consume(batch));
+	counters.megabytes += data.limit() / 1e6;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long skipRows(Counters counters) throws IOException {
+	long ret = new DMPRowDecoder(exportVersion, false, false).skip(new DMPScanner(data));
+	counters.megabytes += data.limit() / 1e6;
+	return ret;
+    }
+}
@@ -0,0 +1,208 @@
+package com.jansensystems.oracledmpparser;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decoding of single values per type, one operation is one value.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueDecoderBenchmark {
+    private static final int VALUES = 1024;
+
+    private ByteBuffer numbers;
+    private int[] numberOffsets;
+    private ByteBuffer integers;
+    private int[] integerOffsets;
+    private ByteBuffer dates;
+    private ByteBuffer strings;
+    private int[] stringOffsets;
+
+    @Setup(Level.Trial)
+    public void generate() {
+	Random random = new Random(4711);
+	byte[][] values = new byte[VALUES][];
+	for (int i=0;i<VALUES;i++) values[i] = DMPNumber.encode(BigDecimal.valueOf(random.nextLong() % 10000000000L, 1 + random.nextInt(6)));
+	numberOffsets = new int[VALUES + 1];
+	numbers = join(values, numberOffsets);
+	for (int i=0;i<VALUES;i++) values[i] = DMPNumber.encode(BigDecimal.valueOf(random.nextInt()));
+	integerOffsets = new int[VALUES + 1];
+	integers = join(values, integerOffsets);
+	for (int i=0;i<VALUES;i++) {
+	    values[i] = DMPDateTime.encode(LocalDateTime.of(1950 + random.nextInt(100), 1 + random.nextInt(12), 1 + random.nextInt(28),
+		    random.nextInt(24), random.nextInt(60), random.nextInt(60), 1 + random.nextInt(999999999)));
+	}
+	dates = join(values, new int[VALUES + 1]);
+	for (int i=0;i<VALUES;i++) {
+	    values[i] = new byte[1 + random.nextInt(40)];
+	    for (int k=0;k<values[i].length;k++) values[i][k] = (byte) ('A' + random.nextInt(26));
+	}
+	stringOffsets = new int[VALUES + 1];
+	strings = join(values, stringOffsets);
+    }
+
+    private static ByteBuffer join(byte[][] values, int[] offsets) {
+	int size = 0;
+	for (int i=0;i<values.length;i++) {
+	    offsets[i] = size;
+	    size += values[i].length;
+	}
+	offsets[values.length] = size;
+	ByteBuffer ret = ByteBuffer.allocate(size);
+	for (byte[] v : values) ret.put(v);
+	return ret.flip();
+    }
+
+    /**
+     * Decode an item to its natural Java type.
+     */
+    static void decode(DMPItem item, Blackhole bh) {
+	if (item.getItemType() == null) return;
+	switch (item.getItemType()) {
+	    case NUMBER -> {
+		if (item.isLongValue()) {
+		    bh.consume(item.getLongValue());
+		} else {
+		    bh.consume(item.getDoubleValue());
+		}
+	    }
+	    case DATE, TIMESTAMP -> bh.consume(item.getLocalDateTimeValue());
+	    case STRING -> bh.consume(item.getStringValue());
+	    case BLOB -> bh.consume(item.getBytes());
+	    default -> {
+	    }
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void numberToDouble(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPNumber.toDouble(numbers, numberOffsets[i], numberOffsets[i + 1] - numberOffsets[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void numberToBigDecimal(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPNumber.toBigDecimal(numbers, numberOffsets[i], numberOffsets[i + 1] - numberOffsets[i]));
+    }
+
+    /**
+     * Baseline, the NUMBER decoding of the first parser version: boxed bytes, digit pairs formatted to a String and parsed by Double.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void numberLegacyString(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) {
+	    List<Byte> bytes = new ArrayList<>();
+	    for (int k=numberOffsets[i];k<numberOffsets[i + 1];k++) bytes.add(numbers.get(k));
+	    bh.consume(legacyNumber(bytes));
+	}
+    }
+
+    /**
+     * The removed String path of DMPParser.parseDataRow(), unchanged apart from the variable names.
+     */
+    static Double legacyNumber(List<Byte> bytes) {
+	if ((bytes.get(0) & 0xff) == 0x80) return 0d;
+	String v;
+	if (bytes.size() > 1 && ((bytes.get(bytes.size()-1) & 0xff) == 0x66 || (bytes.get(0) & 0xff) < 0xa0)) {
+	    var sl = bytes.subList(1, bytes.size()-1);
+	    if ((bytes.get(bytes.size()-1) & 0xff) != 0x66) {
+		sl = bytes.subList(1, bytes.size());
+	    }
+	    int intPart = -1 * (int)((bytes.get(0) & 0xff) - 0x3f);
+	    if (intPart > 0) {
+		while (sl.size() < intPart) sl.add(Byte.valueOf((byte)0x65));
+		var ip = sl.subList(0, intPart);
+		v = "-" + ip.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+		if (sl.size() > intPart) {
+		    var dp = sl.subList(intPart, sl.size());
+		    v+= "." + dp.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+		}
+	    } else {
+		v = "-0." + ("00".repeat(-1 * intPart)) + sl.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+	    }
+	} else {
+	    int intPart = (bytes.get(0) & 0xff) - 0xc0;
+	    var sl = bytes.subList(1, bytes.size());
+	    if (intPart > 0) {
+		while (sl.size() < intPart) sl.add(Byte.valueOf((byte)1));
+		var ip = sl.subList(0, intPart);
+		v = ip.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+		if (sl.size() > intPart) {
+		    var dp = sl.subList(intPart, sl.size());
+		    v+= "." + dp.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+		}
+	    } else {
+		v = "0." + ("00".repeat(-1 * intPart)) + sl.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
+	    }
+	}
+	return v.isBlank() ? null : Double.valueOf(v);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void numberToLong(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPNumber.toLong(integers, integerOffsets[i], integerOffsets[i + 1] - integerOffsets[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void numberToString(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) {
+	    bh.consume(new DMPItem(numbers, numberOffsets[i], numberOffsets[i + 1] - numberOffsets[i], DMPItemType.NUMBER).getStringValue());
+	}
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void timestampToEpochSecond(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPDateTime.toEpochSecond(dates, i * 11, 11));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void timestampToLocalDateTime(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPDateTime.toLocalDateTime(dates, i * 11, 11));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void timestampToString(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) bh.consume(DMPDateTime.toString(dates, i * 11, 11));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void stringValue(Blackhole bh) {
+	for (int i=0;i<VALUES;i++) {
+	    bh.consume(new DMPItem(strings, stringOffsets[i], stringOffsets[i + 1] - stringOffsets[i], DMPItemType.STRING).getStringValue());
+	}
+    }
+}
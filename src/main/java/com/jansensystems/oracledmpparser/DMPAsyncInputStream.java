@@ -0,0 +1,204 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads the underlying stream on a dedicated thread into a ring of large buffers, ahead of the consumer.
+ * On slow or network storage reading and decoding overlap, the consumer only waits if all buffers are empty.
+ * The wait times of both sides tell whether the parse is bound by I/O or by decoding.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPAsyncInputStream extends InputStream {
+    public static final int DEFAULT_BUFFER_SIZE = 4 << 20;
+    public static final int DEFAULT_DEPTH = 4;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private static final ByteBuffer STOP = ByteBuffer.allocate(0);
+
+    private final InputStream in;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread reader;
+    private volatile boolean stopped = false;
+    private volatile IOException error = null;
+    private ByteBuffer current = null;
+    private boolean eof = false;
+    // waits of the consumer for filled buffers
+    private long readStallNanos = 0;
+    private long readStalls = 0;
+    // waits of the reader thread for free buffers
+    private volatile long readerIdleNanos = 0;
+    private volatile long bytesRead = 0;
+
+    public DMPAsyncInputStream(InputStream in) {
+	this(in, DEFAULT_BUFFER_SIZE, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param bufferSize size of each buffer
+     * @param depth number of buffers, at least 2
+     */
+    public DMPAsyncInputStream(InputStream in, int bufferSize, int depth) {
+	if (in == null) {
+	    throw new IllegalArgumentException("The input stream must not be NULL");
+	}
+	this.in = in;
+	depth = Math.max(depth, 2);
+	// room for all buffers and the end or stop marker, so the markers never block
+	this.free = new ArrayBlockingQueue<>(depth + 1);
+	this.filled = new ArrayBlockingQueue<>(depth + 1);
+	for (int i=0;i<depth;i++) free.add(ByteBuffer.allocate(Math.max(bufferSize, 16)));
+	reader = new Thread(this::readAhead, "DMPAsyncInputStream-reader");
+	reader.setDaemon(true);
+	reader.start();
+    }
+
+    private void readAhead() {
+	try {
+	    boolean end = false;
+	    while (!end && !stopped) {
+		ByteBuffer buf = free.poll();
+		if (buf == null) {
+		    long t = System.nanoTime();
+		    buf = free.take();
+		    readerIdleNanos += System.nanoTime() - t;
+		}
+		if (buf == STOP) break;
+		// fill the buffer completely, small reads would hand out small buffers
+		byte[] array = buf.array();
+		int p = 0;
+		while (p < array.length) {
+		    int r = in.read(array, p, array.length - p);
+		    if (r < 0) {
+			end = true;
+			break;
+		    }
+		    p += r;
+		}
+		bytesRead += p;
+		buf.clear();
+		buf.limit(p);
+		if (p > 0) filled.put(buf);
+	    }
+	} catch (IOException ex) {
+	    error = ex;
+	} catch (InterruptedException ex) {
+	    // stopped
+	} finally {
+	    filled.offer(END);
+	}
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    private boolean nextBuffer() throws IOException {
+	if (current != null) {
+	    free.offer(current);
+	    current = null;
+	}
+	if (eof) return false;
+	ByteBuffer next = filled.poll();
+	if (next == null) {
+	    long t = System.nanoTime();
+	    try {
+		next = filled.take();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		throw new InterruptedIOException("Reading interrupted");
+	    }
+	    readStallNanos += System.nanoTime() - t;
+	    readStalls++;
+	}
+	if (next == END) {
+	    eof = true;
+	    if (error != null) throw new IOException(error.getMessage(), error);
+	    return false;
+	}
+	current = next;
+	return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+	if ((current == null || !current.hasRemaining()) && !nextBuffer()) return -1;
+	return current.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+	if (len == 0) return 0;
+	if ((current == null || !current.hasRemaining()) && !nextBuffer()) return -1;
+	int n = Math.min(len, current.remaining());
+	current.get(b, off, n);
+	return n;
+    }
+
+    /**
+     * Skips within the buffers which were read ahead, whole buffers are handed back without copying.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+	long skipped = 0;
+	while (skipped < n) {
+	    if ((current == null || !current.hasRemaining()) && !nextBuffer()) break;
+	    int s = (int) Math.min(n - skipped, current.remaining());
+	    current.position(current.position() + s);
+	    skipped += s;
+	}
+	return skipped;
+    }
+
+    @Override
+    public int available() {
+	return current != null ? current.remaining() : 0;
+    }
+
+    /**
+     * @return the time the consumer waited for data, high if the parse is bound by I/O
+     */
+    public long getReadStallNanos() {
+	return readStallNanos;
+    }
+
+    /**
+     * @return how often the consumer had to wait for data
+     */
+    public long getReadStalls() {
+	return readStalls;
+    }
+
+    /**
+     * @return the time the reader thread waited for a free buffer, high if the parse is bound by decoding
+     */
+    public long getReaderIdleNanos() {
+	return readerIdleNanos;
+    }
+
+    /**
+     * @return the bytes read from the underlying stream so far
+     */
+    public long getBytesRead() {
+	return bytesRead;
+    }
+
+    /**
+     * Stop the reader thread, the underlying stream stays open.
+     * The reader is not interrupted, a read which is blocked in the underlying stream is finished first.
+     */
+    void stop() {
+	stopped = true;
+	free.offer(STOP);
+    }
+
+    @Override
+    public void close() throws IOException {
+	stop();
+	in.close();
+    }
+}
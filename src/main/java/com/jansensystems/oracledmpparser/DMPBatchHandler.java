@@ -0,0 +1,24 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Receives the rows of the parsed tables in column batches, see DMPParser.parseBatches().
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@FunctionalInterface
+public interface DMPBatchHandler {
+
+    /**
+     * Called after the column definitions of a table have been read, before the first batch.
+     */
+    default void onTableStart(DMPTable table) {
+    }
+
+    /**
+     * Called for every full batch and the last, possibly smaller one. The batch is not reused by the parser.
+     */
+    void onBatch(DMPTable table, DMPColumnBatch batch);
+
+    default void onTableEnd(DMPTable table) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The export header and the tables of a dump with their DDL, columns, row counts and sizes, created by DMPParser.catalog().
+ * The rows are counted by their length prefixes, no value is decoded.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPCatalog {
+    public DMPExportVersion exportVersion = new DMPExportVersion();
+    public String exportUser = null;
+    public String exportTablespace = null;
+    // Oracle id of the character set from the export header, 0 if unknown
+    public int exportCharsetId = 0;
+    public Charset exportCharset = null;
+    // bytes scanned, the size of the dump
+    public long size = 0;
+    public List<DMPCatalogTable> tables = new ArrayList<>();
+
+    /**
+     * @return the table or null if there is no table with this name, the name is not case sensitive
+     */
+    public DMPCatalogTable getTable(String tableName) {
+	for (DMPCatalogTable t : tables) {
+	    if (t.tableName.equalsIgnoreCase(tableName)) return t;
+	}
+	return null;
+    }
+
+    /**
+     * @return the rows of all tables
+     */
+    public long getRowCount() {
+	return tables.stream().mapToLong(x -> x.rowCount).sum();
+    }
+
+    @Override
+    public String toString() {
+	return "DMPCatalog{" + "exportVersion=" + exportVersion.getMajor() + "." + exportVersion.getMinor() + "." + exportVersion.getPatch()
+		+ ", exportUser=" + exportUser + ", exportTablespace=" + exportTablespace + ", exportCharset=" + exportCharset
+		+ ", tables=" + tables.size() + ", size=" + size + '}';
+    }
+}
@@ -0,0 +1,30 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.List;
+
+/**
+ * Metadata of one table of a dump, see DMPParser.catalog(). The positions are the ones of the index,
+ * in addition the DDL and the column definitions are kept.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPCatalogTable extends DMPIndexEntry {
+    public String createTableSQL = null;
+    // Oracle type codes, also of the columns without a type in columnTypes
+    public List<Integer> columnTypeCodes = null;
+    // maximum length of the values in bytes, as declared in the column definitions
+    public List<Integer> columnLengths = null;
+
+    /**
+     * @return the size of the data segment in bytes
+     */
+    public long getDataSize() {
+	return dataEnd - dataStart;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPCatalogTable{" + "tableName=" + tableName + ", fieldNames=" + fieldNames + ", columnTypes=" + columnTypes
+		+ ", rowCount=" + rowCount + ", dataSize=" + getDataSize() + '}';
+    }
+}
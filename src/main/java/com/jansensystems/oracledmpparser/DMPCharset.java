@@ -0,0 +1,138 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Character set of the text in a dump, STRING values as well as the statements. The dump header stores the Oracle id of the
+ * character set of the export. ASCII text, which is most of a dump, and Latin-1 text are copied into the String directly,
+ * other text is decoded with one decoder cached per parse.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+final class DMPCharset {
+    // the JVM default, used when the id in the header is unknown
+    static final DMPCharset DEFAULT = new DMPCharset(0, Charset.defaultCharset());
+
+    // Oracle character set ids and the Java names
+    private static final Map<Integer, String> ORACLE_CHARSETS = Map.ofEntries(
+	    Map.entry(1, "US-ASCII"),		// US7ASCII
+	    Map.entry(10, "IBM850"),		// WE8PC850
+	    Map.entry(31, "ISO-8859-1"),	// WE8ISO8859P1
+	    Map.entry(32, "ISO-8859-2"),	// EE8ISO8859P2
+	    Map.entry(46, "ISO-8859-15"),	// WE8ISO8859P15
+	    Map.entry(170, "windows-1250"),	// EE8MSWIN1250
+	    Map.entry(171, "windows-1251"),	// CL8MSWIN1251
+	    Map.entry(172, "windows-1253"),	// EL8MSWIN1253
+	    Map.entry(173, "windows-1254"),	// TR8MSWIN1254
+	    Map.entry(174, "windows-1255"),	// IW8MSWIN1255
+	    Map.entry(175, "windows-1256"),	// AR8MSWIN1256
+	    Map.entry(176, "windows-1257"),	// BLT8MSWIN1257
+	    Map.entry(178, "windows-1252"),	// WE8MSWIN1252
+	    Map.entry(830, "EUC-JP"),		// JA16EUC
+	    Map.entry(832, "Shift_JIS"),	// JA16SJIS
+	    Map.entry(846, "x-windows-949"),	// KO16MSWIN949
+	    Map.entry(850, "GB2312"),		// ZHS16CGB231280
+	    Map.entry(852, "GBK"),		// ZHS16GBK
+	    Map.entry(854, "GB18030"),		// ZHS32GB18030
+	    Map.entry(867, "x-windows-950"),	// ZHT16MSWIN950
+	    Map.entry(871, "UTF-8"),		// UTF8
+	    Map.entry(873, "UTF-8"),		// AL32UTF8
+	    Map.entry(2000, "UTF-16BE"));	// AL16UTF16
+
+    private final int oracleId;
+    private final Charset charset;
+    private final boolean latin1;
+    // bytes below 0x80 are always ASCII characters, so pure ASCII text needs no decoder
+    private final boolean asciiCompatible;
+    // taken while decoding, concurrent callers create their own
+    private final AtomicReference<CharsetDecoder> decoder = new AtomicReference<>();
+
+    private DMPCharset(int oracleId, Charset charset) {
+	this.oracleId = oracleId;
+	this.charset = charset;
+	this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+	byte[] ascii = new byte[128];
+	for (int i=0;i<ascii.length;i++) ascii[i] = (byte) i;
+	this.asciiCompatible = new String(ascii, charset).equals(new String(ascii, StandardCharsets.US_ASCII))
+		&& !charset.name().startsWith("ISO-2022");
+    }
+
+    /**
+     * @return the character set for the id of the dump header, the JVM default if the id is unknown
+     */
+    static DMPCharset forOracleId(int oracleId) {
+	String name = ORACLE_CHARSETS.get(oracleId);
+	if (name == null || !Charset.isSupported(name)) return new DMPCharset(oracleId, Charset.defaultCharset());
+	return new DMPCharset(oracleId, Charset.forName(name));
+    }
+
+    static DMPCharset of(Charset charset) {
+	return new DMPCharset(0, charset);
+    }
+
+    /**
+     * @return the id from the dump header, 0 if not read from a header
+     */
+    int getOracleId() {
+	return oracleId;
+    }
+
+    Charset getCharset() {
+	return charset;
+    }
+
+    /**
+     * @return true if bytes below 0x80 are the ASCII characters, so pure ASCII text can be copied as it is
+     */
+    boolean isAsciiCompatible() {
+	return asciiCompatible;
+    }
+
+    String decode(ByteBuffer b, int offset, int length) {
+	if (length == 0) return "";
+	if (b.hasArray()) return decode(b.array(), b.arrayOffset() + offset, length);
+	byte[] bytes = new byte[length];
+	b.get(offset, bytes, 0, length);
+	return decode(bytes, 0, length);
+    }
+
+    String decode(byte[] b, int offset, int length) {
+	if (latin1 || (asciiCompatible && isAscii(b, offset, length))) {
+	    // one byte per character, the String keeps the bytes as they are
+	    return new String(b, offset, length, StandardCharsets.ISO_8859_1);
+	}
+	CharsetDecoder d = decoder.getAndSet(null);
+	if (d == null) {
+	    d = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+	try {
+	    CharBuffer out = CharBuffer.allocate((int) Math.ceil(length * (double) d.maxCharsPerByte()));
+	    d.reset();
+	    d.decode(ByteBuffer.wrap(b, offset, length), out, true);
+	    d.flush(out);
+	    return new String(out.array(), 0, out.position());
+	} finally {
+	    decoder.set(d);
+	}
+    }
+
+    private static boolean isAscii(byte[] b, int offset, int length) {
+	int end = offset + length;
+	for (int i=offset;i<end;i++) {
+	    if (b[i] < 0) return false;
+	}
+	return true;
+    }
+
+    @Override
+    public String toString() {
+	return charset.name() + (oracleId != 0 ? " (" + oracleId + ")" : "");
+    }
+}
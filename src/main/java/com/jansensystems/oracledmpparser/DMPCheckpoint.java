@@ -0,0 +1,141 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Position in a dump up to which all rows have been delivered, see DMPParserConfig.withCheckpointListener().
+ * Either on a row boundary within the data of a table, then the table and its column types are set,
+ * or between two tables. DMPParser.parseRows() with the checkpoint continues with the next row.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPCheckpoint {
+    private static final int MAGIC = 0x444d5043;	// DMPC
+    private static final int FORMAT_VERSION = 3;
+
+    // file offset where the parse continues
+    public long offset = 0;
+    public DMPExportVersion exportVersion = new DMPExportVersion();
+    public String exportUser = null;
+    public String exportTablespace = null;
+    // Oracle id of the character set from the export header, 0 if unknown
+    public int exportCharsetId = 0;
+    // the table whose data is continued at the offset, null between tables
+    public String tableName = null;
+    public String createTableSQL = null;
+    public List<String> fieldNames = null;
+    public List<DMPItemType> columnTypes = null;
+    // rows of the table before the offset, including the rows rejected by a row filter
+    public long rowCount = 0;
+    // size of the output of the row handler for the table at the offset, see DMPRowHandler.onCheckpoint(), -1 if unknown
+    public long outputSize = -1;
+
+    /**
+     * @return true if the checkpoint is within the data of a table
+     */
+    public boolean isInTable() {
+	return tableName != null;
+    }
+
+    /**
+     * Write the checkpoint into a temporary file which then replaces the file,
+     * so a crash while writing leaves the previous checkpoint.
+     */
+    public void write(Path file) throws IOException {
+	Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+	try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+	    out.writeInt(MAGIC);
+	    out.writeInt(FORMAT_VERSION);
+	    out.writeLong(offset);
+	    out.writeInt(exportVersion.getMajor());
+	    out.writeInt(exportVersion.getMinor());
+	    out.writeInt(exportVersion.getPatch());
+	    writeString(out, exportUser);
+	    writeString(out, exportTablespace);
+	    out.writeInt(exportCharsetId);
+	    writeString(out, tableName);
+	    writeString(out, createTableSQL);
+	    out.writeInt(fieldNames != null ? fieldNames.size() : -1);
+	    if (fieldNames != null) {
+		for (String s : fieldNames) writeString(out, s);
+	    }
+	    out.writeInt(columnTypes != null ? columnTypes.size() : -1);
+	    if (columnTypes != null) {
+		for (DMPItemType t : columnTypes) writeString(out, t != null ? t.name() : null);
+	    }
+	    out.writeLong(rowCount);
+	    out.writeLong(outputSize);
+	}
+	Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static DMPCheckpoint read(Path file) throws IOException {
+	try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+	    int version = in.readInt() == MAGIC ? in.readInt() : -1;
+	    if (version < 1 || version > FORMAT_VERSION) {
+		throw new IOException("Not a dump checkpoint file: " + file);
+	    }
+	    DMPCheckpoint ret = new DMPCheckpoint();
+	    ret.offset = in.readLong();
+	    ret.exportVersion.setMajor(in.readInt());
+	    ret.exportVersion.setMinor(in.readInt());
+	    ret.exportVersion.setPatch(in.readInt());
+	    ret.exportUser = readString(in);
+	    ret.exportTablespace = readString(in);
+	    // version 1 has no character set
+	    if (version >= 2) ret.exportCharsetId = in.readInt();
+	    ret.tableName = readString(in);
+	    ret.createTableSQL = readString(in);
+	    int n = in.readInt();
+	    if (n >= 0) {
+		ret.fieldNames = new ArrayList<>(n);
+		for (int k=0;k<n;k++) ret.fieldNames.add(readString(in));
+	    }
+	    n = in.readInt();
+	    if (n >= 0) {
+		ret.columnTypes = new ArrayList<>(n);
+		for (int k=0;k<n;k++) {
+		    String t = readString(in);
+		    ret.columnTypes.add(t != null ? DMPItemType.valueOf(t) : null);
+		}
+	    }
+	    ret.rowCount = in.readLong();
+	    // version 2 has no output size
+	    if (version >= 3) ret.outputSize = in.readLong();
+	    return ret;
+	}
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+	if (s == null) {
+	    out.writeInt(-1);
+	    return;
+	}
+	byte[] b = s.getBytes(StandardCharsets.UTF_8);
+	out.writeInt(b.length);
+	out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+	int len = in.readInt();
+	if (len < 0) return null;
+	byte[] b = new byte[len];
+	in.readFully(b);
+	return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+	return "DMPCheckpoint{" + "offset=" + offset + ", tableName=" + tableName + ", rowCount=" + rowCount + '}';
+    }
+}
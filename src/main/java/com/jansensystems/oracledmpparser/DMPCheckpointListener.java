@@ -0,0 +1,18 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Receives the checkpoints of a parse, see DMPParserConfig.withCheckpointListener().
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@FunctionalInterface
+public interface DMPCheckpointListener {
+
+    /**
+     * Called on the parsing thread after the handler has returned for the last row before the checkpoint,
+     * no further row is delivered until this method returns. The output of the handler has to be flushed
+     * before the checkpoint is stored, then a resumed parse neither repeats nor loses rows.
+     * Row handlers do this in DMPRowHandler.onCheckpoint(), which is called before.
+     */
+    void onCheckpoint(DMPCheckpoint checkpoint);
+}
@@ -0,0 +1,78 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.List;
+
+/**
+ * A fixed number of rows of a table stored column by column, see DMPParser.parseBatches().
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPColumnBatch {
+    private final DMPTable table;
+    private final DMPColumnVector[] columns;
+    private final int capacity;
+    private int rowCount = 0;
+
+    DMPColumnBatch(DMPTable table, List<DMPItemType> columnTypes, boolean[] projection, int capacity) {
+	this.table = table;
+	this.capacity = capacity;
+	this.columns = new DMPColumnVector[columnTypes.size()];
+	for (int i=0;i<columns.length;i++) {
+	    if (projection != null && (i >= projection.length || !projection[i])) continue;
+	    columns[i] = new DMPColumnVector(columnTypes.get(i), capacity);
+	}
+    }
+
+    void setCharset(DMPCharset charset) {
+	for (DMPColumnVector c : columns) {
+	    if (c != null) c.charset = charset;
+	}
+    }
+
+    void endRow() {
+	// columns missing in the row are NULL
+	for (DMPColumnVector c : columns) {
+	    if (c != null && c.getSize() <= rowCount) c.addNull();
+	}
+	rowCount++;
+    }
+
+    public DMPTable getTable() {
+	return table;
+    }
+
+    public int getRowCount() {
+	return rowCount;
+    }
+
+    public int getCapacity() {
+	return capacity;
+    }
+
+    public int getColumnCount() {
+	return columns.length;
+    }
+
+    /**
+     * @return the column or null if it is not selected by the projection
+     */
+    public DMPColumnVector getColumn(int index) {
+	return columns[index];
+    }
+
+    /**
+     * @return the column with the given name from the INSERT statement or null, the name is not case sensitive
+     */
+    public DMPColumnVector getColumn(String name) {
+	if (table.fieldNames == null) return null;
+	for (int i=0;i<table.fieldNames.size() && i<columns.length;i++) {
+	    if (table.fieldNames.get(i).equalsIgnoreCase(name)) return columns[i];
+	}
+	return null;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPColumnBatch{" + "tableName=" + table.tableName + ", rowCount=" + rowCount + '}';
+    }
+}
@@ -0,0 +1,204 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Values of one column of a DMPColumnBatch in primitive arrays, NULL values are marked in a bitmap.
+ * NUMBER values are stored as long as long as all values of the batch are integral and fit, otherwise as double.
+ * DATE and TIMESTAMP values are stored as epoch seconds (taken as UTC) plus nanoseconds for TIMESTAMP,
+ * all other types as the raw bytes with an offset per value.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPColumnVector {
+    private final DMPItemType type;
+    private int size = 0;
+    private final long[] nulls;
+    private long[] longValues = null;
+    private double[] doubleValues = null;
+    private long[] epochSeconds = null;
+    private int[] nanos = null;
+    private int[] offsets = null;
+    private byte[] bytes = null;
+    // character set of the export for STRING values
+    DMPCharset charset = DMPCharset.DEFAULT;
+
+    DMPColumnVector(DMPItemType type, int capacity) {
+	this.type = type;
+	this.nulls = new long[(capacity + 63) >>> 6];
+	if (type == DMPItemType.NUMBER) {
+	    longValues = new long[capacity];
+	} else if (type == DMPItemType.DATE || type == DMPItemType.TIMESTAMP) {
+	    epochSeconds = new long[capacity];
+	    if (type == DMPItemType.TIMESTAMP) nanos = new int[capacity];
+	} else {
+	    offsets = new int[capacity + 1];
+	    bytes = new byte[Math.max(capacity * 8, 64)];
+	}
+    }
+
+    void add(ByteBuffer b, int offset, int length) {
+	if (type == DMPItemType.NUMBER) {
+	    if (doubleValues == null && DMPNumber.fitsLong(b, offset, length)) {
+		longValues[size] = DMPNumber.toLong(b, offset, length);
+	    } else {
+		if (doubleValues == null) {
+		    // not all values are long, switch the whole batch to double
+		    doubleValues = new double[longValues.length];
+		    for (int i=0;i<size;i++) doubleValues[i] = longValues[i];
+		    longValues = null;
+		}
+		doubleValues[size] = DMPNumber.toDouble(b, offset, length);
+	    }
+	} else if (type == DMPItemType.DATE || type == DMPItemType.TIMESTAMP) {
+	    if (!DMPDateTime.isDateTime(length)) {
+		addNull();
+		return;
+	    }
+	    epochSeconds[size] = DMPDateTime.toEpochSecond(b, offset, length);
+	    if (nanos != null) nanos[size] = DMPDateTime.getNanos(b, offset, length);
+	} else {
+	    offsets[size + 1] = offsets[size];
+	    size++;
+	    append(b, offset, length);
+	    return;
+	}
+	size++;
+    }
+
+    /**
+     * Append more bytes to the last value, for values which are stored in several parts.
+     */
+    void append(ByteBuffer b, int offset, int length) {
+	if (bytes == null) return;
+	int end = offsets[size];
+	if (end + length > bytes.length) {
+	    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, end + length));
+	}
+	b.get(offset, bytes, end, length);
+	offsets[size] = end + length;
+    }
+
+    void addNull() {
+	nulls[size >>> 6] |= 1L << size;
+	if (offsets != null) offsets[size + 1] = offsets[size];
+	size++;
+    }
+
+    public DMPItemType getType() {
+	return type;
+    }
+
+    public int getSize() {
+	return size;
+    }
+
+    public boolean isNull(int row) {
+	return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return the NULL bitmap, bit (row % 64) of word (row / 64) is set for NULL values
+     */
+    public long[] getNulls() {
+	return nulls;
+    }
+
+    /**
+     * @return true if the NUMBER values are stored as long
+     */
+    public boolean isLongValues() {
+	return longValues != null;
+    }
+
+    /**
+     * @return the NUMBER values if all are integral and fit into a long, otherwise null
+     */
+    public long[] getLongValues() {
+	return longValues;
+    }
+
+    /**
+     * @return the NUMBER values if not all are integral and fit into a long, otherwise null
+     */
+    public double[] getDoubleValues() {
+	return doubleValues;
+    }
+
+    /**
+     * @throws ArithmeticException if this is not a NUMBER column
+     */
+    public long getLong(int row) {
+	checkNumber();
+	return longValues != null ? longValues[row] : (long) doubleValues[row];
+    }
+
+    /**
+     * @throws ArithmeticException if this is not a NUMBER column
+     */
+    public double getDouble(int row) {
+	checkNumber();
+	return longValues != null ? longValues[row] : doubleValues[row];
+    }
+
+    private void checkNumber() {
+	if (type != DMPItemType.NUMBER) {
+	    throw new ArithmeticException("Column is not a NUMBER but " + type);
+	}
+    }
+
+    /**
+     * @return DATE and TIMESTAMP values as seconds since 1970-01-01 00:00:00 UTC
+     */
+    public long[] getEpochSeconds() {
+	return epochSeconds;
+    }
+
+    /**
+     * @return the nanoseconds of TIMESTAMP values, null for DATE
+     */
+    public int[] getNanos() {
+	return nanos;
+    }
+
+    public long getEpochSecond(int row) {
+	return epochSeconds[row];
+    }
+
+    public int getNanos(int row) {
+	return nanos != null ? nanos[row] : 0;
+    }
+
+    public LocalDateTime getLocalDateTime(int row) {
+	if (isNull(row)) return null;
+	return LocalDateTime.ofEpochSecond(epochSeconds[row], getNanos(row), ZoneOffset.UTC);
+    }
+
+    /**
+     * @return start offsets of the raw values in getByteData(), the value of a row ends at the offset of the next row
+     */
+    public int[] getOffsets() {
+	return offsets;
+    }
+
+    public byte[] getByteData() {
+	return bytes;
+    }
+
+    public int getLength(int row) {
+	return offsets[row + 1] - offsets[row];
+    }
+
+    public byte[] getBytes(int row) {
+	if (isNull(row)) return null;
+	return Arrays.copyOfRange(bytes, offsets[row], offsets[row + 1]);
+    }
+
+    public String getString(int row) {
+	if (isNull(row)) return null;
+	return charset.decode(bytes, offsets[row], getLength(row));
+    }
+}
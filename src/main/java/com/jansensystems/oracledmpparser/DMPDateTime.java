@@ -0,0 +1,198 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Decoder for the Oracle DATE (7 bytes) and TIMESTAMP (7 or 11 bytes) format working directly on the raw bytes.
+ * Century and year are coded as value + 100, month and day directly, hours, minutes and seconds as value + 1,
+ * the optional last 4 bytes are the big endian nanoseconds.
+ * Dates carry no time zone, epoch values are calculated as if the date was UTC.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public final class DMPDateTime {
+
+    private DMPDateTime() {
+    }
+
+    /**
+     * @return true if the length is one of the known DATE/TIMESTAMP lengths
+     */
+    public static boolean isDateTime(int length) {
+	return length == 7 || length == 11;
+    }
+
+    public static int getYear(ByteBuffer b, int offset) {
+	return ((b.get(offset) & 0xff) - 100) * 100 + (b.get(offset + 1) & 0xff) - 100;
+    }
+
+    public static int getMonth(ByteBuffer b, int offset) {
+	return b.get(offset + 2) & 0xff;
+    }
+
+    public static int getDay(ByteBuffer b, int offset) {
+	return b.get(offset + 3) & 0xff;
+    }
+
+    public static int getHour(ByteBuffer b, int offset) {
+	return (b.get(offset + 4) & 0xff) - 1;
+    }
+
+    public static int getMinute(ByteBuffer b, int offset) {
+	return (b.get(offset + 5) & 0xff) - 1;
+    }
+
+    public static int getSecond(ByteBuffer b, int offset) {
+	return (b.get(offset + 6) & 0xff) - 1;
+    }
+
+    public static int getNanos(ByteBuffer b, int offset, int length) {
+	if (length != 11) return 0;
+	return (b.get(offset + 7) & 0xff) << 24 | (b.get(offset + 8) & 0xff) << 16 | (b.get(offset + 9) & 0xff) << 8 | (b.get(offset + 10) & 0xff);
+    }
+
+    /**
+     * @throws java.time.DateTimeException if the bytes do not represent a valid date
+     */
+    public static LocalDateTime toLocalDateTime(ByteBuffer b, int offset, int length) {
+	return LocalDateTime.of(getYear(b, offset), getMonth(b, offset), getDay(b, offset),
+		getHour(b, offset), getMinute(b, offset), getSecond(b, offset), getNanos(b, offset, length));
+    }
+
+    /**
+     * @return seconds since 1970-01-01 00:00:00 UTC
+     */
+    public static long toEpochSecond(ByteBuffer b, int offset, int length) {
+	return toEpochDay(getYear(b, offset), getMonth(b, offset), getDay(b, offset)) * 86400L
+		+ getHour(b, offset) * 3600 + getMinute(b, offset) * 60 + getSecond(b, offset);
+    }
+
+    /**
+     * @return milliseconds since 1970-01-01 00:00:00 UTC
+     */
+    public static long toEpochMilli(ByteBuffer b, int offset, int length) {
+	return toEpochSecond(b, offset, length) * 1000L + getNanos(b, offset, length) / 1000000;
+    }
+
+    /**
+     * @return nanoseconds since 1970-01-01 00:00:00 UTC
+     * @throws ArithmeticException for dates outside of the years 1677 - 2262
+     */
+    public static long toEpochNanos(ByteBuffer b, int offset, int length) {
+	return Math.addExact(Math.multiplyExact(toEpochSecond(b, offset, length), 1000000000L), getNanos(b, offset, length));
+    }
+
+    /**
+     * Days since 1970-01-01 of the proleptic gregorian calendar, same as LocalDate.toEpochDay().
+     */
+    static long toEpochDay(int year, int month, int day) {
+	long y = month <= 2 ? year - 1 : year;
+	long era = Math.floorDiv(y, 400);
+	long yoe = y - era * 400;
+	long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+	long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+	return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * @return the value as "yyyy-MM-dd HH:mm:ss", with ".nnnnnnnnn" appended for 11 byte values
+     */
+    public static String toString(ByteBuffer b, int offset, int length) {
+	int year = getYear(b, offset);
+	if (year < 0 || year > 9999) {
+	    return String.format("%d-%02d-%02d %02d:%02d:%02d", year, getMonth(b, offset), getDay(b, offset), getHour(b, offset), getMinute(b, offset), getSecond(b, offset))
+		    + (length == 11 ? String.format(".%09d", getNanos(b, offset, length)) : "");
+	}
+	char[] c = new char[length == 11 ? 29 : 19];
+	put(c, 0, year / 100);
+	put(c, 2, year % 100);
+	c[4] = '-';
+	put(c, 5, getMonth(b, offset));
+	c[7] = '-';
+	put(c, 8, getDay(b, offset));
+	c[10] = ' ';
+	put(c, 11, getHour(b, offset));
+	c[13] = ':';
+	put(c, 14, getMinute(b, offset));
+	c[16] = ':';
+	put(c, 17, getSecond(b, offset));
+	if (length == 11) {
+	    c[19] = '.';
+	    int nanos = getNanos(b, offset, length);
+	    for (int i=28;i>19;i--) {
+		c[i] = (char) ('0' + nanos % 10);
+		nanos /= 10;
+	    }
+	}
+	return new String(c);
+    }
+
+    /**
+     * Write the value as ISO text "yyyy-MM-ddTHH:mm:ss" in ASCII, with ".nnnnnnnnn" appended for 11 byte values.
+     * @param out needs room for 29 bytes from pos, more for years outside of 0 to 9999
+     * @return the position after the text
+     */
+    public static int toText(ByteBuffer b, int offset, int length, byte[] out, int pos) {
+	int year = getYear(b, offset);
+	if (year < 0 || year > 9999) {
+	    byte[] text = toString(b, offset, length).replace(' ', 'T').getBytes(StandardCharsets.US_ASCII);
+	    System.arraycopy(text, 0, out, pos, text.length);
+	    return pos + text.length;
+	}
+	put(out, pos, year / 100);
+	put(out, pos + 2, year % 100);
+	out[pos + 4] = '-';
+	put(out, pos + 5, getMonth(b, offset));
+	out[pos + 7] = '-';
+	put(out, pos + 8, getDay(b, offset));
+	out[pos + 10] = 'T';
+	put(out, pos + 11, getHour(b, offset));
+	out[pos + 13] = ':';
+	put(out, pos + 14, getMinute(b, offset));
+	out[pos + 16] = ':';
+	put(out, pos + 17, getSecond(b, offset));
+	if (length != 11) return pos + 19;
+	out[pos + 19] = '.';
+	int nanos = getNanos(b, offset, length);
+	for (int i=28;i>19;i--) {
+	    out[pos + i] = (byte) ('0' + nanos % 10);
+	    nanos /= 10;
+	}
+	return pos + 29;
+    }
+
+    /**
+     * Encode a value in the DATE format, with the nanoseconds appended in the TIMESTAMP format if there are any.
+     */
+    public static byte[] encode(LocalDateTime value) {
+	byte[] ret = new byte[value.getNano() != 0 ? 11 : 7];
+	// like Oracle, century and year of BC dates are both negative, see getYear()
+	ret[0] = (byte) (value.getYear() / 100 + 100);
+	ret[1] = (byte) (value.getYear() % 100 + 100);
+	ret[2] = (byte) value.getMonthValue();
+	ret[3] = (byte) value.getDayOfMonth();
+	ret[4] = (byte) (value.getHour() + 1);
+	ret[5] = (byte) (value.getMinute() + 1);
+	ret[6] = (byte) (value.getSecond() + 1);
+	if (ret.length == 11) {
+	    int nanos = value.getNano();
+	    ret[7] = (byte) (nanos >>> 24);
+	    ret[8] = (byte) (nanos >>> 16);
+	    ret[9] = (byte) (nanos >>> 8);
+	    ret[10] = (byte) nanos;
+	}
+	return ret;
+    }
+
+    private static void put(char[] c, int index, int value) {
+	c[index] = (char) ('0' + value / 10 % 10);
+	c[index + 1] = (char) ('0' + value % 10);
+    }
+
+    private static void put(byte[] c, int index, int value) {
+	c[index] = (byte) ('0' + value / 10 % 10);
+	c[index + 1] = (byte) ('0' + value % 10);
+    }
+}
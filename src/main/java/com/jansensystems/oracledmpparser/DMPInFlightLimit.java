@@ -0,0 +1,39 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Limits the bytes of table data which are decoded or waiting for delivery in the parallel mode.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPInFlightLimit {
+    private final long maxBytes;
+    private long inFlight = 0;
+
+    DMPInFlightLimit(long maxBytes) {
+	this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Wait until the bytes fit, a single table larger than the limit is allowed when nothing else is in flight.
+     */
+    synchronized void acquire(long bytes) throws InterruptedException {
+	while (inFlight > 0 && inFlight + bytes > maxBytes) {
+	    wait();
+	}
+	inFlight += bytes;
+    }
+
+    /**
+     * Wait until the limit is not used up, before the data of the next table is read into memory.
+     */
+    synchronized void awaitRoom() throws InterruptedException {
+	while (inFlight > 0 && inFlight >= maxBytes) {
+	    wait();
+	}
+    }
+
+    synchronized void release(long bytes) {
+	inFlight -= bytes;
+	notifyAll();
+    }
+}
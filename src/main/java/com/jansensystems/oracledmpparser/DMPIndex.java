@@ -0,0 +1,154 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table of contents of a dump file, created by DMPParser.createIndex().
+ * Can be stored in a small sidecar file next to the dump, it is only valid
+ * as long as size and modification time of the dump file do not change.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPIndex {
+    private static final int MAGIC = 0x444d5049;	// DMPI
+    private static final int FORMAT_VERSION = 2;
+
+    public long fileSize = 0;
+    public long lastModified = 0;
+    public DMPExportVersion exportVersion = new DMPExportVersion();
+    public String exportUser = null;
+    public String exportTablespace = null;
+    // Oracle id of the character set from the export header, 0 if unknown
+    public int exportCharsetId = 0;
+    public List<DMPIndexEntry> tables = new ArrayList<>();
+
+    /**
+     * @return the sidecar file used for the given dump file
+     */
+    public static Path getIndexFile(Path file) {
+	return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    /**
+     * @return true if the dump file has still the size and modification time this index was created for
+     */
+    public boolean isValidFor(Path file) throws IOException {
+	return Files.size(file) == fileSize && Files.getLastModifiedTime(file).toMillis() == lastModified;
+    }
+
+    /**
+     * @return the entry of the table or null if there is no table with this name, the name is not case sensitive
+     */
+    public DMPIndexEntry getTable(String tableName) {
+	for (DMPIndexEntry e : tables) {
+	    if (e.tableName.equalsIgnoreCase(tableName)) return e;
+	}
+	return null;
+    }
+
+    public void write(Path indexFile) throws IOException {
+	try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+	    out.writeInt(MAGIC);
+	    out.writeInt(FORMAT_VERSION);
+	    out.writeLong(fileSize);
+	    out.writeLong(lastModified);
+	    out.writeInt(exportVersion.getMajor());
+	    out.writeInt(exportVersion.getMinor());
+	    out.writeInt(exportVersion.getPatch());
+	    writeString(out, exportUser);
+	    writeString(out, exportTablespace);
+	    out.writeInt(exportCharsetId);
+	    out.writeInt(tables.size());
+	    for (DMPIndexEntry e : tables) {
+		writeString(out, e.tableName);
+		out.writeLong(e.ddlOffset);
+		out.writeLong(e.insertOffset);
+		writeString(out, e.insertStatement);
+		out.writeInt(e.fieldNames != null ? e.fieldNames.size() : 0);
+		if (e.fieldNames != null) {
+		    for (String s : e.fieldNames) writeString(out, s);
+		}
+		out.writeInt(e.columnTypes != null ? e.columnTypes.size() : 0);
+		if (e.columnTypes != null) {
+		    for (DMPItemType t : e.columnTypes) writeString(out, t != null ? t.name() : null);
+		}
+		out.writeLong(e.dataStart);
+		out.writeLong(e.dataEnd);
+		out.writeLong(e.rowCount);
+	    }
+	}
+    }
+
+    public static DMPIndex read(Path indexFile) throws IOException {
+	try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+	    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+		throw new IOException("Not a dump index file: " + indexFile);
+	    }
+	    DMPIndex ret = new DMPIndex();
+	    ret.fileSize = in.readLong();
+	    ret.lastModified = in.readLong();
+	    ret.exportVersion.setMajor(in.readInt());
+	    ret.exportVersion.setMinor(in.readInt());
+	    ret.exportVersion.setPatch(in.readInt());
+	    ret.exportUser = readString(in);
+	    ret.exportTablespace = readString(in);
+	    ret.exportCharsetId = in.readInt();
+	    int count = in.readInt();
+	    for (int i=0;i<count;i++) {
+		DMPIndexEntry e = new DMPIndexEntry();
+		e.tableName = readString(in);
+		e.ddlOffset = in.readLong();
+		e.insertOffset = in.readLong();
+		e.insertStatement = readString(in);
+		int n = in.readInt();
+		List<String> fieldNames = new ArrayList<>(n);
+		for (int k=0;k<n;k++) fieldNames.add(readString(in));
+		e.fieldNames = fieldNames;
+		n = in.readInt();
+		List<DMPItemType> columnTypes = new ArrayList<>(n);
+		for (int k=0;k<n;k++) {
+		    String t = readString(in);
+		    columnTypes.add(t != null ? DMPItemType.valueOf(t) : null);
+		}
+		e.columnTypes = columnTypes;
+		e.dataStart = in.readLong();
+		e.dataEnd = in.readLong();
+		e.rowCount = in.readLong();
+		ret.tables.add(e);
+	    }
+	    return ret;
+	}
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+	if (s == null) {
+	    out.writeInt(-1);
+	    return;
+	}
+	byte[] b = s.getBytes(StandardCharsets.UTF_8);
+	out.writeInt(b.length);
+	out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+	int len = in.readInt();
+	if (len < 0) return null;
+	byte[] b = new byte[len];
+	in.readFully(b);
+	return new String(b, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+	return "DMPIndex{" + "fileSize=" + fileSize + ", tables=" + tables + '}';
+    }
+}
@@ -0,0 +1,28 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.List;
+
+/**
+ * Position of one table in a dump file, see DMPIndex.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPIndexEntry {
+    public String tableName = null;
+    // file offset of the CREATE TABLE statement
+    public long ddlOffset = -1;
+    // file offset of the INSERT statement
+    public long insertOffset = -1;
+    public String insertStatement = null;
+    public List<String> fieldNames = null;
+    public List<DMPItemType> columnTypes = null;
+    // file offsets of the data segment, directly after the INSERT statement up to and including the terminating newline
+    public long dataStart = -1;
+    public long dataEnd = -1;
+    public long rowCount = 0;
+
+    @Override
+    public String toString() {
+	return "DMPIndexEntry{" + "tableName=" + tableName + ", dataStart=" + dataStart + ", dataEnd=" + dataEnd + ", rowCount=" + rowCount + '}';
+    }
+}
@@ -1,34 +1,264 @@
 
 package com.jansensystems.oracledmpparser;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
+ * One value of a row. The raw bytes are a range of the data shared by the whole row,
+ * typed values are decoded on first access. Values above the large value threshold are in a temporary file instead.
  *
  * @author Matthias Jansen / Jansen-Systems
  */
 public class DMPItem {
+    ByteBuffer data;
+    int offset = 0;
+    int noOfbytes = 0;
+    DMPItemType itemType;
+    // set for values above the large value threshold, noOfbytes is 0 then
+    DMPLargeValue largeValue = null;
+    // character set of the export for STRING values
+    DMPCharset charset = DMPCharset.DEFAULT;
+    // lazily created values, volatile so items can be handed to other threads
+    private volatile String stringValue = null;
+    private volatile Double numberValue = null;
+    private volatile Date dateValue = null;
+    private volatile Timestamp timestampValue = null;
 
-    public int noOfbytes = 0;
-    public List<Byte> bytes = new ArrayList<>();
-    public DMPItemType itemType;
-    public String stringValue = null;
-    public Double numberValue = null;
-    public Date dateValue = null;
-    public Timestamp timestampValue = null;
+    DMPItem(ByteBuffer data, int offset, int noOfbytes, DMPItemType itemType) {
+	this.data = data;
+	this.offset = offset;
+	this.noOfbytes = noOfbytes;
+	this.itemType = itemType;
+    }
+
+    public int getNoOfbytes() {
+	return noOfbytes;
+    }
+
+    public DMPItemType getItemType() {
+	return itemType;
+    }
+
+    /**
+     * @return true if the value was stored in a temporary file, see getLargeValue()
+     */
+    public boolean isLargeValue() {
+	return largeValue != null;
+    }
+
+    public DMPLargeValue getLargeValue() {
+	return largeValue;
+    }
+
+    /**
+     * @return the number of raw bytes, also for large values
+     */
+    public long getLength() {
+	return largeValue != null ? largeValue.getLength() : noOfbytes;
+    }
+
+    /**
+     * @return read only view of the raw bytes, large values are read into the heap
+     */
+    public ByteBuffer getBytes() {
+	if (largeValue != null) return ByteBuffer.wrap(getByteArray()).asReadOnlyBuffer();
+	return data.slice(offset, noOfbytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a copy of the raw bytes, large values are read into the heap
+     */
+    public byte[] getByteArray() {
+	if (largeValue != null) {
+	    try {
+		return largeValue.getBytes();
+	    } catch (IOException ex) {
+		throw new UncheckedIOException(ex);
+	    }
+	}
+	byte[] ret = new byte[noOfbytes];
+	data.get(offset, ret, 0, noOfbytes);
+	return ret;
+    }
+
+    /**
+     * @return a stream over the raw bytes, large values are streamed from their file
+     */
+    public InputStream getInputStream() throws IOException {
+	if (largeValue != null) return largeValue.openStream();
+	return new ByteArrayInputStream(getByteArray());
+    }
+
+    /**
+     * @return a channel over the raw bytes, large values are read from their file
+     */
+    public ReadableByteChannel getChannel() throws IOException {
+	if (largeValue != null) return largeValue.openChannel();
+	return Channels.newChannel(getInputStream());
+    }
+
+    public String getStringValue() {
+	String ret = stringValue;
+	if (ret == null && noOfbytes > 0) {
+	    if (itemType == DMPItemType.STRING) {
+		ret = charset.decode(data, offset, noOfbytes);
+	    } else if (itemType == DMPItemType.NUMBER) {
+		// exact decimal representation, Infinity and -Infinity for the infinite values
+		byte[] text = new byte[DMPNumber.MAX_TEXT_LENGTH];
+		ret = new String(text, 0, DMPNumber.toText(data, offset, noOfbytes, text, 0), StandardCharsets.US_ASCII);
+	    } else if (isDateTime()) {
+		ret = DMPDateTime.toString(data, offset, noOfbytes);
+	    }
+	    stringValue = ret;
+	}
+	return ret;
+    }
+
+    public Double getNumberValue() {
+	if (itemType != DMPItemType.NUMBER) return null;
+	Double ret = numberValue;
+	if (ret == null) {
+	    ret = getDoubleValue();
+	    numberValue = ret;
+	}
+	return ret;
+    }
+
+    /**
+     * @return the number as double, 0 if this is not a NUMBER
+     */
+    public double getDoubleValue() {
+	if (itemType != DMPItemType.NUMBER) return 0d;
+	return DMPNumber.toDouble(data, offset, noOfbytes);
+    }
+
+    /**
+     * @return true if the number is integral and fits into a long
+     */
+    public boolean isLongValue() {
+	return itemType == DMPItemType.NUMBER && DMPNumber.fitsLong(data, offset, noOfbytes);
+    }
+
+    /**
+     * @throws ArithmeticException if the number is not integral or does not fit into a long
+     */
+    public long getLongValue() {
+	if (itemType != DMPItemType.NUMBER) {
+	    throw new ArithmeticException("Item is not a NUMBER but " + itemType);
+	}
+	return DMPNumber.toLong(data, offset, noOfbytes);
+    }
+
+    /**
+     * @return the exact value of the number or null if this is not a NUMBER
+     */
+    public BigDecimal getBigDecimalValue() {
+	if (itemType != DMPItemType.NUMBER) return null;
+	return DMPNumber.toBigDecimal(data, offset, noOfbytes);
+    }
+
+    /**
+     * @return Long if the number is integral and fits, otherwise BigDecimal, null if this is not a NUMBER
+     */
+    public Number getNumber() {
+	if (itemType != DMPItemType.NUMBER) return null;
+	return DMPNumber.toNumber(data, offset, noOfbytes);
+    }
+
+    /**
+     * @return the DATE or TIMESTAMP value, null for other types or invalid dates
+     */
+    public LocalDateTime getLocalDateTimeValue() {
+	if (!isDateTime()) return null;
+	try {
+	    return DMPDateTime.toLocalDateTime(data, offset, noOfbytes);
+	} catch (DateTimeException ex) {
+	    return null;
+	}
+    }
+
+    /**
+     * @return seconds since 1970-01-01 00:00:00 with the DATE or TIMESTAMP value taken as UTC
+     */
+    public long getEpochSecond() {
+	checkDateTime();
+	return DMPDateTime.toEpochSecond(data, offset, noOfbytes);
+    }
+
+    /**
+     * @return nanoseconds since 1970-01-01 00:00:00 with the DATE or TIMESTAMP value taken as UTC
+     */
+    public long getEpochNanos() {
+	checkDateTime();
+	return DMPDateTime.toEpochNanos(data, offset, noOfbytes);
+    }
+
+    public Date getDateValue() {
+	Date ret = dateValue;
+	if (ret == null && itemType == DMPItemType.DATE) {
+	    LocalDateTime ldt = getLocalDateTimeValue();
+	    if (ldt != null) {
+		ret = Date.from(ldt.atZone(ZoneId.systemDefault()).toInstant());
+		dateValue = ret;
+	    }
+	}
+	return ret;
+    }
+
+    public Timestamp getTimestampValue() {
+	Timestamp ret = timestampValue;
+	if (ret == null && itemType == DMPItemType.TIMESTAMP) {
+	    LocalDateTime ldt = getLocalDateTimeValue();
+	    if (ldt != null) {
+		ret = Timestamp.valueOf(ldt);
+		timestampValue = ret;
+	    }
+	}
+	return ret;
+    }
+
+    private boolean isDateTime() {
+	return (itemType == DMPItemType.DATE && noOfbytes == 7) || (itemType == DMPItemType.TIMESTAMP && DMPDateTime.isDateTime(noOfbytes));
+    }
+
+    private void checkDateTime() {
+	if (!isDateTime()) {
+	    throw new DateTimeException("Item is not a DATE or TIMESTAMP but " + itemType);
+	}
+    }
     
     public String toString() {
+	if (itemType == null) return null;
+	if (largeValue != null) return largeValue.toString();
 	return switch (itemType) {
-	    case BLOB -> bytes.stream().map(x -> String.format("%02x", x)).collect(Collectors.joining(", "));
-	    case DATE -> dateValue != null ? dateValue.toString() : null;
+	    case BLOB -> getBytesAsList().stream().map(x -> String.format("%02x", x)).collect(Collectors.joining(", "));
+	    case DATE -> getDateValue() != null ? getDateValue().toString() : null;
 	    case NULL -> null;
-	    case NUMBER -> numberValue.toString();
-	    case STRING -> stringValue;
-	    case TIMESTAMP -> timestampValue.toString();
+	    case NUMBER -> getNumberValue().toString();
+	    case STRING -> getStringValue();
+	    case TIMESTAMP -> getTimestampValue().toString();
 	};
     }
+
+    private List<Byte> getBytesAsList() {
+	List<Byte> ret = new ArrayList<>(noOfbytes);
+	for (int i=0;i<noOfbytes;i++) ret.add(data.get(offset + i));
+	return ret;
+    }
 }
@@ -0,0 +1,526 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+/**
+ * Loads the parsed rows into another database with JDBC batches. One INSERT per table is prepared from the field names,
+ * the values are bound with their types directly from the decoded bytes, numbers and dates are never converted to strings.
+ * Used as row handler while parsing, so whole tables are never held in memory:
+ * <pre>
+ * DMPJdbcLoader loader = new DMPJdbcLoader(dataSource);
+ * loader.setBatchSize(1000);
+ * parser.parseRows(file, List.of("TABLE1"), loader);
+ * </pre>
+ * With a parallelism above 1 the rows of a table are spread over several connections, each commits its own transactions,
+ * so a failed load leaves the rows of the transactions which were already committed.
+ * If the parse fails within a table, close() rolls back the open transactions of the table.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPJdbcLoader implements DMPRowHandler, AutoCloseable {
+    private final DataSource dataSource;
+    private int batchSize = 1000;
+    private int commitSize = 10000;
+    private int parallelism = 1;
+    private boolean createTables = false;
+    private final Map<String, Long> loadedRows = Collections.synchronizedMap(new LinkedHashMap<>());
+    // the table of the row handler
+    private TableLoad current = null;
+
+    public DMPJdbcLoader(DataSource dataSource) {
+	if (dataSource == null) {
+	    throw new IllegalArgumentException("The data source must not be NULL");
+	}
+	this.dataSource = dataSource;
+    }
+
+    @Override
+    public void onTableStart(DMPTable table) {
+	try {
+	    current = new TableLoad(table);
+	} catch (SQLException ex) {
+	    throw new RuntimeException("Loading table " + table.tableName + " failed", ex);
+	}
+    }
+
+    @Override
+    public void onRow(DMPTable table, DMPRow row) {
+	try {
+	    current.add(row);
+	} catch (SQLException | RuntimeException ex) {
+	    current.abort();
+	    current = null;
+	    if (ex instanceof RuntimeException re) throw re;
+	    throw new RuntimeException("Loading table " + table.tableName + " failed", ex);
+	}
+    }
+
+    /**
+     * Insert and commit the rows so far, so the checkpoint covers them.
+     */
+    @Override
+    public void onCheckpoint(DMPTable table, DMPCheckpoint checkpoint) {
+	try {
+	    current.commit();
+	} catch (SQLException | RuntimeException ex) {
+	    current.abort();
+	    current = null;
+	    if (ex instanceof RuntimeException re) throw re;
+	    throw new RuntimeException("Loading table " + table.tableName + " failed", ex);
+	}
+    }
+
+    @Override
+    public void onTableEnd(DMPTable table) {
+	TableLoad load = current;
+	current = null;
+	try {
+	    load.finish();
+	} catch (SQLException ex) {
+	    throw new RuntimeException("Loading table " + table.tableName + " failed", ex);
+	}
+    }
+
+    /**
+     * Load the collected rows of a table, for example in the consumer of parseParallel().
+     * May be called by several threads for different tables.
+     * @return the number of rows inserted
+     */
+    public long load(DMPTable table) throws SQLException {
+	if (table == null || table.dataRows == null) {
+	    throw new IllegalArgumentException("The table and its rows must not be NULL");
+	}
+	TableLoad load = new TableLoad(table);
+	try {
+	    for (DMPRow row : table.dataRows) load.add(row);
+	} catch (SQLException | RuntimeException ex) {
+	    load.abort();
+	    throw ex;
+	}
+	return load.finish();
+    }
+
+    /**
+     * Roll back and close the connections of a table which was not finished, because the parse failed.
+     */
+    @Override
+    public void close() {
+	if (current != null) {
+	    current.abort();
+	    current = null;
+	}
+    }
+
+    /**
+     * @return the rows inserted per table, in the order the tables were finished
+     */
+    public Map<String, Long> getLoadedRows() {
+	synchronized (loadedRows) {
+	    return new LinkedHashMap<>(loadedRows);
+	}
+    }
+
+    /**
+     * @return the INSERT statement for the table, the identifiers are quoted as in the export
+     */
+    public static String createInsertSQL(DMPTable table) {
+	if (table.fieldNames == null || table.fieldNames.isEmpty()) {
+	    throw new IllegalArgumentException("The table " + table.tableName + " has no field names");
+	}
+	return "INSERT INTO \"" + table.tableName + "\" ("
+		+ table.fieldNames.stream().map(x -> "\"" + x + "\"").collect(Collectors.joining(", "))
+		+ ") VALUES (" + table.fieldNames.stream().map(x -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * Bind a value with its type, missing and NULL values are bound as NULL of the SQL type.
+     * Values of columns with an unknown type are bound as raw bytes.
+     * An invalid DATE or TIMESTAMP fails with an SQLDataException which names the column of the table.
+     * Large values are bound as streams, which are added to the list and have to be closed after the batch was executed.
+     */
+    static void bind(PreparedStatement ps, DMPTable table, int index, DMPItem item, int sqlType, List<InputStream> streams) throws SQLException {
+	if (item != null && item.isLargeValue()) {
+	    try {
+		InputStream in = item.getInputStream();
+		streams.add(in);
+		ps.setBinaryStream(index, in, item.getLength());
+	    } catch (IOException ex) {
+		throw new UncheckedIOException(ex);
+	    }
+	    return;
+	}
+	if (item == null || item.noOfbytes == 0) {
+	    ps.setNull(index, sqlType);
+	    return;
+	}
+	if (item.itemType == null) {
+	    // column type which is not decoded, e.g. CHAR, RAW or LONG, the driver converts the raw bytes
+	    ps.setBytes(index, item.getByteArray());
+	    return;
+	}
+	switch (item.itemType) {
+	    case NUMBER -> {
+		Number value = item.getNumber();
+		if (value instanceof Long l) {
+		    ps.setLong(index, l);
+		} else if (value instanceof BigDecimal bd) {
+		    ps.setBigDecimal(index, bd);
+		} else {
+		    // infinity
+		    ps.setDouble(index, value.doubleValue());
+		}
+	    }
+	    case STRING -> ps.setString(index, item.getStringValue());
+	    case DATE, TIMESTAMP -> {
+		try {
+		    ps.setTimestamp(index, Timestamp.valueOf(DMPDateTime.toLocalDateTime(item.data, item.offset, item.noOfbytes)));
+		} catch (DateTimeException ex) {
+		    // not loaded as NULL, which would hide the broken value
+		    throw new SQLDataException("Invalid " + item.itemType + " " + HexFormat.of().formatHex(item.getByteArray())
+			    + " in column " + table.fieldNames.get(index - 1) + " of table " + table.tableName, ex);
+		}
+	    }
+	    case BLOB -> ps.setBytes(index, item.getByteArray());
+	    default -> ps.setNull(index, sqlType);
+	}
+    }
+
+    static int toSqlType(DMPItemType type) {
+	if (type == null) return Types.VARCHAR;
+	return switch (type) {
+	    case NUMBER -> Types.NUMERIC;
+	    case DATE, TIMESTAMP -> Types.TIMESTAMP;
+	    case BLOB -> Types.VARBINARY;
+	    default -> Types.VARCHAR;
+	};
+    }
+
+    /**
+     * One connection with its prepared INSERT.
+     */
+    private class Writer {
+	final DMPTable table;
+	final Connection connection;
+	final PreparedStatement ps;
+	final int[] sqlTypes;
+	// streams of the large values in the pending batch
+	final List<InputStream> streams = new ArrayList<>();
+	int pending = 0;
+	int uncommitted = 0;
+	long rows = 0;
+
+	Writer(DMPTable table, String sql, int[] sqlTypes) throws SQLException {
+	    this.table = table;
+	    this.sqlTypes = sqlTypes;
+	    connection = dataSource.getConnection();
+	    try {
+		connection.setAutoCommit(false);
+		ps = connection.prepareStatement(sql);
+	    } catch (SQLException ex) {
+		connection.close();
+		throw ex;
+	    }
+	}
+
+	void write(DMPRow row) throws SQLException {
+	    for (int i=0;i<sqlTypes.length;i++) {
+		bind(ps, table, i + 1, i < row.items.size() ? row.items.get(i) : null, sqlTypes[i], streams);
+	    }
+	    ps.addBatch();
+	    rows++;
+	    if (++pending >= batchSize) executeBatch();
+	}
+
+	private void executeBatch() throws SQLException {
+	    if (pending == 0) return;
+	    ps.executeBatch();
+	    closeStreams();
+	    uncommitted += pending;
+	    pending = 0;
+	    if (commitSize > 0 && uncommitted >= commitSize) {
+		connection.commit();
+		uncommitted = 0;
+	    }
+	}
+
+	void commit() throws SQLException {
+	    executeBatch();
+	    connection.commit();
+	    uncommitted = 0;
+	}
+
+	void finish() throws SQLException {
+	    try {
+		commit();
+	    } finally {
+		close();
+	    }
+	}
+
+	void abort() {
+	    try {
+		connection.rollback();
+	    } catch (SQLException ex) {
+		// closed anyway
+	    }
+	    close();
+	}
+
+	private void closeStreams() {
+	    for (InputStream in : streams) {
+		try {
+		    in.close();
+		} catch (IOException ex) {
+		    // only read
+		}
+	    }
+	    streams.clear();
+	}
+
+	private void close() {
+	    closeStreams();
+	    try (connection; ps) {
+		// closed in reverse order
+	    } catch (SQLException ex) {
+		// nothing to keep
+	    }
+	}
+    }
+
+    /**
+     * Loading of one table, either by a single writer on the calling thread
+     * or by parallel writers which take chunks of rows from a queue.
+     */
+    private class TableLoad {
+	final DMPTable table;
+	final List<Writer> writers = new ArrayList<>();
+	final List<Thread> threads = new ArrayList<>();
+	final BlockingQueue<List<DMPRow>> queue;
+	final List<DMPRow> end = new ArrayList<>();
+	final AtomicReference<Exception> error = new AtomicReference<>();
+	List<DMPRow> chunk = null;
+
+	TableLoad(DMPTable table) throws SQLException {
+	    this.table = table;
+	    String sql = createInsertSQL(table);
+	    int[] sqlTypes = new int[table.fieldNames.size()];
+	    for (int i=0;i<sqlTypes.length;i++) {
+		sqlTypes[i] = toSqlType(table.columnTypes != null && i < table.columnTypes.size() ? table.columnTypes.get(i) : null);
+	    }
+	    // a resumed table has been created by the interrupted load
+	    if (createTables && table.createTableSQL != null && table.resumedFrom == null) {
+		try (Connection c = dataSource.getConnection(); Statement s = c.createStatement()) {
+		    s.execute(table.createTableSQL);
+		    if (!c.getAutoCommit()) c.commit();
+		}
+	    }
+	    try {
+		for (int i=0;i<parallelism;i++) writers.add(new Writer(table, sql, sqlTypes));
+	    } catch (SQLException ex) {
+		writers.forEach(Writer::abort);
+		throw ex;
+	    }
+	    if (parallelism == 1) {
+		queue = null;
+		return;
+	    }
+	    // a few chunks per writer, the parse waits if the database is slower
+	    queue = new ArrayBlockingQueue<>(parallelism * 2);
+	    startThreads();
+	}
+
+	private void startThreads() {
+	    for (Writer w : writers) {
+		Thread t = new Thread(() -> write(w), "DMPJdbcLoader-" + table.tableName);
+		t.setDaemon(true);
+		t.start();
+		threads.add(t);
+	    }
+	}
+
+	private void write(Writer w) {
+	    try {
+		while (true) {
+		    List<DMPRow> rows = queue.take();
+		    if (rows == end) break;
+		    // after an error the chunks are only taken, so the parse is not blocked
+		    if (error.get() != null) continue;
+		    try {
+			for (DMPRow row : rows) w.write(row);
+		    } catch (SQLException | RuntimeException ex) {
+			error.compareAndSet(null, ex);
+		    }
+		}
+	    } catch (InterruptedException ex) {
+		error.compareAndSet(null, ex);
+	    }
+	}
+
+	void add(DMPRow row) throws SQLException {
+	    if (queue == null) {
+		writers.get(0).write(row);
+		return;
+	    }
+	    if (chunk == null) chunk = new ArrayList<>(batchSize);
+	    chunk.add(row);
+	    if (chunk.size() >= batchSize) {
+		put(chunk);
+		chunk = null;
+	    }
+	}
+
+	private void put(List<DMPRow> rows) throws SQLException {
+	    checkError();
+	    try {
+		queue.put(rows);
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		throw new SQLException("Loading table " + table.tableName + " interrupted", ex);
+	    }
+	}
+
+	private void checkError() throws SQLException {
+	    Exception ex = error.get();
+	    if (ex instanceof SQLException sqle) throw sqle;
+	    if (ex instanceof RuntimeException re) throw re;
+	    if (ex != null) throw new SQLException("Loading table " + table.tableName + " interrupted", ex);
+	}
+
+	/**
+	 * Insert and commit the rows added so far, the parallel writers are stopped for it and started again.
+	 */
+	void commit() throws SQLException {
+	    if (queue != null) {
+		if (chunk != null) put(chunk);
+		chunk = null;
+		join();
+		threads.clear();
+		checkError();
+	    }
+	    for (Writer w : writers) w.commit();
+	    if (queue != null) startThreads();
+	}
+
+	/**
+	 * Wait for the writers and commit.
+	 * @return the number of rows inserted
+	 */
+	long finish() throws SQLException {
+	    if (queue != null) {
+		if (chunk != null) put(chunk);
+		chunk = null;
+		join();
+		try {
+		    checkError();
+		} catch (SQLException | RuntimeException ex) {
+		    writers.forEach(Writer::abort);
+		    throw ex;
+		}
+	    }
+	    long rows = 0;
+	    SQLException failed = null;
+	    for (Writer w : writers) {
+		try {
+		    w.finish();
+		    rows += w.rows;
+		} catch (SQLException ex) {
+		    if (failed == null) failed = ex;
+		}
+	    }
+	    if (failed != null) throw failed;
+	    loadedRows.merge(table.tableName, rows, Long::sum);
+	    return rows;
+	}
+
+	private void join() throws SQLException {
+	    try {
+		for (Thread t : threads) queue.put(end);
+		for (Thread t : threads) t.join();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		threads.forEach(Thread::interrupt);
+		throw new SQLException("Loading table " + table.tableName + " interrupted", ex);
+	    }
+	}
+
+	void abort() {
+	    if (queue != null) {
+		error.compareAndSet(null, new SQLException("Loading table " + table.tableName + " aborted"));
+		try {
+		    join();
+		} catch (SQLException ex) {
+		    // the writers are rolled back anyway
+		}
+	    }
+	    writers.forEach(Writer::abort);
+	}
+    }
+
+    public int getBatchSize() {
+	return batchSize;
+    }
+
+    /**
+     * Number of rows sent with one executeBatch(), default is 1000.
+     */
+    public void setBatchSize(int batchSize) {
+	this.batchSize = Math.max(batchSize, 1);
+    }
+
+    public int getCommitSize() {
+	return commitSize;
+    }
+
+    /**
+     * Number of rows after which a connection commits, counted in whole batches. 0 commits once per table.
+     * Default is 10000.
+     */
+    public void setCommitSize(int commitSize) {
+	this.commitSize = Math.max(commitSize, 0);
+    }
+
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Number of connections which insert the rows of a table in parallel, default is 1.
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public boolean isCreateTables() {
+	return createTables;
+    }
+
+    /**
+     * Execute the CREATE TABLE statement of the export before loading a table. The statement is used unchanged,
+     * with its storage clauses, so usually only an Oracle database accepts it.
+     */
+    public void setCreateTables(boolean createTables) {
+	this.createTables = createTables;
+    }
+}
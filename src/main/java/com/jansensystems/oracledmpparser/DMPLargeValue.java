@@ -0,0 +1,115 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A value larger than the large value threshold, see DMPParserConfig.withLargeValueThreshold().
+ * The parts of the value are written into a temporary file while the data is scanned, so the value never has to fit into the heap.
+ * The file is deleted by close() or when the value is no longer referenced.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPLargeValue implements AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Path file;
+    private final FileChannel out;
+    private final Cleaner.Cleanable cleanable;
+    private long length = 0;
+
+    /**
+     * @param directory directory of the temporary file, null for the default temporary directory
+     */
+    DMPLargeValue(Path directory) throws IOException {
+	file = directory != null ? Files.createTempFile(directory, "dmp", ".lob") : Files.createTempFile("dmp", ".lob");
+	out = FileChannel.open(file, StandardOpenOption.WRITE);
+	// the cleanup must not reference this value
+	cleanable = CLEANER.register(this, new Deleter(file, out));
+    }
+
+    /**
+     * Append the next part of the value.
+     */
+    void write(ByteBuffer buffer, int offset, int count) throws IOException {
+	ByteBuffer b = buffer.slice(offset, count);
+	while (b.hasRemaining()) out.write(b);
+	length += count;
+    }
+
+    /**
+     * All parts are written, the value can be read now.
+     */
+    void finish() throws IOException {
+	out.close();
+    }
+
+    public long getLength() {
+	return length;
+    }
+
+    /**
+     * @return the temporary file, valid until the value is closed
+     */
+    public Path getFile() {
+	return file;
+    }
+
+    /**
+     * @return a new stream over the bytes of the value, which should be closed by the caller
+     */
+    public InputStream openStream() throws IOException {
+	return new FileInputStream(file.toFile());
+    }
+
+    /**
+     * @return a new channel over the bytes of the value, which should be closed by the caller
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+	return FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Read the whole value into the heap.
+     * @throws IOException if the value does not fit into an array
+     */
+    public byte[] getBytes() throws IOException {
+	if (length > Integer.MAX_VALUE - 8) {
+	    throw new IOException("Value of " + length + " bytes does not fit into an array");
+	}
+	return Files.readAllBytes(file);
+    }
+
+    /**
+     * Delete the temporary file.
+     */
+    @Override
+    public void close() {
+	cleanable.clean();
+    }
+
+    @Override
+    public String toString() {
+	return "DMPLargeValue{" + "length=" + length + ", file=" + file + '}';
+    }
+
+    private record Deleter(Path file, FileChannel out) implements Runnable {
+	@Override
+	public void run() {
+	    try {
+		out.close();
+		Files.deleteIfExists(file);
+	    } catch (IOException ex) {
+		// the file stays in the temporary directory
+	    }
+	}
+    }
+}
@@ -0,0 +1,80 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Scanner working directly on memory mapped windows of a dump file.
+ * A mapping is limited to 2 GB, larger files are mapped window by window,
+ * a new window always starts at the current record so records never span windows.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPMappedScanner extends DMPScanner {
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    DMPMappedScanner(FileChannel channel) throws IOException {
+	this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    DMPMappedScanner(FileChannel channel, int windowSize) throws IOException {
+	super(ByteBuffer.allocate(0));
+	this.channel = channel;
+	this.size = channel.size();
+	this.windowSize = Math.max(windowSize, 16);
+    }
+
+    /**
+     * The mapped windows are never reused, so a view is enough.
+     */
+    @Override
+    ByteBuffer slice(int offset, int length) {
+	return buffer.slice(offset, length);
+    }
+
+    /**
+     * Just move the position, the next fill maps a window there.
+     */
+    @Override
+    protected boolean skipInput(long count) {
+	buffer = ByteBuffer.allocate(0);
+	if (bufferOffset + count > size) {
+	    bufferOffset = size;
+	    eof = true;
+	    return false;
+	}
+	bufferOffset += count;
+	return true;
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+	if (eof) return false;
+	long windowStart = bufferOffset + start;
+	long remaining = size - windowStart;
+	int keep = limit - start;
+	if (remaining <= keep) {
+	    eof = true;
+	    return false;
+	}
+	// at least double the window if a single record does not fit
+	long mapSize = Math.min(remaining, Math.max(windowSize, (long) keep * 2));
+	if (mapSize > Integer.MAX_VALUE) {
+	    if (keep == Integer.MAX_VALUE) {
+		throw new IOException("Record exceeds maximum mapping size");
+	    }
+	    mapSize = Integer.MAX_VALUE;
+	}
+	buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, mapSize);
+	bufferOffset = windowStart;
+	pos -= start;
+	limit = (int) mapSize;
+	start = 0;
+	return true;
+    }
+}
@@ -0,0 +1,38 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Feeds the table metrics into a metrics registry, as counters and timers tagged with the table name:
+ * prefix.bytes, prefix.rows, prefix.rows.filtered, prefix.nulls, prefix.types.unknown, prefix.scan and prefix.decode.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPMetricsListener implements DMPParseListener {
+    public static final String DEFAULT_PREFIX = "oracledmp";
+
+    private final DMPMetricsRegistry registry;
+    private final String prefix;
+
+    public DMPMetricsListener(DMPMetricsRegistry registry) {
+	this(registry, DEFAULT_PREFIX);
+    }
+
+    public DMPMetricsListener(DMPMetricsRegistry registry, String prefix) {
+	if (registry == null) {
+	    throw new IllegalArgumentException("The registry must not be NULL");
+	}
+	this.registry = registry;
+	this.prefix = prefix != null ? prefix : DEFAULT_PREFIX;
+    }
+
+    @Override
+    public void onTable(DMPTableMetrics metrics) {
+	String table = metrics.tableName != null ? metrics.tableName : "";
+	registry.count(prefix + ".bytes", table, metrics.bytes);
+	registry.count(prefix + ".rows", table, metrics.rows);
+	registry.count(prefix + ".rows.filtered", table, metrics.filteredRows);
+	registry.count(prefix + ".nulls", table, metrics.nulls);
+	registry.count(prefix + ".types.unknown", table, metrics.unknownTypeCodes.size());
+	registry.time(prefix + ".scan", table, metrics.scanNanos);
+	if (metrics.decoded) registry.time(prefix + ".decode", table, metrics.decodeNanos);
+    }
+}
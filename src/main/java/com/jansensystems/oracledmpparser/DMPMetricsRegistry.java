@@ -0,0 +1,22 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Target of DMPMetricsListener, to be implemented on top of a metrics library, for example with Micrometer:
+ * <pre>
+ * public void count(String name, String table, long amount) {
+ *     registry.counter(name, "table", table).increment(amount);
+ * }
+ *
+ * public void time(String name, String table, long nanos) {
+ *     registry.timer(name, "table", table).record(nanos, TimeUnit.NANOSECONDS);
+ * }
+ * </pre>
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public interface DMPMetricsRegistry {
+
+    void count(String name, String table, long amount);
+
+    void time(String name, String table, long nanos);
+}
@@ -0,0 +1,274 @@
+package com.jansensystems.oracledmpparser;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoder for the Oracle NUMBER format working directly on the raw bytes.
+ * The first byte is the base 100 exponent, followed by up to 20 base 100 digits.
+ * Positive numbers: exponent byte is 0xc1 + exponent, digits are coded as digit + 1.
+ * Negative numbers: exponent byte is 0x3e - exponent, digits are coded as 101 - digit,
+ * terminated by 0x66 if there are less than 20 digits.
+ * Zero is coded as the single byte 0x80.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public final class DMPNumber {
+    private static final double[] DOUBLE_POW10 = {
+	1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+	1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final BigInteger BIG_100_POW9 = BigInteger.TEN.pow(18);
+    private static final byte[] INFINITY = "Infinity".getBytes(StandardCharsets.US_ASCII);
+    // sign, "0.", 64 zero digit pairs for the smallest exponent -65 and 20 digit pairs
+    public static final int MAX_TEXT_LENGTH = 1 + 2 + 2 * 64 + 2 * 20;
+
+    private DMPNumber() {
+    }
+
+    public static boolean isZero(ByteBuffer b, int offset, int length) {
+	// 80 followed by digits is a positive value with the smallest exponent
+	return length == 1 && (b.get(offset) & 0xff) == 0x80;
+    }
+
+    public static boolean isNegative(ByteBuffer b, int offset, int length) {
+	return length > 0 && (b.get(offset) & 0x80) == 0;
+    }
+
+    /**
+     * Positive infinity is coded as ff 65, negative infinity as 00.
+     */
+    public static boolean isInfinite(ByteBuffer b, int offset, int length) {
+	if (length == 0) return false;
+	int b0 = b.get(offset) & 0xff;
+	return (length == 1 && b0 == 0) || (length == 2 && b0 == 0xff && (b.get(offset + 1) & 0xff) == 0x65);
+    }
+
+    /**
+     * @return the number of base 100 digits, without the exponent and the negative terminator
+     */
+    private static int digitCount(ByteBuffer b, int offset, int length) {
+	int n = length - 1;
+	if (n > 0 && (b.get(offset) & 0x80) == 0 && (b.get(offset + length - 1) & 0xff) == 0x66) n--;
+	return n;
+    }
+
+    private static int exponent(int b0) {
+	return (b0 & 0x80) != 0 ? b0 - 0xc1 : 0x3e - b0;
+    }
+
+    private static int digit(ByteBuffer b, int index, boolean negative) {
+	int v = b.get(index) & 0xff;
+	return negative ? 101 - v : v - 1;
+    }
+
+    /**
+     * @return true if the value has no fractional part and fits into a long
+     */
+    public static boolean fitsLong(ByteBuffer b, int offset, int length) {
+	if (length == 0 || isInfinite(b, offset, length)) return false;
+	if (isZero(b, offset, length)) return true;
+	int b0 = b.get(offset) & 0xff;
+	boolean negative = (b0 & 0x80) == 0;
+	int exp = exponent(b0);
+	int n = digitCount(b, offset, length);
+	if (exp < 0) return false;
+	// digits after the decimal point must all be 0
+	for (int i=exp+1;i<n;i++) {
+	    if (digit(b, offset + 1 + i, negative) != 0) return false;
+	}
+	// accumulate negative, so Long.MIN_VALUE fits as well
+	long v = 0;
+	for (int i=0;i<=exp;i++) {
+	    int d = i < n ? digit(b, offset + 1 + i, negative) : 0;
+	    if (v < (Long.MIN_VALUE + d) / 100) return false;
+	    v = v * 100 - d;
+	}
+	return negative || v != Long.MIN_VALUE;
+    }
+
+    /**
+     * @throws ArithmeticException if the value has a fractional part or does not fit into a long
+     */
+    public static long toLong(ByteBuffer b, int offset, int length) {
+	if (!fitsLong(b, offset, length)) {
+	    throw new ArithmeticException("NUMBER value does not fit into a long");
+	}
+	if (isZero(b, offset, length)) return 0;
+	int b0 = b.get(offset) & 0xff;
+	boolean negative = (b0 & 0x80) == 0;
+	int exp = exponent(b0);
+	int n = digitCount(b, offset, length);
+	long v = 0;
+	for (int i=0;i<=exp;i++) {
+	    v = v * 100 - (i < n ? digit(b, offset + 1 + i, negative) : 0);
+	}
+	return negative ? v : -v;
+    }
+
+    /**
+     * @return the exact value, integral values with scale 0, otherwise without trailing zeros
+     * @throws ArithmeticException for infinite values
+     */
+    public static BigDecimal toBigDecimal(ByteBuffer b, int offset, int length) {
+	if (length == 0 || isZero(b, offset, length)) return BigDecimal.ZERO;
+	if (isInfinite(b, offset, length)) {
+	    throw new ArithmeticException("NUMBER value is infinite");
+	}
+	int b0 = b.get(offset) & 0xff;
+	boolean negative = (b0 & 0x80) == 0;
+	int exp = exponent(b0);
+	int n = digitCount(b, offset, length);
+	int scale = 2 * (n - 1 - exp);
+	int last = n > 0 ? digit(b, offset + n, negative) : 0;
+	BigDecimal ret;
+	if (n <= 9) {
+	    // up to 18 decimal digits fit into a long
+	    long unscaled = 0;
+	    for (int i=0;i<n;i++) unscaled = unscaled * 100 + digit(b, offset + 1 + i, negative);
+	    if (scale > 0 && last % 10 == 0) {
+		unscaled /= 10;
+		scale--;
+	    }
+	    ret = BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+	} else {
+	    BigInteger unscaled = BigInteger.ZERO;
+	    int i = 0;
+	    while (i < n) {
+		int chunk = Math.min(9, n - i);
+		long part = 0;
+		for (int k=0;k<chunk;k++) part = part * 100 + digit(b, offset + 1 + i + k, negative);
+		unscaled = (chunk == 9 ? unscaled.multiply(BIG_100_POW9) : unscaled.multiply(BigInteger.TEN.pow(2 * chunk))).add(BigInteger.valueOf(part));
+		i += chunk;
+	    }
+	    ret = new BigDecimal(negative ? unscaled.negate() : unscaled, scale);
+	    if (scale > 0 && last % 10 == 0) ret = ret.setScale(scale - 1);
+	}
+	if (ret.scale() < 0) ret = ret.setScale(0);
+	return ret;
+    }
+
+    /**
+     * @return the nearest double, infinite values as double infinity
+     */
+    public static double toDouble(ByteBuffer b, int offset, int length) {
+	if (length == 0 || isZero(b, offset, length)) return 0d;
+	int b0 = b.get(offset) & 0xff;
+	if (isInfinite(b, offset, length)) {
+	    return b0 == 0 ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+	}
+	boolean negative = (b0 & 0x80) == 0;
+	int exp = exponent(b0);
+	int n = digitCount(b, offset, length);
+	if (n <= 7) {
+	    // up to 14 decimal digits are exact in a double, one multiplication or division by an exact
+	    // power of ten then gives the correctly rounded result
+	    long unscaled = 0;
+	    for (int i=0;i<n;i++) unscaled = unscaled * 100 + digit(b, offset + 1 + i, negative);
+	    int scale = 2 * (n - 1 - exp);
+	    if (scale >= -22 && scale <= 22) {
+		double v = scale >= 0 ? unscaled / DOUBLE_POW10[scale] : unscaled * DOUBLE_POW10[-scale];
+		return negative ? -v : v;
+	    }
+	}
+	return toBigDecimal(b, offset, length).doubleValue();
+    }
+
+    /**
+     * Write the exact value as plain decimal text in ASCII, like toBigDecimal().toPlainString() but without creating objects.
+     * Infinite values are written as Infinity and -Infinity.
+     * @param out needs room for MAX_TEXT_LENGTH bytes from pos
+     * @return the position after the text
+     */
+    public static int toText(ByteBuffer b, int offset, int length, byte[] out, int pos) {
+	if (length == 0 || isZero(b, offset, length)) {
+	    out[pos++] = '0';
+	    return pos;
+	}
+	int b0 = b.get(offset) & 0xff;
+	boolean negative = (b0 & 0x80) == 0;
+	if (negative) out[pos++] = '-';
+	if (isInfinite(b, offset, length)) {
+	    System.arraycopy(INFINITY, 0, out, pos, INFINITY.length);
+	    return pos + INFINITY.length;
+	}
+	int exp = exponent(b0);
+	int n = digitCount(b, offset, length);
+	int i = 0;
+	if (exp < 0) {
+	    out[pos++] = '0';
+	} else {
+	    // integer part, the first digit without leading zero
+	    int d = n > 0 ? digit(b, offset + 1, negative) : 0;
+	    if (d >= 10) out[pos++] = (byte) ('0' + d / 10);
+	    out[pos++] = (byte) ('0' + d % 10);
+	    for (i=1;i<=exp;i++) {
+		d = i < n ? digit(b, offset + 1 + i, negative) : 0;
+		out[pos++] = (byte) ('0' + d / 10);
+		out[pos++] = (byte) ('0' + d % 10);
+	    }
+	}
+	if (i >= n) return pos;
+	out[pos++] = '.';
+	for (int k=exp+1;k<0;k++) {
+	    out[pos++] = '0';
+	    out[pos++] = '0';
+	}
+	for (;i<n;i++) {
+	    int d = digit(b, offset + 1 + i, negative);
+	    out[pos++] = (byte) ('0' + d / 10);
+	    out[pos++] = (byte) ('0' + d % 10);
+	}
+	while (out[pos - 1] == '0') pos--;
+	if (out[pos - 1] == '.') pos--;
+	return pos;
+    }
+
+    /**
+     * @return Long if the value is integral and fits, BigDecimal otherwise
+     */
+    public static Number toNumber(ByteBuffer b, int offset, int length) {
+	if (fitsLong(b, offset, length)) {
+	    return toLong(b, offset, length);
+	}
+	if (isInfinite(b, offset, length)) {
+	    return toDouble(b, offset, length);
+	}
+	return toBigDecimal(b, offset, length);
+    }
+
+    /**
+     * Encode a value in the NUMBER format, rounded to 38 significant digits like Oracle does.
+     * @throws ArithmeticException if the value is outside of the NUMBER range
+     */
+    public static byte[] encode(BigDecimal value) {
+	if (value.signum() == 0) return new byte[] {(byte) 0x80};
+	BigDecimal a = value.abs().round(new MathContext(38, RoundingMode.HALF_UP)).stripTrailingZeros();
+	boolean negative = value.signum() < 0;
+	String digits = a.unscaledValue().toString();
+	// number of digits before the decimal point, aligned to base 100
+	int intDigits = digits.length() - a.scale();
+	if (Math.floorMod(intDigits, 2) != 0) {
+	    digits = "0" + digits;
+	    intDigits++;
+	}
+	if (digits.length() % 2 != 0) digits = digits + "0";
+	int exp = intDigits / 2 - 1;
+	if (exp < -65 || exp > 62) {
+	    throw new ArithmeticException("Value " + value + " is outside of the NUMBER range");
+	}
+	int n = digits.length() / 2;
+	byte[] ret = new byte[n + (negative && n < 20 ? 2 : 1)];
+	ret[0] = (byte) (negative ? 0x3e - exp : 0xc1 + exp);
+	for (int i=0;i<n;i++) {
+	    int d = (digits.charAt(2 * i) - '0') * 10 + digits.charAt(2 * i + 1) - '0';
+	    ret[i + 1] = (byte) (negative ? 101 - d : d + 1);
+	}
+	if (negative && n < 20) ret[ret.length - 1] = 0x66;
+	return ret;
+    }
+}
@@ -0,0 +1,25 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Receives the metrics of a parse, see DMPParser.setParseListener().
+ * In parseParallel() the methods are called from the scanning and the worker threads.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public interface DMPParseListener {
+
+    default void onParseStart() {
+    }
+
+    /**
+     * Called after the data of a table has been decoded or skipped.
+     */
+    default void onTable(DMPTableMetrics metrics) {
+    }
+
+    /**
+     * Called at the end of the dump, not if the parse is stopped before, for example by closing a stream.
+     */
+    default void onParseEnd(DMPParseMetrics metrics) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Totals of one parse, see DMPParseListener.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPParseMetrics {
+    // bytes read from the dump, for parsing with an index only the data of the selected tables
+    public long bytes = 0;
+    public int tables = 0;
+    public int decodedTables = 0;
+    public long rows = 0;
+    public long deliveredRows = 0;
+    public long nulls = 0;
+    public int unknownTypes = 0;
+    public long scanNanos = 0;
+    public long decodeNanos = 0;
+    // only with asynchronous reading: waits of the parse for data and of the reader thread for free buffers
+    public long readStallNanos = 0;
+    public long readStalls = 0;
+    public long readerIdleNanos = 0;
+    // wall clock time from the start of the parse to the end of the last table
+    public long elapsedNanos = 0;
+
+    synchronized void add(DMPTableMetrics table) {
+	tables++;
+	if (table.decoded) decodedTables++;
+	rows += table.rows;
+	deliveredRows += table.getDeliveredRows();
+	nulls += table.nulls;
+	unknownTypes += table.unknownTypeCodes.size();
+	scanNanos += table.scanNanos;
+	decodeNanos += table.decodeNanos;
+    }
+
+    public double getBytesPerSecond() {
+	return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0;
+    }
+
+    public double getRowsPerSecond() {
+	return elapsedNanos > 0 ? deliveredRows * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPParseMetrics{" + "bytes=" + bytes + ", tables=" + tables + ", decodedTables=" + decodedTables + ", rows=" + rows + ", deliveredRows=" + deliveredRows
+		+ ", nulls=" + nulls + ", unknownTypes=" + unknownTypes + ", scanNanos=" + scanNanos + ", decodeNanos=" + decodeNanos + ", elapsedNanos=" + elapsedNanos
+		+ ", readStallNanos=" + readStallNanos + ", readStalls=" + readStalls + ", readerIdleNanos=" + readerIdleNanos + '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.charset.Charset;
+
+/**
+ * Result of one parse, the export header of the dump and the metrics if a parse listener is set.
+ * Every parse has its own result, so it stays valid while the parser is used for other files.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPParseResult {
+    private final DMPExportVersion exportVersion = new DMPExportVersion();
+    private String exportUser = null;
+    private String exportTablespace = null;
+    private int exportCharsetId = 0;
+    private Charset exportCharset = null;
+    private DMPParseMetrics metrics = null;
+
+    public DMPExportVersion getExportVersion() {
+	return exportVersion;
+    }
+
+    public String getExportUser() {
+	return exportUser;
+    }
+
+    void setExportUser(String exportUser) {
+	this.exportUser = exportUser;
+    }
+
+    public String getExportTablespace() {
+	return exportTablespace;
+    }
+
+    void setExportTablespace(String exportTablespace) {
+	this.exportTablespace = exportTablespace;
+    }
+
+    /**
+     * @return the Oracle id of the character set from the export header, 0 if it was not found
+     */
+    public int getExportCharsetId() {
+	return exportCharsetId;
+    }
+
+    /**
+     * @return the character set used for the text of the dump, the configured one or the JVM default if the id is unknown
+     */
+    public Charset getExportCharset() {
+	return exportCharset;
+    }
+
+    void setExportCharset(int exportCharsetId, Charset exportCharset) {
+	this.exportCharsetId = exportCharsetId;
+	this.exportCharset = exportCharset;
+    }
+
+    /**
+     * @return the totals of the parse or null without parse listener
+     */
+    public DMPParseMetrics getMetrics() {
+	return metrics;
+    }
+
+    void setMetrics(DMPParseMetrics metrics) {
+	this.metrics = metrics;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPParseResult{" + "exportVersion=" + exportVersion.getMajor() + "." + exportVersion.getMinor() + "." + exportVersion.getPatch()
+		+ ", exportUser=" + exportUser + ", exportTablespace=" + exportTablespace + ", exportCharset=" + exportCharset + '}';
+    }
+}
@@ -0,0 +1,442 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State of one parse: the position in the statements of the dump, the export header read so far and the metrics.
+ * Each parse method of DMPParser creates its own session, the parser itself only holds the configuration.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPParseSession {
+    // example: INSERT INTO "TABLE1" ("KEYCOL", "NUMCOL1", "FLOATCOL1", "STRCOL1", "DATECOL1", "BLOBCOL1", "TIMESTAMP1") VALUES (:1, :2, :3, :4, :5, :6, :7)
+    private static final Pattern patInsertStatement = Pattern.compile("INSERT INTO \"([^\"]+)\" \\(([^)]+)\\) VALUES");
+    // EXPORT:V10.02.01
+    // EXPORT:V07.03.04
+    private static final Pattern patExportVersion = Pattern.compile("EXPORT:V(\\d\\d)\\.(\\d\\d)\\.(\\d\\d)");
+    // record types, matched on the raw bytes so binary records are never decoded
+    private static final byte[] TABLE = "TABLE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CREATE_TABLE = "CREATE TABLE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INSERT_INTO = "INSERT INTO ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXPORT_VERSION = "EXPORT:V".getBytes(StandardCharsets.US_ASCII);
+
+    final DMPParserConfig config;
+    final DMPParseResult result = new DMPParseResult();
+    final DMPExportVersion exportVersion = result.getExportVersion();
+    boolean afterInsertStatement = false;
+    boolean skipInsertStatement = false;
+    String currentTable = null;
+    DMPTable currentTableObj = null;
+    boolean finished = false;
+    // character set of the export, from the header unless it is configured
+    private DMPCharset charset;
+    private boolean headerRead = false;
+    // name of the current table section, also if the table is not selected
+    private String tableSection = null;
+    // metrics of the parse, null if there is no listener
+    private DMPParseMetrics parseMetrics = null;
+    private long parseStart = 0;
+    private DMPTableMetrics tableMetrics = null;
+    // null if the parse creates no checkpoints
+    private DMPCheckpointListener checkpointListener;
+    // offset from which the next checkpoint is created
+    private long nextCheckpoint;
+    // the table continued from a checkpoint and its rows before
+    private DMPTable resumedTable = null;
+    private long resumedRows = 0;
+    // the row handler of the parse, which is told about the checkpoints, null for column batches
+    private DMPRowHandler rowHandler = null;
+    // reader thread of the input stream, null if it is read directly
+    private DMPAsyncInputStream asyncInput = null;
+
+    DMPParseSession(DMPParserConfig config) {
+	this.config = config;
+	this.checkpointListener = config.getCheckpointListener();
+	this.nextCheckpoint = config.getCheckpointInterval();
+	this.charset = config.getCharset() != null ? DMPCharset.of(config.getCharset()) : DMPCharset.DEFAULT;
+	result.setExportCharset(0, charset.getCharset());
+    }
+
+    /**
+     * For parses which do not deliver the rows in file order, so no offset separates delivered from outstanding rows.
+     */
+    void disableCheckpoints() {
+	checkpointListener = null;
+    }
+
+    /**
+     * Take the export header from the index, for parsing without reading the header.
+     */
+    void setHeader(DMPIndex index) {
+	exportVersion.setMajor(index.exportVersion.getMajor());
+	exportVersion.setMinor(index.exportVersion.getMinor());
+	exportVersion.setPatch(index.exportVersion.getPatch());
+	result.setExportUser(index.exportUser);
+	result.setExportTablespace(index.exportTablespace);
+	setCharset(index.exportCharsetId);
+    }
+
+    /**
+     * Take the export header from the checkpoint, for continuing a parse.
+     */
+    void setHeader(DMPCheckpoint checkpoint) {
+	exportVersion.setMajor(checkpoint.exportVersion.getMajor());
+	exportVersion.setMinor(checkpoint.exportVersion.getMinor());
+	exportVersion.setPatch(checkpoint.exportVersion.getPatch());
+	result.setExportUser(checkpoint.exportUser);
+	result.setExportTablespace(checkpoint.exportTablespace);
+	setCharset(checkpoint.exportCharsetId);
+	nextCheckpoint = checkpoint.offset + config.getCheckpointInterval();
+    }
+
+    /**
+     * Set the character set of the export by its Oracle id, unless a character set is configured.
+     */
+    private void setCharset(int oracleId) {
+	headerRead = true;
+	if (config.getCharset() == null) charset = DMPCharset.forOracleId(oracleId);
+	result.setExportCharset(charset.getOracleId(), charset.getCharset());
+    }
+
+    DMPCharset getCharset() {
+	return charset;
+    }
+
+    /**
+     * Decode the rest of the table in which the checkpoint is, the scanner must be positioned at the offset of the checkpoint.
+     * Afterwards the parse continues with parseRows() or parseBatches().
+     */
+    void resumeRows(DMPScanner scanner, DMPCheckpoint checkpoint, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	DMPTable table = resumeTable(checkpoint);
+	if (table == null) return;
+	DMPRowDecoder decoder = resumeDecoder(checkpoint, table);
+	if (filter.apply(table.tableName)) {
+	    rowHandler = handler;
+	    decoder.decode(scanner, table, handler);
+	} else {
+	    decoder.skip(scanner);
+	}
+	endTable(parseMetrics, tableMetrics);
+	tableCheckpoint(scanner.getPosition());
+    }
+
+    void resumeBatches(DMPScanner scanner, DMPCheckpoint checkpoint, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	DMPTable table = resumeTable(checkpoint);
+	if (table == null) return;
+	DMPRowDecoder decoder = resumeDecoder(checkpoint, table);
+	if (filter.apply(table.tableName)) {
+	    decoder.decodeBatches(scanner, table, batchSize, handler);
+	} else {
+	    decoder.skip(scanner);
+	}
+	endTable(parseMetrics, tableMetrics);
+	tableCheckpoint(scanner.getPosition());
+    }
+
+    private DMPTable resumeTable(DMPCheckpoint checkpoint) {
+	startMetrics();
+	if (!checkpoint.isInTable()) return null;
+	if (checkpoint.columnTypes == null || checkpoint.fieldNames == null) {
+	    throw new IllegalArgumentException("The checkpoint has no column types");
+	}
+	DMPTable ret = new DMPTable();
+	ret.tableName = checkpoint.tableName;
+	ret.createTableSQL = checkpoint.createTableSQL;
+	ret.fieldNames = checkpoint.fieldNames;
+	ret.resumedFrom = checkpoint;
+	resumedTable = ret;
+	resumedRows = checkpoint.rowCount;
+	tableSection = ret.tableName;
+	startTable(ret.tableName);
+	return ret;
+    }
+
+    private DMPRowDecoder resumeDecoder(DMPCheckpoint checkpoint, DMPTable table) {
+	DMPRowDecoder ret = createDecoder(table);
+	ret.setColumnTypes(checkpoint.columnTypes);
+	return ret;
+    }
+
+    /**
+     * @return the export header and the offset for a checkpoint
+     */
+    private DMPCheckpoint newCheckpoint(long offset) {
+	DMPCheckpoint ret = new DMPCheckpoint();
+	ret.offset = offset;
+	ret.exportVersion.setMajor(exportVersion.getMajor());
+	ret.exportVersion.setMinor(exportVersion.getMinor());
+	ret.exportVersion.setPatch(exportVersion.getPatch());
+	ret.exportUser = result.getExportUser();
+	ret.exportTablespace = result.getExportTablespace();
+	ret.exportCharsetId = result.getExportCharsetId();
+	nextCheckpoint = offset + config.getCheckpointInterval();
+	return ret;
+    }
+
+    /**
+     * Create a checkpoint after a row, if the interval has passed.
+     */
+    private void rowCheckpoint(DMPTable table, DMPRowDecoder decoder, long offset) {
+	if (offset < nextCheckpoint) return;
+	DMPCheckpoint checkpoint = newCheckpoint(offset);
+	checkpoint.tableName = table.tableName;
+	checkpoint.createTableSQL = table.createTableSQL;
+	checkpoint.fieldNames = table.fieldNames;
+	checkpoint.columnTypes = decoder.getColumnTypes();
+	checkpoint.rowCount = decoder.getScannedRows() + (table == resumedTable ? resumedRows : 0);
+	if (rowHandler != null) rowHandler.onCheckpoint(table, checkpoint);
+	checkpointListener.onCheckpoint(checkpoint);
+    }
+
+    /**
+     * Create a checkpoint after the data of a table, if the interval has passed.
+     */
+    private void tableCheckpoint(long offset) {
+	if (checkpointListener == null || offset < nextCheckpoint) return;
+	checkpointListener.onCheckpoint(newCheckpoint(offset));
+    }
+
+    /**
+     * @return a scanner for the stream, which is read ahead by a reader thread if configured
+     */
+    DMPScanner createScanner(InputStream in) {
+	if (config.getAsyncReadDepth() > 0) {
+	    asyncInput = new DMPAsyncInputStream(in, config.getAsyncReadBufferSize(), config.getAsyncReadDepth());
+	    return new DMPScanner(asyncInput);
+	}
+	return new DMPScanner(in);
+    }
+
+    /**
+     * Stop the reader thread, if the parse ends before the end of the stream.
+     */
+    void stopInput() {
+	if (asyncInput != null) asyncInput.stop();
+    }
+
+    void parseRows(DMPScanner scanner, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	while (parseNextTable(scanner, filter, handler) != null) {
+	    // the rows are delivered to the handler
+	}
+    }
+
+    void parseBatches(DMPScanner scanner, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	DMPTable table;
+	while ((table = nextTable(scanner, filter)) != null) {
+	    createDecoder(table).decodeBatches(scanner, table, batchSize, handler);
+	    endTable(parseMetrics, tableMetrics);
+	    tableCheckpoint(scanner.getPosition());
+	}
+	if (parseMetrics != null) endMetrics(scanner.getPosition());
+    }
+
+    /**
+     * Read until the data of the next selected table has been decoded.
+     * @return the table or null at the end of the file
+     */
+    DMPTable parseNextTable(DMPScanner scanner, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	DMPTable table = nextTable(scanner, filter);
+	if (table != null) {
+	    rowHandler = handler;
+	    createDecoder(table).decode(scanner, table, handler);
+	    endTable(parseMetrics, tableMetrics);
+	    tableCheckpoint(scanner.getPosition());
+	} else if (parseMetrics != null) {
+	    endMetrics(scanner.getPosition());
+	}
+	return table;
+    }
+
+    DMPRowDecoder createDecoder(DMPTable table) {
+	DMPRowDecoder ret = new DMPRowDecoder(exportVersion, config.isDebugToStdout(), config.isDebugHexDumpToStdout());
+	if (config.getProjection() != null) ret.setProjection(config.getProjection().resolve(table.fieldNames));
+	if (config.getRowFilter() != null) ret.setRowFilter(config.getRowFilter(), table.fieldNames);
+	ret.setMetrics(tableMetrics);
+	ret.setCharset(charset);
+	if (config.getLargeValueThreshold() > 0) ret.setLargeValues(config.getLargeValueThreshold(), config.getLargeValueDirectory());
+	if (checkpointListener != null) ret.setRowEnd(offset -> rowCheckpoint(table, ret, offset));
+	return ret;
+    }
+
+    /**
+     * @return the metrics of the table returned by the last call of nextTable(), null without parse listener
+     */
+    DMPTableMetrics getTableMetrics() {
+	return tableMetrics;
+    }
+
+    /**
+     * @return the metrics of the parse, started if there is a parse listener
+     */
+    DMPParseMetrics startMetrics() {
+	if (config.getParseListener() != null && parseMetrics == null) {
+	    parseMetrics = new DMPParseMetrics();
+	    parseStart = System.nanoTime();
+	    config.getParseListener().onParseStart();
+	}
+	return parseMetrics;
+    }
+
+    /**
+     * Start the metrics of a table whose data is read from the index, not found by scanning.
+     * @return the metrics, null without parse listener
+     */
+    DMPTableMetrics startTable(String tableName) {
+	tableMetrics = parseMetrics != null ? startTable(tableName, System.nanoTime()) : null;
+	return tableMetrics;
+    }
+
+    private static DMPTableMetrics startTable(String tableName, long scanStart) {
+	DMPTableMetrics ret = new DMPTableMetrics();
+	ret.tableName = tableName;
+	ret.scanNanos = System.nanoTime() - scanStart;
+	return ret;
+    }
+
+    /**
+     * Add the metrics of a table to the totals and report them, may be called from worker threads.
+     */
+    void endTable(DMPParseMetrics metrics, DMPTableMetrics table) {
+	if (metrics == null || table == null) return;
+	metrics.add(table);
+	config.getParseListener().onTable(table);
+    }
+
+    void endMetrics(long bytes) {
+	endMetrics(parseMetrics, bytes);
+    }
+
+    void endMetrics(DMPParseMetrics metrics, long bytes) {
+	if (metrics == null) return;
+	metrics.bytes = bytes;
+	metrics.elapsedNanos = System.nanoTime() - parseStart;
+	if (asyncInput != null) {
+	    metrics.readStallNanos = asyncInput.getReadStallNanos();
+	    metrics.readStalls = asyncInput.getReadStalls();
+	    metrics.readerIdleNanos = asyncInput.getReaderIdleNanos();
+	}
+	result.setMetrics(metrics);
+	config.getParseListener().onParseEnd(metrics);
+    }
+
+    /**
+     * Read until the INSERT statement of the next selected table, the scanner is then positioned at its data.
+     * @return the table or null at the end of the file
+     */
+    DMPTable nextTable(DMPScanner scanner, Function<String, Boolean> filter) throws IOException {
+	if (!finished) startMetrics();
+	long scanStart = parseMetrics != null ? System.nanoTime() : 0;
+	tableMetrics = null;
+	while (!finished) {
+	    boolean more = scanner.nextLine();
+	    parseLine(scanner, filter);
+	    if (afterInsertStatement) {
+		// should be data here
+		afterInsertStatement = false;
+		if (parseMetrics != null) tableMetrics = startTable(currentTableObj.tableName, scanStart);
+		return currentTableObj;
+	    }
+	    if (skipInsertStatement) {
+		// data of a table which is not wanted, skip it without decoding
+		skipInsertStatement = false;
+		DMPRowDecoder decoder = new DMPRowDecoder(exportVersion, config.isDebugToStdout(), config.isDebugHexDumpToStdout());
+		if (parseMetrics != null) {
+		    DMPTableMetrics skipped = new DMPTableMetrics();
+		    skipped.tableName = tableSection;
+		    decoder.setMetrics(skipped);
+		    decoder.skip(scanner);
+		    skipped.scanNanos = System.nanoTime() - scanStart;
+		    endTable(parseMetrics, skipped);
+		    scanStart = System.nanoTime();
+		} else {
+		    decoder.skip(scanner);
+		}
+		tableCheckpoint(scanner.getPosition());
+		continue;
+	    }
+	    if (!more) finished = true;
+	}
+	return null;
+    }
+
+    /**
+     * Evaluate the current record of the scanner. The record type is tested on the raw bytes,
+     * only the statements and header lines which are needed are decoded to Strings.
+     */
+    void parseLine(DMPScanner scanner, Function<String, Boolean> filter) {
+	// test what it is
+	ByteBuffer buf = scanner.getBuffer();
+	int start = scanner.getRecordStart();
+	int length = scanner.getRecordLength();
+	int versionAt;
+	if (startsWith(buf, start, length, TABLE)) {
+	    String testString = recordString(scanner);
+	    currentTable = testString.substring(7, testString.length()-1);
+	    tableSection = currentTable;
+	} else if (startsWith(buf, start, length, CREATE_TABLE)) {
+	    if (filter.apply(currentTable)) {
+		currentTableObj = new DMPTable();
+		currentTableObj.tableName = currentTable;
+		currentTableObj.createTableSQL = recordString(scanner);
+	    } else {
+		currentTable = null;
+	    }
+	} else if (startsWith(buf, start, length, INSERT_INTO)) {
+	    if (currentTable == null) {
+		skipInsertStatement = true;
+	    } else {
+		afterInsertStatement = true;
+		Matcher m = patInsertStatement.matcher(recordString(scanner));
+		if (m.find()) {
+		    String fieldsStr = m.group(2);
+		    String[] fieldss = fieldsStr.split(",");
+		    currentTableObj.fieldNames = Arrays.asList(fieldss).stream().map(x -> x.trim().replaceAll("\"", "")).toList();
+		}
+	    }
+	} else if (!headerRead && (versionAt = indexOf(buf, start, length, EXPORT_VERSION)) >= 0) {
+	    // the first record starts with a flag byte and the id of the character set
+	    if (versionAt == 3) setCharset(((buf.get(start + 1) & 0xff) << 8) | (buf.get(start + 2) & 0xff));
+	    headerRead = true;
+	    Matcher m = patExportVersion.matcher(recordString(scanner));
+	    if (m.find()) {
+		exportVersion.setMajor(Integer.parseInt(m.group(1)));
+		exportVersion.setMinor(Integer.parseInt(m.group(2)));
+		exportVersion.setPatch(Integer.parseInt(m.group(3)));
+	    }
+	} else if (length > 0 && buf.get(start) == 'U' && result.getExportUser() == null) {
+	    result.setExportUser(recordString(scanner).substring(1));
+	} else if (length > 0 && buf.get(start) == 'R' && result.getExportTablespace() == null) {
+	    result.setExportTablespace(recordString(scanner).substring(1));
+	}
+    }
+
+    /**
+     * @return the current record of the scanner decoded with the character set of the export
+     */
+    String recordString(DMPScanner scanner) {
+	return charset.decode(scanner.getBuffer(), scanner.getRecordStart(), scanner.getRecordLength());
+    }
+
+    static boolean startsWith(ByteBuffer buf, int start, int length, byte[] prefix) {
+	if (length < prefix.length) return false;
+	for (int i=0;i<prefix.length;i++) {
+	    if (buf.get(start + i) != prefix[i]) return false;
+	}
+	return true;
+    }
+
+    private static int indexOf(ByteBuffer buf, int start, int length, byte[] pattern) {
+	int last = start + length - pattern.length;
+	for (int i=start;i<=last;i++) {
+	    if (buf.get(i) == pattern[0] && startsWith(buf, i, pattern.length, pattern)) return i - start;
+	}
+	return -1;
+    }
+}
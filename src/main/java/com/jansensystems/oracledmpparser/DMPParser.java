@@ -1,58 +1,77 @@
 
 package com.jansensystems.oracledmpparser;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
-import java.sql.Timestamp;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
+ * Parser for dump files. The settings are an immutable DMPParserConfig and every parse keeps its state
+ * in its own session, so one parser can parse several files at the same time.
  *
  * @author Matthias Jansen / Jansen-Systems
  */
 public class DMPParser {
-    private boolean afterInsertStatement = false;
-    private String currentTable = null;
-    private DMPTable currentTableObj = null;
-    private List<DMPTable> tables = new ArrayList<>();
-    private boolean finished = false;
-    private boolean debugToStdout = false;
-    private boolean debugHexDumpToStdout = false;
-    private final DMPExportVersion exportVersion = new DMPExportVersion();
-    private String exportUser = null;
-    private String exportTablespace = null;
+    private volatile DMPParserConfig config;
+    // result of the last parse started, for getExportVersion() etc.
+    private volatile DMPParseResult lastResult = new DMPParseResult();
     
-    // example: INSERT INTO "TABLE1" ("KEYCOL", "NUMCOL1", "FLOATCOL1", "STRCOL1", "DATECOL1", "BLOBCOL1", "TIMESTAMP1") VALUES (:1, :2, :3, :4, :5, :6, :7)
-    private static final Pattern patInsertStatement = Pattern.compile("INSERT INTO \"([^\"]+)\" \\(([^)]+)\\) VALUES");
-    // EXPORT:V10.02.01
-    // EXPORT:V07.03.04
-    private static final Pattern patExportVersion = Pattern.compile("EXPORT:V(\\d\\d)\\.(\\d\\d)\\.(\\d\\d)");
-    private static final SimpleDateFormat dateParser = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     private static final DateTimeFormatter timestampFormatter = new DateTimeFormatterBuilder().appendPattern("yyyy-MM-dd HH:mm:ss") // .parseLenient()
         .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).toFormatter();
+    // records matched on the raw bytes
+    private static final byte[] CREATE_TABLE = "CREATE TABLE ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TABLE_QUOTE = "TABLE \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ENDTABLE = "ENDTABLE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXIT = "EXIT".getBytes(StandardCharsets.US_ASCII);
     
+    public DMPParser() {
+	this(DMPParserConfig.DEFAULT);
+    }
+
+    public DMPParser(DMPParserConfig config) {
+	if (config == null) {
+	    throw new IllegalArgumentException("The config must not be NULL");
+	}
+	this.config = config;
+    }
+
+    /**
+     * Forget the export header of the last parse. Not needed between parses, every parse starts with a new session.
+     */
     public void reset() {
-	afterInsertStatement = false;
-	finished = false;
-	tables.clear();
-	currentTable = null;
-	currentTableObj = null;
+	lastResult = new DMPParseResult();
+    }
+
+    private DMPParseSession newSession() {
+	DMPParseSession ret = new DMPParseSession(config);
+	lastResult = ret.result;
+	return ret;
     }
     
     public Stream<DMPTable> parseFileStream(InputStream in) throws IOException {
@@ -70,54 +89,30 @@ public class DMPParser {
 	}
 	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
 	// if (filter == null) filter = x -> true;
-	reset();
-	Stream<DMPTable> iterated = Stream.iterate(null, s -> !finished, s -> {
-	    // return null;
-	    tables.clear();
-	    ByteArrayOutputStream temp = new ByteArrayOutputStream();
+	final DMPParseSession session = newSession();
+	final DMPScanner scanner = session.createScanner(in);
+	final DMPRowHandler collector = new DMPRowHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		table.dataRows = new ArrayList<>();
+	    }
+
+	    @Override
+	    public void onRow(DMPTable table, DMPRow row) {
+		table.dataRows.add(row);
+	    }
+	};
+	Stream<DMPTable> iterated = Stream.iterate(null, s -> !session.finished, s -> {
 	    try {
-		int b = 0;
-		Queue<Integer> lastBytes = new LinkedList<>();
-		while ((b = in.read()) >= 0) {
-		    if (b == 0x0a) {
-			if (afterInsertStatement) {
-			    if (lastBytesEndOfInsertData(lastBytes)) {
-				temp.write(b);
-				temp.close();
-				parseLine(temp.toByteArray(), filter1);
-				return tables.get(0);
-				// temp = new ByteArrayOutputStream();
-			    } else {
-				temp.write(b);
-				// nothing else to do, just add more bytes
-			    }
-			} else {
-			    // newline
-			    temp.close();
-			    parseLine(temp.toByteArray(), filter1);
-			    temp = new ByteArrayOutputStream();
-			}
-		    } else {
-			temp.write(b);
-			lastBytes.add(b);
-			if (lastBytes.size() > 4) lastBytes.poll();
-		    }
-		}
-		parseLine(temp.toByteArray(), filter1);
-		finished = true;
+		return session.parseNextTable(scanner, filter1, collector);
 	    } catch (Exception ex) {
 		// TODO
 		throw new RuntimeException(ex);
 		// ex.printStackTrace();
-	    } finally {
-		try {
-		    temp.close();
-		} catch (Exception ex) {}
 	    }
-	    return null;
 	});
 	
-	return iterated.skip(1);    // skip the initial NULL value
+	return iterated.skip(1).onClose(session::stopInput);    // skip the initial NULL value
     }
     
     public List<DMPTable> parseFile(InputStream in, List<String> tableNames) throws IOException {
@@ -167,364 +162,667 @@ public class DMPParser {
 	return parseFileStream(in, filter).toList();
     }
     
-    private boolean lastBytesEndOfInsertData(Queue<Integer> lastBytes) {
-	// the last bytes must be 0 - 0 - ff - ff
-	if (lastBytes.size() < 4) return false;
-	Integer[] bytes = (Integer[]) lastBytes.toArray(new Integer[4]);
-	int i = 0;
-	// System.out.println("LastBytes: " + lastBytes.stream().map(x -> String.format("%02x", x)).collect(Collectors.joining(", ")));
-	if (exportVersion.getMajor() > 7) {
-	    // new versions, but starting when?
-	    return bytes[i] == 0 && bytes[i+1] == 0 && (bytes[i+2] & 0xff) == 0xff && (bytes[i+3] & 0xff) == 0xff;
-	} else {
-	    // older versions at least v7 seems to indicate with 0xff 0xff
-	    // return bytes[i] == 0 && bytes[i+1] == 0x80 && (bytes[i+2] & 0xff) == 0xff && (bytes[i+3] & 0xff) == 0xff;
-	    return (bytes[i+2] & 0xff) == 0xff && (bytes[i+3] & 0xff) == 0xff;
+    public DMPParseResult parseRows(InputStream in, DMPRowHandler handler) throws IOException {
+	return parseRows(in, x -> true, handler);
+    }
+
+    public DMPParseResult parseRows(InputStream in, List<String> tableNames, DMPRowHandler handler) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseRows(in, x -> tableNamesLower.contains(x.toLowerCase()), handler);
+    }
+
+    /**
+     * Incremental parsing, the rows are handed to the handler while reading, without collecting whole tables.
+     * The memory needed is bound by the largest row, not by the table size.
+     * @return the export header and metrics of the parse
+     */
+    public DMPParseResult parseRows(InputStream in, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	if (in == null) {
+	    throw new IllegalArgumentException("The input stream must not be NULL");
+	}
+	if (handler == null) {
+	    throw new IllegalArgumentException("The row handler must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try {
+	    return parseRows(session, session.createScanner(in), filter, handler);
+	} finally {
+	    session.stopInput();
 	}
     }
-    
-    private void parseLine(byte[] bytes, Function<String, Boolean> filter) {
-	// test what it is
-	if (afterInsertStatement) {
-	    // should be data here
-	    currentTableObj.dataRows = parseDataRow(bytes);
-	}
-	afterInsertStatement = false;
-	String testString = new String(bytes);
-	
-	if (testString.startsWith("TABLE ")) {
-	    currentTable = testString.substring(7, testString.length()-1);
-	} else if (testString.startsWith("CREATE TABLE ")) {
-	    if (filter.apply(currentTable)) {
-		currentTableObj = new DMPTable();
-		tables.add(currentTableObj);
-		currentTableObj.tableName = currentTable;
-		currentTableObj.createTableSQL = testString;
-	    } else {
-		currentTable = null;
+
+    public List<DMPTable> parse(Path file) throws IOException {
+	return parse(file, x -> true);
+    }
+
+    public List<DMPTable> parse(Path file, List<String> tableNames) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parse(file, x -> tableNamesLower.contains(x.toLowerCase()));
+    }
+
+    /**
+     * Parse a dump file using memory mapped windows of the file instead of reading it through a stream.
+     */
+    public List<DMPTable> parse(Path file, Function<String, Boolean> filter) throws IOException {
+	List<DMPTable> ret = new ArrayList<>();
+	parseRows(file, filter, new DMPRowHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		table.dataRows = new ArrayList<>();
 	    }
-	} else if (testString.startsWith("INSERT INTO ")) {
-	    if (currentTable != null) {
-		afterInsertStatement = true;
-		Matcher m = patInsertStatement.matcher(testString);
-		if (m.find()) {
-		    String fieldsStr = m.group(2);
-		    String[] fieldss = fieldsStr.split(",");
-		    currentTableObj.fieldNames = Arrays.asList(fieldss).stream().map(x -> x.trim().replaceAll("\"", "")).toList();
-		}
+
+	    @Override
+	    public void onRow(DMPTable table, DMPRow row) {
+		table.dataRows.add(row);
 	    }
-	} else if (testString.contains("EXPORT:V")){
-	    Matcher m = patExportVersion.matcher(testString);
-	    if (m.find()) {
-		exportVersion.setMajor(Integer.parseInt(m.group(1)));
-		exportVersion.setMinor(Integer.parseInt(m.group(2)));
-		exportVersion.setPatch(Integer.parseInt(m.group(3)));
+
+	    @Override
+	    public void onTableEnd(DMPTable table) {
+		ret.add(table);
 	    }
-	} else if (testString.startsWith("U") && exportUser == null) {
-	    exportUser = testString.substring(1);
-	} else if (testString.startsWith("R") && exportTablespace == null) {
-	    exportTablespace = testString.substring(1);
+	});
+	return ret;
+    }
+
+    public DMPParseResult parseRows(Path file, DMPRowHandler handler) throws IOException {
+	return parseRows(file, x -> true, handler);
+    }
+
+    public DMPParseResult parseRows(Path file, List<String> tableNames, DMPRowHandler handler) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseRows(file, x -> tableNamesLower.contains(x.toLowerCase()), handler);
+    }
+
+    public DMPParseResult parseRows(Path file, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	if (handler == null) {
+	    throw new IllegalArgumentException("The row handler must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    return parseRows(session, new DMPMappedScanner(channel, session.config.getMappedWindowSize()), filter, handler);
 	}
     }
-    
-    private List<DMPRow> parseDataRow(byte[] bytes) {
-	List<DMPRow> rows = new ArrayList<>();
-	DMPRow currentRow = null;
-	DMPItem cur = null;
-
-	int takeByteCount = 0;
-	boolean includeNextBatch = false;
-	int nullCount = 0;
-	boolean hasStarted = false;
-	if (debugHexDumpToStdout) {
-	    String bytes_hex =  byteArrayToString(bytes);
-	    System.out.println(bytes_hex);
-	}
-	if (bytes.length == 0) return rows;
-	int fieldCount = (bytes[0] & 0xff);
-	int skipBytes = fieldCount*4;
-	// try to find the start of data, should be after the last position with 4 null bytes in one row
-	// there will truly be a better approach...
-	for (int i=bytes.length-1;i>0;i--) {
-	    if (i > 4 && bytes[i] == 0 && bytes[i-1] == 0 && bytes[i-2] == 0 && bytes[i-3] == 0) {
-		skipBytes = i-4;
-		break;
+
+    public DMPParseResult parseBatches(InputStream in, int batchSize, DMPBatchHandler handler) throws IOException {
+	return parseBatches(in, x -> true, batchSize, handler);
+    }
+
+    public DMPParseResult parseBatches(InputStream in, List<String> tableNames, int batchSize, DMPBatchHandler handler) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseBatches(in, x -> tableNamesLower.contains(x.toLowerCase()), batchSize, handler);
+    }
+
+    /**
+     * Columnar parsing, the rows are decoded directly into primitive arrays per column and handed to the handler
+     * in batches of batchSize rows, without creating row or item objects.
+     */
+    public DMPParseResult parseBatches(InputStream in, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	if (in == null) {
+	    throw new IllegalArgumentException("The input stream must not be NULL");
+	}
+	checkBatchArguments(batchSize, handler);
+	DMPParseSession session = newSession();
+	try {
+	    return parseBatches(session, session.createScanner(in), filter, batchSize, handler);
+	} finally {
+	    session.stopInput();
+	}
+    }
+
+    /**
+     * Continue a parse from a checkpoint, the rows after the checkpoint are delivered to the handler.
+     * The filter should be the one of the parse which created the checkpoint. If the checkpoint is in the data
+     * of a table, onTableStart() is called again for this table.
+     */
+    public DMPParseResult parseRows(Path file, DMPCheckpoint checkpoint, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	if (handler == null) {
+	    throw new IllegalArgumentException("The row handler must not be NULL");
+	}
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	DMPParseSession session = newResumedSession(file, checkpoint);
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    DMPScanner scanner = new DMPMappedScanner(channel, session.config.getMappedWindowSize());
+	    scanner.skip(checkpoint.offset);
+	    session.resumeRows(scanner, checkpoint, filter1, handler);
+	    return parseRows(session, scanner, filter1, handler);
+	}
+    }
+
+    /**
+     * Continue a parse from a checkpoint of parseBatches(), the batches after the checkpoint are delivered to the handler.
+     */
+    public DMPParseResult parseBatches(Path file, DMPCheckpoint checkpoint, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	checkBatchArguments(batchSize, handler);
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	DMPParseSession session = newResumedSession(file, checkpoint);
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    DMPScanner scanner = new DMPMappedScanner(channel, session.config.getMappedWindowSize());
+	    scanner.skip(checkpoint.offset);
+	    session.resumeBatches(scanner, checkpoint, filter1, batchSize, handler);
+	    return parseBatches(session, scanner, filter1, batchSize, handler);
+	}
+    }
+
+    private DMPParseSession newResumedSession(Path file, DMPCheckpoint checkpoint) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	if (checkpoint == null) {
+	    throw new IllegalArgumentException("The checkpoint must not be NULL");
+	}
+	if (checkpoint.offset < 0 || checkpoint.offset > Files.size(file)) {
+	    throw new IllegalArgumentException("The checkpoint is outside of the file");
+	}
+	DMPParseSession ret = newSession();
+	ret.setHeader(checkpoint);
+	return ret;
+    }
+
+    public DMPParseResult parseBatches(Path file, int batchSize, DMPBatchHandler handler) throws IOException {
+	return parseBatches(file, x -> true, batchSize, handler);
+    }
+
+    public DMPParseResult parseBatches(Path file, List<String> tableNames, int batchSize, DMPBatchHandler handler) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseBatches(file, x -> tableNamesLower.contains(x.toLowerCase()), batchSize, handler);
+    }
+
+    public DMPParseResult parseBatches(Path file, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	checkBatchArguments(batchSize, handler);
+	DMPParseSession session = newSession();
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    return parseBatches(session, new DMPMappedScanner(channel, session.config.getMappedWindowSize()), filter, batchSize, handler);
+	}
+    }
+
+    private static void checkBatchArguments(int batchSize, DMPBatchHandler handler) {
+	if (batchSize <= 0) {
+	    throw new IllegalArgumentException("The batch size must be positive");
+	}
+	if (handler == null) {
+	    throw new IllegalArgumentException("The batch handler must not be NULL");
+	}
+    }
+
+    /**
+     * Scan the file once and record the position of every table, the table data is skipped without decoding.
+     */
+    public DMPIndex createIndex(Path file) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	DMPIndex index = new DMPIndex();
+	index.fileSize = Files.size(file);
+	index.lastModified = Files.getLastModifiedTime(file).toMillis();
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    index.tables.addAll(scanTables(session, new DMPMappedScanner(channel, session.config.getMappedWindowSize()), DMPIndexEntry::new));
+	}
+	index.exportVersion.setMajor(session.exportVersion.getMajor());
+	index.exportVersion.setMinor(session.exportVersion.getMinor());
+	index.exportVersion.setPatch(session.exportVersion.getPatch());
+	index.exportUser = session.result.getExportUser();
+	index.exportTablespace = session.result.getExportTablespace();
+	index.exportCharsetId = session.result.getExportCharsetId();
+	return index;
+    }
+
+    /**
+     * Read the export header, the DDL and the columns of every table and count the rows and bytes of the table data.
+     * It is the scan of createIndex(), only the record headers and the length prefixes of the values are read, no row is decoded.
+     */
+    public DMPCatalog catalog(Path file) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    return catalog(session, new DMPMappedScanner(channel, session.config.getMappedWindowSize()));
+	}
+    }
+
+    public DMPCatalog catalog(InputStream in) throws IOException {
+	if (in == null) {
+	    throw new IllegalArgumentException("The input stream must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try {
+	    return catalog(session, session.createScanner(in));
+	} finally {
+	    session.stopInput();
+	}
+    }
+
+    private DMPCatalog catalog(DMPParseSession session, DMPScanner scanner) throws IOException {
+	DMPCatalog catalog = new DMPCatalog();
+	catalog.tables.addAll(scanTables(session, scanner, DMPCatalogTable::new));
+	catalog.size = scanner.getPosition();
+	catalog.exportVersion.setMajor(session.exportVersion.getMajor());
+	catalog.exportVersion.setMinor(session.exportVersion.getMinor());
+	catalog.exportVersion.setPatch(session.exportVersion.getPatch());
+	catalog.exportUser = session.result.getExportUser();
+	catalog.exportTablespace = session.result.getExportTablespace();
+	catalog.exportCharsetId = session.result.getExportCharsetId();
+	catalog.exportCharset = session.result.getExportCharset();
+	return catalog;
+    }
+
+    /**
+     * Walk the records and skip the data segments, one entry per table. Catalog entries also get the DDL and the column definitions.
+     */
+    private <T extends DMPIndexEntry> List<T> scanTables(DMPParseSession session, DMPScanner scanner, Supplier<T> entryFactory) throws IOException {
+	List<T> ret = new ArrayList<>();
+	long ddlOffset = -1;
+	boolean more = true;
+	while (more) {
+	    more = scanner.nextLine();
+	    session.parseLine(scanner, x -> true);
+	    if (DMPParseSession.startsWith(scanner.getBuffer(), scanner.getRecordStart(), scanner.getRecordLength(), CREATE_TABLE)) {
+		ddlOffset = scanner.getRecordPosition();
+	    }
+	    if (session.afterInsertStatement) {
+		session.afterInsertStatement = false;
+		T entry = entryFactory.get();
+		entry.tableName = session.currentTableObj.tableName;
+		entry.ddlOffset = ddlOffset;
+		entry.insertOffset = scanner.getRecordPosition();
+		entry.insertStatement = session.recordString(scanner);
+		entry.fieldNames = session.currentTableObj.fieldNames;
+		entry.dataStart = scanner.getPosition();
+		DMPRowDecoder decoder = new DMPRowDecoder(session.exportVersion, session.config.isDebugToStdout(), session.config.isDebugHexDumpToStdout());
+		entry.rowCount = decoder.skip(scanner);
+		entry.columnTypes = decoder.getColumnTypes();
+		entry.dataEnd = scanner.getPosition();
+		if (entry instanceof DMPCatalogTable table) {
+		    table.createTableSQL = session.currentTableObj.createTableSQL;
+		    table.columnTypeCodes = decoder.getColumnTypeCodes();
+		    table.columnLengths = decoder.getColumnLengths();
+		}
+		ret.add(entry);
 	    }
 	}
-	if (debugToStdout) {
-	    System.out.println("Skipping " + skipBytes + " bytes");
+	return ret;
+    }
+
+    public List<String> extract(Path file, Path target, List<String> tableNames) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return extract(file, target, x -> tableNamesLower.contains(x.toLowerCase()));
+    }
+
+    /**
+     * Write a new dump file with only the selected tables. The header, the sections of the selected tables
+     * (DDL, data, indexes, constraints and statistics) and everything outside of table sections are copied
+     * byte by byte with FileChannel.transferTo, the rows are never decoded.
+     * @return the names of the copied tables
+     */
+    public List<String> extract(Path file, Path target, Function<String, Boolean> filter) throws IOException {
+	if (file == null || target == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
 	}
-	
-	DMPItemType[] columnTypes = new DMPItemType[fieldCount];
-	int addSkip = 0;
-	for (int i=0;i<fieldCount;i++) {
-	    int fc = (bytes[i*4+2 + addSkip] & 0xff);
-	    // TODO: add more data types
-	    columnTypes[i] = switch (fc) {
-		case 1 -> DMPItemType.STRING;
-		case 2 -> DMPItemType.NUMBER;
-		case 12 -> DMPItemType.DATE;
-		case 180 -> DMPItemType.TIMESTAMP;
-		case 113-> DMPItemType.BLOB;
-		default -> null;
-	    };
-	    if (columnTypes[i] != null) {
-		if (exportVersion.getMajor() > 7) {
-		    // at least in version 10 we need to add 4, in version 7 not; TODO: when was this introduced?
-		    switch (columnTypes[i]) {
-			case STRING -> addSkip+=4;	// string has additional settings, guess the length which are ignoring currently
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	DMPParseSession session = newSession();
+	List<String> ret = new ArrayList<>();
+	// ranges of the source file to copy, start and end
+	List<long[]> ranges = new ArrayList<>();
+	try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+	    DMPScanner scanner = new DMPMappedScanner(in, session.config.getMappedWindowSize());
+	    long copyStart = 0;
+	    boolean copy = true;
+	    boolean more = true;
+	    while (more) {
+		more = scanner.nextLine();
+		long lineStart = scanner.getRecordPosition();
+		ByteBuffer buf = scanner.getBuffer();
+		int start = scanner.getRecordStart();
+		int length = scanner.getRecordLength();
+		// a table section lasts until the next table, the end of the tables or the end of the export
+		Boolean copySection = null;
+		if (DMPParseSession.startsWith(buf, start, length, TABLE_QUOTE) && length > 8) {
+		    String line = session.recordString(scanner);
+		    String name = line.substring(7, line.length() - 1);
+		    copySection = filter1.apply(name);
+		    if (copySection && !ret.contains(name)) ret.add(name);
+		} else if ((length == ENDTABLE.length && DMPParseSession.startsWith(buf, start, length, ENDTABLE))
+			|| (length == EXIT.length && DMPParseSession.startsWith(buf, start, length, EXIT))) {
+		    copySection = true;
+		}
+		if (copySection != null && copySection != copy) {
+		    if (copy) {
+			ranges.add(new long[] {copyStart, lineStart});
+		    } else {
+			copyStart = lineStart;
 		    }
+		    copy = copySection;
 		}
-	    } else {
-		if (debugToStdout) {
-		    System.out.println("Missing type for code " + fc);
+		session.parseLine(scanner, x -> true);
+		if (session.afterInsertStatement || session.skipInsertStatement) {
+		    // the data is copied or dropped with its section
+		    session.afterInsertStatement = false;
+		    session.skipInsertStatement = false;
+		    new DMPRowDecoder(session.exportVersion, false, false).skip(scanner);
+		}
+	    }
+	    if (copy) ranges.add(new long[] {copyStart, in.size()});
+	    try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+		for (long[] range : ranges) {
+		    long pos = range[0];
+		    while (pos < range[1]) {
+			pos += in.transferTo(pos, range[1] - pos, out);
+		    }
 		}
 	    }
 	}
-	
-	if (exportVersion.getMajor() < 8) {
-	    // at least in version 7 we start directly after the column definition
-	    hasStarted = true;
-	    currentRow = new DMPRow();
-	    rows.add(currentRow);
-	    skipBytes++;
+	return ret;
+    }
+
+    /**
+     * Load the index from the sidecar file next to the dump file, if it is missing or outdated
+     * the index is created and the sidecar file is written.
+     */
+    public DMPIndex openIndex(Path file) throws IOException {
+	Path indexFile = DMPIndex.getIndexFile(file);
+	if (Files.exists(indexFile)) {
+	    try {
+		DMPIndex index = DMPIndex.read(indexFile);
+		if (index.isValidFor(file)) return index;
+	    } catch (IOException ex) {
+		// unreadable, create a new one
+	    }
 	}
-	
-	// skip field defs
-	for (int i=skipBytes;i<bytes.length;i++) {
-	    if (bytes[i] == 0) {
-		nullCount++;
-	    } else {
-		nullCount = 0;
+	DMPIndex index = createIndex(file);
+	index.write(indexFile);
+	return index;
+    }
+
+    public List<DMPTable> parse(Path file, DMPIndex index, List<String> tableNames) throws IOException {
+	List<DMPTable> ret = new ArrayList<>();
+	parseRows(file, index, tableNames, new DMPRowHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		table.dataRows = new ArrayList<>();
+	    }
+
+	    @Override
+	    public void onRow(DMPTable table, DMPRow row) {
+		table.dataRows.add(row);
+	    }
+
+	    @Override
+	    public void onTableEnd(DMPTable table) {
+		ret.add(table);
 	    }
-	    if (nullCount == 4) { 
-		if (i > 0 && bytes.length > i+4 && bytes[i] == 0 && bytes[i+1] == 0 && (bytes[i+2] & 0xff) == 0xff && (bytes[i+3] & 0xff) == 0xff && (bytes[i+4] & 0xff) == 0x0a) {
-		    // zero rows, so no data at all
-		    break;
-		} else {
-		    hasStarted = true;
+	});
+	return ret;
+    }
+
+    /**
+     * Decode only the given tables, the positions are taken from the index so the rest of the file is not read at all.
+     */
+    public DMPParseResult parseRows(Path file, DMPIndex index, List<String> tableNames, DMPRowHandler handler) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	if (index == null || !index.isValidFor(file)) {
+	    throw new IllegalArgumentException("The index does not match the file");
+	}
+	if (handler == null) {
+	    throw new IllegalArgumentException("The row handler must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	session.setHeader(index);
+	// the tables are read by their offsets, not in file order
+	session.disableCheckpoints();
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	DMPParseMetrics metrics = session.startMetrics();
+	long bytes = 0;
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    for (DMPIndexEntry entry : index.tables) {
+		if (!tableNamesLower.contains(entry.tableName.toLowerCase())) continue;
+		DMPTableMetrics tableMetrics = session.startTable(entry.tableName);
+		DMPScanner scanner = new DMPMappedScanner(channel, session.config.getMappedWindowSize());
+		DMPTable table = new DMPTable();
+		table.tableName = entry.tableName;
+		table.fieldNames = entry.fieldNames;
+		if (entry.ddlOffset >= 0) {
+		    scanner.skip(entry.ddlOffset);
+		    scanner.nextLine();
+		    table.createTableSQL = session.recordString(scanner);
 		}
+		scanner.skip(entry.dataStart - scanner.getPosition());
+		session.createDecoder(table).decode(scanner, table, handler);
+		bytes += entry.dataEnd - entry.dataStart;
+		session.endTable(metrics, tableMetrics);
 	    }
-	    else if (hasStarted) {
-		if (bytes.length > (i+1) && ((bytes[i] & 0xff) == 0xfe) && (bytes[i+1] & 0xff) == 0xff) {
-		    // NULL value, seems to be coded as fe - ff
-		    cur = new DMPItem();
-		    currentRow.items.add(cur);
-		    cur.itemType = DMPItemType.NULL;
-		    cur.noOfbytes = 2;
-		    cur.bytes.add(bytes[i]);
-		    cur.bytes.add(bytes[i+1]);
-		    i++;
-		} else if (i > 0 && bytes.length > i+4 && bytes[i] == 0 && bytes[i+1] == 0 && (bytes[i+2] & 0xff) == 0xff && (bytes[i+3] & 0xff) == 0xff) {
-		    // the end
-		    hasStarted = false;
-		} else if (i > 0 && bytes[i] == 0 && bytes[i - 1] == 0) {
-		    // we have a new row, seems to be marked with double 0 bytes
-		    currentRow = new DMPRow();
-		    rows.add(currentRow);
-//		    cur = new DMPItem();
-//		    currentRow.items.add(cur);
-		} else if (takeByteCount > 0) {
-		    cur.bytes.add(bytes[i]);
-		    takeByteCount--;
-		    if (takeByteCount == 0) {
-			// end
-			if (exportVersion.getMajor() < 8 && currentRow.items.size() == fieldCount) {
-			    // at least in version 7 we start directly with new row, no double 0 as spacer
-			    currentRow = new DMPRow();
-			    rows.add(currentRow);
-			}
-		    }
-		} else if (bytes.length > (i+1) && ((bytes[i] & 0xff) > 0) && (bytes[i+1] & 0xff) == 0) {
-		    // beginning of new column data, coded as number of bytes as first byte and 0 byte
-		    // TODO: true for large data like BLOB? maybe more bytes for length?
-		    takeByteCount = (bytes[i] & 0xff);
-		    if (includeNextBatch) {
-			cur.noOfbytes += takeByteCount;
-			includeNextBatch = false;
-		    } else {
-			cur = new DMPItem();
-			currentRow.items.add(cur);
-			cur.noOfbytes = takeByteCount;
-			// System.out.println("takeByteCount = " + takeByteCount);
-		    }
-		    i++;
-		} else if (takeByteCount == 0 && bytes.length > (i+1) && ((bytes[i] & 0xff) > 0) && (bytes[i+1] & 0xff) == 0x80) {
-		    // beginning of new column data, coded as number of bytes as first byte and 0 byte
-		    // special case here, include bytes of next part???
-		    // TODO: true for large data like BLOB? maybe more bytes for length?
-		    cur = new DMPItem();
-		    currentRow.items.add(cur);
-
-		    takeByteCount = (bytes[i] & 0xff);
-		    cur.noOfbytes = takeByteCount;
-		    
-		    includeNextBatch = true;
-		    // System.out.println("takeByteCount = " + takeByteCount);
-		    i++;
-		} else if (bytes[i] == 0) {
-//		    cur = new DMPItem();
-//		    currentRow.items.add(cur);
-		} else {
-		    if (cur != null && cur.bytes.size() < cur.noOfbytes) {
-			cur.bytes.add(bytes[i]);
+	}
+	session.endMetrics(metrics, bytes);
+	return session.result;
+    }
+
+    public DMPParseResult parseParallel(Path file, List<String> tableNames, Consumer<DMPTable> consumer) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseParallel(file, x -> tableNamesLower.contains(x.toLowerCase()), consumer);
+    }
+
+    /**
+     * Decode the tables of a dump file on several threads. One thread scans the file for the table data,
+     * which is then decoded by the worker threads, see setParallelism() and setExecutor().
+     * The consumer is called on the calling thread, in file order or in completion order (see setOrderedOutput()).
+     */
+    public DMPParseResult parseParallel(Path file, Function<String, Boolean> filter, Consumer<DMPTable> consumer) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+	    return parseParallel(session, new DMPMappedScanner(channel, session.config.getMappedWindowSize()), channel, filter, consumer);
+	}
+    }
+
+    public DMPParseResult parseParallel(InputStream in, List<String> tableNames, Consumer<DMPTable> consumer) throws IOException {
+	List<String> tableNamesLower = tableNames.stream().map(x -> x.toLowerCase()).toList();
+	return parseParallel(in, x -> tableNamesLower.contains(x.toLowerCase()), consumer);
+    }
+
+    /**
+     * Same as parseParallel() for files, but the data of each table has to be read
+     * into memory before it can be decoded, so a single table must not be larger than 2 GB.
+     * The same applies to the heap: the table which is read next is held in addition to the
+     * maxInFlightBytes of the tables in the workers, so up to maxInFlightBytes plus the largest
+     * table must fit into memory.
+     */
+    public DMPParseResult parseParallel(InputStream in, Function<String, Boolean> filter, Consumer<DMPTable> consumer) throws IOException {
+	if (in == null) {
+	    throw new IllegalArgumentException("The input stream must not be NULL");
+	}
+	DMPParseSession session = newSession();
+	try {
+	    return parseParallel(session, session.createScanner(in), null, filter, consumer);
+	} finally {
+	    session.stopInput();
+	}
+    }
+
+    private DMPParseResult parseParallel(DMPParseSession session, DMPScanner scanner, FileChannel channel, Function<String, Boolean> filter, Consumer<DMPTable> consumer) throws IOException {
+	if (consumer == null) {
+	    throw new IllegalArgumentException("The consumer must not be NULL");
+	}
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	final DMPParserConfig c = session.config;
+	final DMPInFlightLimit limit = new DMPInFlightLimit(c.getMaxInFlightBytes());
+	final BlockingQueue<DMPTableTask> queue = new LinkedBlockingQueue<>();
+	final DMPTableTask end = new DMPTableTask(() -> null, 0, null);
+	final AtomicInteger submitted = new AtomicInteger();
+	final AtomicReference<Throwable> scanError = new AtomicReference<>();
+	final ExecutorService pool = c.getExecutor() != null ? c.getExecutor() : Executors.newFixedThreadPool(c.getParallelism());
+	final boolean ordered = c.isOrderedOutput();
+	final DMPParseMetrics metrics = session.startMetrics();
+	session.disableCheckpoints();
+	Thread scanThread = new Thread(() -> {
+	    try {
+		DMPTable next;
+		while (!Thread.currentThread().isInterrupted() && (next = session.nextTable(scanner, filter1)) != null) {
+		    DMPTable table = next;
+		    long dataStart = scanner.getPosition();
+		    DMPRowDecoder decoder = session.createDecoder(table);
+		    DMPTableMetrics decoded = session.getTableMetrics();
+		    Callable<DMPScanner> source;
+		    if (channel != null) {
+			// only find the end, the worker maps the data itself
+			new DMPRowDecoder(session.exportVersion, false, false).skip(scanner);
+			source = () -> {
+			    DMPScanner s = new DMPMappedScanner(channel, c.getMappedWindowSize());
+			    s.skip(dataStart);
+			    return s;
+			};
 		    } else {
-			// TODO: when do we reach here?
+			// keep the whole data in the buffer and hand the buffer over to the worker
+			limit.awaitRoom();
+			new DMPRowDecoder(session.exportVersion, false, false).scan(scanner, true, null);
+			ByteBuffer data = scanner.detach();
+			source = () -> new DMPScanner(data);
 		    }
+		    long length = scanner.getPosition() - dataStart;
+		    limit.acquire(length);
+		    DMPTableTask task = new DMPTableTask(() -> {
+			table.dataRows = new ArrayList<>();
+			decoder.decode(source.call(), table, (t, row) -> t.dataRows.add(row));
+			session.endTable(metrics, decoded);
+			return table;
+		    }, length, ordered ? null : queue);
+		    submitted.incrementAndGet();
+		    if (ordered) queue.add(task);
+		    pool.execute(task);
 		}
+	    } catch (Throwable ex) {
+		scanError.set(ex);
 	    }
+	    queue.add(end);
+	}, "DMPParser-scanner");
+	scanThread.setDaemon(true);
+	scanThread.start();
+	try {
+	    int delivered = 0;
+	    boolean scanned = false;
+	    while (!scanned || delivered < submitted.get()) {
+		DMPTableTask task = queue.take();
+		if (task == end) {
+		    scanned = true;
+		    if (scanError.get() != null) break;
+		    continue;
+		}
+		DMPTable table;
+		try {
+		    table = task.get();
+		} catch (ExecutionException ex) {
+		    if (ex.getCause() instanceof IOException ioe) throw ioe;
+		    if (ex.getCause() instanceof RuntimeException re) throw re;
+		    throw new RuntimeException(ex.getCause());
+		}
+		consumer.accept(table);
+		limit.release(task.length);
+		delivered++;
+	    }
+	    Throwable ex = scanError.get();
+	    if (ex instanceof IOException ioe) throw ioe;
+	    if (ex instanceof RuntimeException re) throw re;
+	    if (ex != null) throw new RuntimeException(ex);
+	    session.endMetrics(metrics, scanner.getPosition());
+	    return session.result;
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Parsing interrupted", ex);
+	} finally {
+	    scanThread.interrupt();
+	    if (pool != c.getExecutor()) pool.shutdownNow();
 	}
-	// filter empty rows, could be because of old format
-	rows = rows.stream().filter(x -> !x.items.isEmpty()).toList();
-	int row = 0;
-	for (com.jansensystems.oracledmpparser.DMPRow r : rows) {
-	    int col = 0;
-	    for (com.jansensystems.oracledmpparser.DMPItem l : r.items) {
-		// fix possible additonal bytes at the end, TODO: why?
-		l.bytes = l.bytes.subList(0, Math.min(l.bytes.size(), l.noOfbytes));
-		
-		if (debugToStdout) System.out.print(String.format("%02x", l.noOfbytes) + ", " + l.bytes.stream().map(x -> String.format("%02x", x)).collect(Collectors.joining(", ")));
-		if (debugToStdout) System.out.print(" -> ");
-		if (l.itemType == DMPItemType.NULL) {
-		    if (debugToStdout) System.out.print("NULL");
-		// } else if (l.bytes.size() > 1 && ((l.bytes.get(0) & 0xff) >= 0xc0 && (l.bytes.get(0) & 0xff) <= 0xcf)) {
-		} else if (columnTypes[col] == DMPItemType.NUMBER && l.bytes.size() > 0 && ((l.bytes.get(0) & 0xff) == 0x80)) {
-		    // a value of 0 seems to be coded as 0x80
-		    if (debugToStdout) System.out.print("0");
-		    l.itemType = DMPItemType.NUMBER;
-		    l.numberValue = 0d;
-		} else if (columnTypes[col] == DMPItemType.NUMBER) {
-		    // number
-		    String v = "";
-		    l.itemType = DMPItemType.NUMBER;
-		    // negative numbers seems to have a 0x66 at the end
-		    // or a lower start than positive numbers
-		    if (l.bytes.size() > 1 && ((l.bytes.get(l.bytes.size()-1) & 0xff) == 0x66 || (l.bytes.get(0) & 0xff) < 0xa0)) { // TODO: seems like a lower first byte value also indicates negative values? Don't know what is the max/min value
-			// negative numbers
-			// remove first byte and last byte when it is 0x66
-			var sl = l.bytes.subList(1, l.bytes.size()-1);
-			if ((l.bytes.get(l.bytes.size()-1) & 0xff) != 0x66) {
-			    sl = l.bytes.subList(1, l.bytes.size());
-			}
-			// intParts are number of bytes before decimal point, can also be negative
-			// 0x3f seems to be 0 bytes
-			int intPart = -1 * (int)((l.bytes.get(0) & 0xff) - 0x3f);
-			if (intPart > 0) {
-			    // add dummy values to address decimal point shifting
-			    while (sl.size() < intPart) sl.add(Byte.valueOf((byte)0x65));  // TODO: correct?
-			    // first, the integer part
-			    var ip = sl.subList(0, intPart);
-			    // digits are coded as -1 * value + 101, so reverse it
-			    v = "-" + ip.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-
-			    // then decimal part
-			    if (sl.size() > intPart) {
-				var dp = sl.subList(intPart, sl.size());
-				v+= "." + dp.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			    }
-
-			} else {
-			    v = "-0." + ("00".repeat(-1 * intPart)) + sl.stream().map(x -> -1*(x - 101)).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			}
-		    } else {
-			// intParts are number of bytes before decimal point, can also be negative
-			// 0xc0 seems to be 0 bytes
-			int intPart = (l.bytes.get(0) & 0xff) - 0xc0;
-			// first byte is the number of bytes before decimal point
-			var sl = l.bytes.subList(1, l.bytes.size());
-			if (intPart > 0) {
-			    // add dummy values to address decimal point shifting
-			    while (sl.size() < intPart) sl.add(Byte.valueOf((byte)1));  // TODO: correct?
-			    // first, the integer part
-			    var ip = sl.subList(0, intPart);
-			    v = ip.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-
-			    // then decimal part
-			    if (sl.size() > intPart) {
-				var dp = sl.subList(intPart, sl.size());
-				v+= "." + dp.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			    }
-
-			} else {
-			    v = "0." + ("00".repeat(-1 * intPart)) + sl.stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			}
-		    }
-		    l.stringValue = v;
-		    try {
-			if (!v.isBlank()) {
-			    l.numberValue = Double.valueOf(v);
-			}
-		    } catch (Exception ex) {
-			ex.printStackTrace();
-		    }
-		    if (debugToStdout) System.out.print(v);
-		} else if (columnTypes[col] == DMPItemType.STRING) {
-		    l.itemType = DMPItemType.STRING;
-		    // string?
-		    if (l.bytes.size() > 0) {
-			// convert byte array to string
-			var sl = l.bytes.subList(0, Math.min(l.bytes.size(), l.noOfbytes));
-			var b1 = new byte[sl.size()];
-			for (int i = 0;i<sl.size();i++) b1[i] = sl.get(i);
-			String v = new String(b1);
-			if (debugToStdout) System.out.print(v);
-			l.stringValue = v;
-		    }
-		} else if (columnTypes[col] == DMPItemType.DATE) {
-		    l.itemType = DMPItemType.DATE;
-		    if (l.noOfbytes == 7) { // should always be 7 bytes
-			String v = "";
-			// first 2 bytes are year coded as 2-digit byte + 100 -> 120 and 123 => 2023
-			v = l.bytes.subList(0, 2).stream().map(x -> x - 100).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			// next two bytes are directly coded month and day
-			v += "-" + l.bytes.subList(2, 4).stream().map(x -> x).map(x -> String.format("%02d", x)).collect(Collectors.joining("-"));
-			// last, hours, minutes and secods are again coded as number + 1
-			v += " " + l.bytes.subList(4, 7).stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining(":"));
-			
-			l.stringValue = v;
-			try {
-			    l.dateValue = dateParser.parse(v);
-			} catch (ParseException ex) {
-			    if (debugToStdout) ex.printStackTrace();
-			}
-			if (debugToStdout) System.out.print(v);
-		    } else {
-			// should always be 7 bytes
-		    }
-		} else if (columnTypes[col] == DMPItemType.TIMESTAMP) {
-		    l.itemType = DMPItemType.TIMESTAMP;
-		    if (l.noOfbytes == 7 || l.noOfbytes == 11) {
-			String v = "";
-			// first 2 bytes are year coded as 2-digit byte + 100 -> 120 and 123 => 2023
-			v = l.bytes.subList(0, 2).stream().map(x -> x - 100).map(x -> String.format("%02d", x)).collect(Collectors.joining());
-			// next two bytes are directly coded month and day
-			v += "-" + l.bytes.subList(2, 4).stream().map(x -> x).map(x -> String.format("%02d", x)).collect(Collectors.joining("-"));
-			// last, hours, minutes and secods are again coded as number + 1
-			v += " " + l.bytes.subList(4, 7).stream().map(x -> x-1).map(x -> String.format("%02d", x)).collect(Collectors.joining(":"));
-			
-			if (l.noOfbytes == 11) {
-			    // last bytes are directly integer coded fraction of a second
-			    ByteBuffer bb = ByteBuffer.wrap(getByteSubArray(l.bytes, 7, 4));
-			    int bv = bb.getInt();
-			    v+="." + String.format("%09d", bv);	// TODO: can be less than 9 digits configured
-			}
-			
-			l.stringValue = v;
-			l.timestampValue = Timestamp.valueOf(v);
-			if (debugToStdout) System.out.print(v);
-		    } else {
-			// should always be 7 bytes
-		    }
+    }
+
+    /**
+     * Same as streamRows() with an index, which is taken from the sidecar file, see openIndex().
+     */
+    public Stream<DMPRow> streamRows(Path file, String tableName) throws IOException {
+	return streamRows(file, openIndex(file), tableName);
+    }
+
+    /**
+     * Rows of a single table as stream which can be decoded in parallel. The data is split into chunks of
+     * about getRowChunkSize() bytes on row boundaries, with parallel() the chunks are decoded concurrently
+     * and the rows still keep their order. The stream must be closed to release the file.
+     */
+    public Stream<DMPRow> streamRows(Path file, DMPIndex index, String tableName) throws IOException {
+	if (file == null) {
+	    throw new IllegalArgumentException("The file must not be NULL");
+	}
+	if (index == null || !index.isValidFor(file)) {
+	    throw new IllegalArgumentException("The index does not match the file");
+	}
+	DMPIndexEntry entry = index.getTable(tableName);
+	if (entry == null) {
+	    throw new IllegalArgumentException("Table " + tableName + " not found");
+	}
+	DMPExportVersion version = new DMPExportVersion();
+	version.setMajor(index.exportVersion.getMajor());
+	version.setMinor(index.exportVersion.getMinor());
+	version.setPatch(index.exportVersion.getPatch());
+	DMPParserConfig c = config;
+	DMPCharset charset = c.getCharset() != null ? DMPCharset.of(c.getCharset()) : DMPCharset.forOracleId(index.exportCharsetId);
+	FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+	try {
+	    // walk the length prefixes once to find the chunk boundaries
+	    DMPScanner scanner = new DMPMappedScanner(channel, c.getMappedWindowSize());
+	    scanner.skip(entry.dataStart);
+	    DMPRowDecoder decoder = new DMPRowDecoder(version, false, false);
+	    List<Long> starts = new ArrayList<>();
+	    List<Long> rows = new ArrayList<>();
+	    long[] chunk = new long[] {-1, 0};	// start and rows of the current chunk
+	    decoder.scan(scanner, false, pos -> {
+		if (chunk[0] < 0) chunk[0] = decoder.getRowsStart();
+		chunk[1]++;
+		if (pos - chunk[0] >= c.getRowChunkSize()) {
+		    starts.add(chunk[0]);
+		    rows.add(chunk[1]);
+		    chunk[0] = pos;
+		    chunk[1] = 0;
 		}
-		if (debugToStdout) System.out.println();
-		col++;
+	    });
+	    if (chunk[1] > 0) {
+		starts.add(chunk[0]);
+		rows.add(chunk[1]);
 	    }
-	    row++;
-	    if (debugToStdout) System.out.println();
+	    DMPRowSpliterator spliterator = new DMPRowSpliterator(channel, c.getMappedWindowSize(), version, charset, decoder.getColumnTypes(),
+		    c.getProjection() != null ? c.getProjection().resolve(entry.fieldNames) : null, c.getRowFilter(), entry.fieldNames,
+		    starts.stream().mapToLong(x -> x).toArray(), rows.stream().mapToLong(x -> x).toArray(), 0, starts.size());
+	    return StreamSupport.stream(spliterator, false).onClose(() -> {
+		try {
+		    channel.close();
+		} catch (IOException ex) {
+		    throw new UncheckedIOException(ex);
+		}
+	    });
+	} catch (IOException | RuntimeException ex) {
+	    channel.close();
+	    throw ex;
 	}
-	if (debugToStdout) System.out.println();
-	return rows;
     }
+
+    private DMPParseResult parseBatches(DMPParseSession session, DMPScanner scanner, Function<String, Boolean> filter, int batchSize, DMPBatchHandler handler) throws IOException {
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	session.parseBatches(scanner, filter1, batchSize, handler);
+	return session.result;
+    }
+
+    private DMPParseResult parseRows(DMPParseSession session, DMPScanner scanner, Function<String, Boolean> filter, DMPRowHandler handler) throws IOException {
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	session.parseRows(scanner, filter1, handler);
+	return session.result;
+    }
+    
     
     public static byte[] getByteSubArray(List<Byte> bytes, int start, int count) {
 	byte[] ret = new byte[count];
@@ -542,31 +840,226 @@ public class DMPParser {
 	return sb.stream().collect(Collectors.joining(", "));
     }
 
-    public void setDebugToStdout(boolean debugToStdout) {
-	this.debugToStdout = debugToStdout;
+    public DMPParserConfig getConfig() {
+	return config;
+    }
+
+    /**
+     * Replace all settings, parses which are already running keep the settings they were started with.
+     * The setters of single settings replace the configuration as well, they are synchronized,
+     * so setters called by several threads at the same time do not undo each other's changes.
+     */
+    public synchronized void setConfig(DMPParserConfig config) {
+	if (config == null) {
+	    throw new IllegalArgumentException("The config must not be NULL");
+	}
+	this.config = config;
+    }
+
+    /**
+     * Print every value while decoding, only for debugging single rows, use setParseListener() for monitoring.
+     */
+    public synchronized void setDebugToStdout(boolean debugToStdout) {
+	config = config.withDebugToStdout(debugToStdout);
+    }
+
+    public synchronized void setDebugHexDumpToStdout(boolean debugHexDumpToStdout) {
+	config = config.withDebugHexDumpToStdout(debugHexDumpToStdout);
+    }
+
+    public int getMappedWindowSize() {
+	return config.getMappedWindowSize();
+    }
+
+    /**
+     * Size of the memory mapped windows used when parsing a file by path, default is 1 GB.
+     */
+    public synchronized void setMappedWindowSize(int mappedWindowSize) {
+	config = config.withMappedWindowSize(mappedWindowSize);
+    }
+
+    public int getParallelism() {
+	return config.getParallelism();
+    }
+
+    /**
+     * Number of worker threads for parseParallel(), if no executor is set.
+     */
+    public synchronized void setParallelism(int parallelism) {
+	config = config.withParallelism(parallelism);
+    }
+
+    public ExecutorService getExecutor() {
+	return config.getExecutor();
+    }
+
+    /**
+     * Executor for the workers of parseParallel(), for example a ForkJoinPool. It is not shut down by the parser.
+     * If null, a pool with getParallelism() threads is created for each parse.
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+	config = config.withExecutor(executor);
+    }
+
+    public long getMaxInFlightBytes() {
+	return config.getMaxInFlightBytes();
+    }
+
+    /**
+     * Maximum size of the table data which is decoded or waiting for the consumer in parseParallel().
+     * A single larger table is still decoded, but alone.
+     */
+    public synchronized void setMaxInFlightBytes(long maxInFlightBytes) {
+	config = config.withMaxInFlightBytes(maxInFlightBytes);
+    }
+
+    public boolean isOrderedOutput() {
+	return config.isOrderedOutput();
+    }
+
+    /**
+     * If true (default) parseParallel() delivers the tables in file order, otherwise as soon as they are decoded.
+     */
+    public synchronized void setOrderedOutput(boolean orderedOutput) {
+	config = config.withOrderedOutput(orderedOutput);
+    }
+
+    public DMPProjection getProjection() {
+	return config.getProjection();
+    }
+
+    /**
+     * Only decode the selected columns of every table, the items of the other columns are null in the rows
+     * and their vectors are null in column batches. Null decodes all columns, which is the default.
+     */
+    public synchronized void setProjection(DMPProjection projection) {
+	config = config.withProjection(projection);
+    }
+
+    public DMPRowFilter getRowFilter() {
+	return config.getRowFilter();
+    }
+
+    /**
+     * Only deliver the rows accepted by the filter, it is evaluated on the raw bytes and rejected rows are never decoded.
+     * Applies to all tables, null delivers all rows, which is the default.
+     */
+    public synchronized void setRowFilter(DMPRowFilter rowFilter) {
+	config = config.withRowFilter(rowFilter);
+    }
+
+    public DMPParseListener getParseListener() {
+	return config.getParseListener();
+    }
+
+    /**
+     * Receives counters and timers per table and for the whole parse, for example a DMPMetricsListener.
+     * Null disables the measurement, which is the default.
+     */
+    public synchronized void setParseListener(DMPParseListener parseListener) {
+	config = config.withParseListener(parseListener);
+    }
+
+    public int getRowChunkSize() {
+	return config.getRowChunkSize();
+    }
+
+    /**
+     * Size in bytes of the chunks which streamRows() decodes independently.
+     */
+    public synchronized void setRowChunkSize(int rowChunkSize) {
+	config = config.withRowChunkSize(rowChunkSize);
+    }
+
+    public int getAsyncReadDepth() {
+	return config.getAsyncReadDepth();
+    }
+
+    /**
+     * Number of buffers which a reader thread fills ahead of decoding when parsing an InputStream, 0 disables it.
+     */
+    public synchronized void setAsyncReadDepth(int asyncReadDepth) {
+	config = config.withAsyncReadDepth(asyncReadDepth);
+    }
+
+    public int getAsyncReadBufferSize() {
+	return config.getAsyncReadBufferSize();
+    }
+
+    public DMPCheckpointListener getCheckpointListener() {
+	return config.getCheckpointListener();
+    }
+
+    /**
+     * Receives a checkpoint every getCheckpointInterval() bytes, a parse can be continued from it with parseRows(file, checkpoint, ...).
+     */
+    public synchronized void setCheckpointListener(DMPCheckpointListener checkpointListener) {
+	config = config.withCheckpointListener(checkpointListener);
+    }
+
+    public long getCheckpointInterval() {
+	return config.getCheckpointInterval();
+    }
+
+    public synchronized void setCheckpointInterval(long checkpointInterval) {
+	config = config.withCheckpointInterval(checkpointInterval);
+    }
+
+    public int getLargeValueThreshold() {
+	return config.getLargeValueThreshold();
+    }
+
+    /**
+     * Values of BLOB and unsupported columns with more bytes are written into temporary files, 0 keeps all values in the heap.
+     */
+    public synchronized void setLargeValueThreshold(int largeValueThreshold) {
+	config = config.withLargeValueThreshold(largeValueThreshold);
+    }
+
+    public Path getLargeValueDirectory() {
+	return config.getLargeValueDirectory();
+    }
+
+    public synchronized void setLargeValueDirectory(Path largeValueDirectory) {
+	config = config.withLargeValueDirectory(largeValueDirectory);
+    }
+
+    public Charset getCharset() {
+	return config.getCharset();
+    }
+
+    /**
+     * Character set of the STRING values and statements, null takes it from the export header.
+     */
+    public synchronized void setCharset(Charset charset) {
+	config = config.withCharset(charset);
     }
 
-    public void setDebugHexDumpToStdout(boolean debugHexDumpToStdout) {
-	this.debugHexDumpToStdout = debugHexDumpToStdout;
+    public synchronized void setAsyncReadBufferSize(int asyncReadBufferSize) {
+	config = config.withAsyncReadBufferSize(asyncReadBufferSize);
     }
 
+    /**
+     * Export header of the last parse started by this parser. If the parser is used by several threads,
+     * take it from the DMPParseResult of the parse instead.
+     */
     public DMPExportVersion getExportVersion() {
-	return exportVersion;
+	return lastResult.getExportVersion();
     }
 
     public String getExportUser() {
-	return exportUser;
+	return lastResult.getExportUser();
     }
 
     public void setExportUser(String exportUser) {
-	this.exportUser = exportUser;
+	lastResult.setExportUser(exportUser);
     }
 
     public String getExportTablespace() {
-	return exportTablespace;
+	return lastResult.getExportTablespace();
     }
 
     public void setExportTablespace(String exportTablespace) {
-	this.exportTablespace = exportTablespace;
+	lastResult.setExportTablespace(exportTablespace);
     }
-}
+}
\ No newline at end of file
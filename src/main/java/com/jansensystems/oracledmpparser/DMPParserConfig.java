@@ -0,0 +1,311 @@
+package com.jansensystems.oracledmpparser;
+
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Immutable settings of a DMPParser. Changed settings are new instances created with the with methods,
+ * so a parser with a configuration can be shared by many threads:
+ * <pre>
+ * DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withMappedWindowSize(256 << 20).withParallelism(4));
+ * </pre>
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public final class DMPParserConfig {
+    // the arguments in the order of the fields
+    public static final DMPParserConfig DEFAULT = new DMPParserConfig(false, false, DMPMappedScanner.DEFAULT_WINDOW_SIZE, Runtime.getRuntime().availableProcessors(),
+	    null, 256L << 20, true, 4 << 20,
+	    null, null, null, 0,
+	    DMPAsyncInputStream.DEFAULT_BUFFER_SIZE, null, 64L << 20,
+	    0, null, null);
+
+    private final boolean debugToStdout;
+    private final boolean debugHexDumpToStdout;
+    private final int mappedWindowSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final long maxInFlightBytes;
+    private final boolean orderedOutput;
+    private final int rowChunkSize;
+    private final DMPProjection projection;
+    private final DMPRowFilter rowFilter;
+    private final DMPParseListener parseListener;
+    private final int asyncReadDepth;
+    private final int asyncReadBufferSize;
+    private final DMPCheckpointListener checkpointListener;
+    private final long checkpointInterval;
+    private final int largeValueThreshold;
+    private final Path largeValueDirectory;
+    private final Charset charset;
+
+    private DMPParserConfig(boolean debugToStdout, boolean debugHexDumpToStdout, int mappedWindowSize, int parallelism,
+	    ExecutorService executor, long maxInFlightBytes, boolean orderedOutput, int rowChunkSize,
+	    DMPProjection projection, DMPRowFilter rowFilter, DMPParseListener parseListener, int asyncReadDepth,
+	    int asyncReadBufferSize, DMPCheckpointListener checkpointListener, long checkpointInterval,
+	    int largeValueThreshold, Path largeValueDirectory, Charset charset) {
+	this.debugToStdout = debugToStdout;
+	this.debugHexDumpToStdout = debugHexDumpToStdout;
+	this.mappedWindowSize = mappedWindowSize;
+	this.parallelism = parallelism;
+	this.executor = executor;
+	this.maxInFlightBytes = maxInFlightBytes;
+	this.orderedOutput = orderedOutput;
+	this.rowChunkSize = rowChunkSize;
+	this.projection = projection;
+	this.rowFilter = rowFilter;
+	this.parseListener = parseListener;
+	this.asyncReadDepth = asyncReadDepth;
+	this.asyncReadBufferSize = asyncReadBufferSize;
+	this.checkpointListener = checkpointListener;
+	this.checkpointInterval = checkpointInterval;
+	this.largeValueThreshold = largeValueThreshold;
+	this.largeValueDirectory = largeValueDirectory;
+	this.charset = charset;
+    }
+
+    public boolean isDebugToStdout() {
+	return debugToStdout;
+    }
+
+    /**
+     * Print every value while decoding, only for debugging single rows, use withParseListener() for monitoring.
+     */
+    public DMPParserConfig withDebugToStdout(boolean debugToStdout) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public boolean isDebugHexDumpToStdout() {
+	return debugHexDumpToStdout;
+    }
+
+    public DMPParserConfig withDebugHexDumpToStdout(boolean debugHexDumpToStdout) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getMappedWindowSize() {
+	return mappedWindowSize;
+    }
+
+    /**
+     * Size of the memory mapped windows used when parsing a file by path, default is 1 GB.
+     */
+    public DMPParserConfig withMappedWindowSize(int mappedWindowSize) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Number of worker threads for parseParallel(), if no executor is set.
+     */
+    public DMPParserConfig withParallelism(int parallelism) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, Math.max(parallelism, 1), executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public ExecutorService getExecutor() {
+	return executor;
+    }
+
+    /**
+     * Executor for the workers of parseParallel(), for example a ForkJoinPool. It is not shut down by the parser.
+     * If null, a pool with getParallelism() threads is created for each parse.
+     */
+    public DMPParserConfig withExecutor(ExecutorService executor) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public long getMaxInFlightBytes() {
+	return maxInFlightBytes;
+    }
+
+    /**
+     * Maximum size of the table data which is decoded or waiting for the consumer in parseParallel().
+     * A single larger table is still decoded, but alone.
+     */
+    public DMPParserConfig withMaxInFlightBytes(long maxInFlightBytes) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public boolean isOrderedOutput() {
+	return orderedOutput;
+    }
+
+    /**
+     * If true (default) parseParallel() delivers the tables in file order, otherwise as soon as they are decoded.
+     */
+    public DMPParserConfig withOrderedOutput(boolean orderedOutput) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getRowChunkSize() {
+	return rowChunkSize;
+    }
+
+    /**
+     * Size in bytes of the chunks which streamRows() decodes independently.
+     */
+    public DMPParserConfig withRowChunkSize(int rowChunkSize) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, Math.max(rowChunkSize, 1), projection, rowFilter, parseListener, asyncReadDepth,
+		asyncReadBufferSize, checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public DMPProjection getProjection() {
+	return projection;
+    }
+
+    /**
+     * Only decode the selected columns of every table, the items of the other columns are null in the rows
+     * and their vectors are null in column batches. Null decodes all columns, which is the default.
+     */
+    public DMPParserConfig withProjection(DMPProjection projection) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public DMPRowFilter getRowFilter() {
+	return rowFilter;
+    }
+
+    /**
+     * Only deliver the rows accepted by the filter, it is evaluated on the raw bytes and rejected rows are never decoded.
+     * Applies to all tables, null delivers all rows, which is the default.
+     */
+    public DMPParserConfig withRowFilter(DMPRowFilter rowFilter) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public DMPParseListener getParseListener() {
+	return parseListener;
+    }
+
+    /**
+     * Receives counters and timers per table and for the whole parse, for example a DMPMetricsListener.
+     * If the parser is shared by several threads, the listener is called by all of them.
+     * Null disables the measurement, which is the default.
+     */
+    public DMPParserConfig withParseListener(DMPParseListener parseListener) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getAsyncReadDepth() {
+	return asyncReadDepth;
+    }
+
+    /**
+     * Number of buffers which a reader thread fills ahead of decoding when parsing an InputStream, see DMPAsyncInputStream.
+     * Helps on slow or network storage, 0 reads on the parsing thread, which is the default.
+     */
+    public DMPParserConfig withAsyncReadDepth(int asyncReadDepth) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener,
+		asyncReadDepth > 0 ? Math.max(asyncReadDepth, 2) : 0, asyncReadBufferSize, checkpointListener,
+		checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getAsyncReadBufferSize() {
+	return asyncReadBufferSize;
+    }
+
+    /**
+     * Size of each buffer of the reader thread, default is 4 MB.
+     */
+    public DMPParserConfig withAsyncReadBufferSize(int asyncReadBufferSize) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public DMPCheckpointListener getCheckpointListener() {
+	return checkpointListener;
+    }
+
+    /**
+     * Receives a checkpoint every getCheckpointInterval() bytes from parseRows() and parseBatches(),
+     * a parse can be continued from it with parseRows(file, checkpoint, ...). parseParallel() and parses with an index create no checkpoints.
+     * Null disables checkpoints, which is the default.
+     */
+    public DMPParserConfig withCheckpointListener(DMPCheckpointListener checkpointListener) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public long getCheckpointInterval() {
+	return checkpointInterval;
+    }
+
+    /**
+     * Minimum number of bytes between two checkpoints, default is 64 MB.
+     */
+    public DMPParserConfig withCheckpointInterval(long checkpointInterval) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, Math.max(checkpointInterval, 1), largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public int getLargeValueThreshold() {
+	return largeValueThreshold;
+    }
+
+    /**
+     * Values of BLOB and unsupported columns, e.g. LONG, with more bytes are written into temporary files while they are scanned,
+     * see DMPItem.getLargeValue(). Their parts are never collected in the heap. 0 keeps all values in the heap, which is the default.
+     * Column batches always hold the values in the heap.
+     */
+    public DMPParserConfig withLargeValueThreshold(int largeValueThreshold) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, Math.max(largeValueThreshold, 0), largeValueDirectory, charset);
+    }
+
+    public Path getLargeValueDirectory() {
+	return largeValueDirectory;
+    }
+
+    /**
+     * Directory of the temporary files of large values, null for the default temporary directory.
+     */
+    public DMPParserConfig withLargeValueDirectory(Path largeValueDirectory) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+
+    public Charset getCharset() {
+	return charset;
+    }
+
+    /**
+     * Character set of the STRING values and statements. Null takes it from the export header, which is the default,
+     * if the header has an unknown character set id the JVM default is used.
+     */
+    public DMPParserConfig withCharset(Charset charset) {
+	return new DMPParserConfig(debugToStdout, debugHexDumpToStdout, mappedWindowSize, parallelism, executor, maxInFlightBytes,
+		orderedOutput, rowChunkSize, projection, rowFilter, parseListener, asyncReadDepth, asyncReadBufferSize,
+		checkpointListener, checkpointInterval, largeValueThreshold, largeValueDirectory, charset);
+    }
+}
@@ -0,0 +1,68 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The columns to decode, by name from the INSERT statement or by index.
+ * The other columns are skipped by their length prefix, in the rows their items are null
+ * so the positions of the selected columns stay the same.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public final class DMPProjection {
+    private final List<String> names;
+    private final int[] indexes;
+
+    private DMPProjection(List<String> names, int[] indexes) {
+	this.names = names;
+	this.indexes = indexes;
+    }
+
+    /**
+     * Select columns by name, not case sensitive. Names which are not columns of a table are ignored.
+     */
+    public static DMPProjection ofNames(String... names) {
+	return ofNames(Arrays.asList(names));
+    }
+
+    public static DMPProjection ofNames(List<String> names) {
+	if (names == null) {
+	    throw new IllegalArgumentException("The column names must not be NULL");
+	}
+	return new DMPProjection(names.stream().map(x -> x.toLowerCase()).toList(), new int[0]);
+    }
+
+    /**
+     * Select columns by their index, starting with 0.
+     */
+    public static DMPProjection ofIndexes(int... indexes) {
+	if (indexes == null) {
+	    throw new IllegalArgumentException("The column indexes must not be NULL");
+	}
+	return new DMPProjection(List.of(), indexes.clone());
+    }
+
+    /**
+     * @return per column index if it is selected, columns after the end of the array are not selected
+     */
+    boolean[] resolve(List<String> fieldNames) {
+	int size = fieldNames != null ? fieldNames.size() : 0;
+	for (int i : indexes) size = Math.max(size, i + 1);
+	boolean[] ret = new boolean[size];
+	for (int i : indexes) {
+	    if (i >= 0) ret[i] = true;
+	}
+	if (fieldNames != null) {
+	    for (int i=0;i<fieldNames.size();i++) {
+		if (names.contains(fieldNames.get(i).toLowerCase())) ret[i] = true;
+	    }
+	}
+	return ret;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPProjection{" + "names=" + names + ", indexes=" + Arrays.toString(indexes) + '}';
+    }
+}
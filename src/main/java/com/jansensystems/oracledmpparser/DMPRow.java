@@ -1,6 +1,7 @@
 
 package com.jansensystems.oracledmpparser;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,6 +11,22 @@ import java.util.List;
  */
 public class DMPRow {
 
-    public List<DMPItem> items = new ArrayList<>();
+    public List<DMPItem> items;
+    // raw bytes of the row, all items are ranges of it
+    ByteBuffer data = null;
 
+    public DMPRow() {
+	this(10);
+    }
+
+    DMPRow(int columnCount) {
+	items = new ArrayList<>(columnCount);
+    }
+
+    /**
+     * @return read only view of the raw row bytes
+     */
+    public ByteBuffer getData() {
+	return data != null ? data.asReadOnlyBuffer() : null;
+    }
 }
@@ -0,0 +1,780 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Incremental decoder for the data segment of one table.
+ * Reads the column definitions and then one row at a time from the scanner,
+ * so only the current row has to fit into memory.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPRowDecoder {
+    private final boolean oldFormat;
+    private final boolean debugToStdout;
+    private final boolean debugHexDumpToStdout;
+    private int fieldCount = 0;
+    private DMPItemType[] columnTypes = new DMPItemType[0];
+    // Oracle type codes and declared lengths from the column definitions
+    private int[] columnTypeCodes = new int[0];
+    private int[] columnLengths = new int[0];
+    private boolean finished = false;
+    private long rowsStart = -1;
+    // file offset where scanning stops, for decoding a part of the rows
+    private long dataEnd = Long.MAX_VALUE;
+    private boolean definitionsRead = false;
+    // called with the file offset after each delivered row, for checkpoints
+    private LongConsumer rowEnd = null;
+    // value positions of the current row, relative to the row start
+    private int segmentCount = 0;
+    private int[] segmentItem = new int[16];
+    private int[] segmentOffset = new int[16];
+    private int[] segmentLength = new int[16];
+    private boolean[] segmentNull = new boolean[16];
+    private DMPLargeValue[] segmentLarge = new DMPLargeValue[16];
+    private boolean rowChunked = false;
+    // values of LOB and unsupported columns above the threshold are written into temporary files while scanning, 0 for never
+    private int largeValueThreshold = 0;
+    private Path largeValueDirectory = null;
+    // character set of the export, for the STRING values
+    private DMPCharset charset = DMPCharset.DEFAULT;
+    // once a large value is streamed the scanner may drop the row start, the recorded values are copied here instead
+    private boolean detached = false;
+    private byte[] detachedBytes = new byte[256];
+    private int detachedLength = 0;
+    // selected columns, null for all
+    private boolean[] projection = null;
+    // row filter, bound to the column indexes and types on the first row
+    private DMPRowFilter rowFilter = null;
+    private List<String> fieldNames = null;
+    private Predicate<DMPRowDecoder> predicate = null;
+    // columns to record while scanning, the selected and the filtered ones, null for all
+    private boolean[] recorded = null;
+    private ByteBuffer rowBuffer = null;
+    private int rowBase = 0;
+    // counted always, reported if metrics are set
+    private long scannedRows = 0;
+    private long acceptedRows = 0;
+    private long nulls = 0;
+    private DMPTableMetrics metrics = null;
+
+    DMPRowDecoder(DMPExportVersion exportVersion, boolean debugToStdout, boolean debugHexDumpToStdout) {
+	// at least in version 7 there are no row separators and no additional column settings
+	this.oldFormat = exportVersion.getMajor() < 8;
+	this.debugToStdout = debugToStdout;
+	this.debugHexDumpToStdout = debugHexDumpToStdout;
+    }
+
+    List<DMPItemType> getColumnTypes() {
+	return Arrays.asList(columnTypes);
+    }
+
+    List<Integer> getColumnTypeCodes() {
+	return Arrays.stream(columnTypeCodes).boxed().toList();
+    }
+
+    List<Integer> getColumnLengths() {
+	return Arrays.stream(columnLengths).boxed().toList();
+    }
+
+    /**
+     * @return the file offset of the first row, after the column definitions have been read
+     */
+    long getRowsStart() {
+	return rowsStart;
+    }
+
+    /**
+     * Set the column types instead of reading the column definitions, to start decoding at a row in the middle of the data.
+     */
+    void setColumnTypes(List<DMPItemType> columnTypes) {
+	this.columnTypes = columnTypes.toArray(new DMPItemType[0]);
+	this.fieldCount = this.columnTypes.length;
+	this.definitionsRead = true;
+    }
+
+    /**
+     * Called with the file offset after each row handed to a row handler and after each full batch,
+     * the offset is on a row boundary where decoding can continue.
+     */
+    void setRowEnd(LongConsumer rowEnd) {
+	this.rowEnd = rowEnd;
+    }
+
+    /**
+     * @return the rows scanned so far, including the rows rejected by the row filter
+     */
+    long getScannedRows() {
+	return scannedRows;
+    }
+
+    /**
+     * Only decode the columns which are set in the array, the other values are skipped and their items are null.
+     */
+    void setProjection(boolean[] projection) {
+	this.projection = projection;
+    }
+
+    /**
+     * Write values of BLOB and unsupported columns, e.g. LONG, which are larger than the threshold into temporary files,
+     * their parts are streamed there instead of collecting the row in the buffer. Not used for column batches.
+     * @param threshold size in bytes, 0 to keep all values in the heap
+     * @param directory directory of the temporary files, null for the default temporary directory
+     */
+    void setLargeValues(int threshold, Path directory) {
+	this.largeValueThreshold = threshold;
+	this.largeValueDirectory = directory;
+    }
+
+    private boolean isLargeValueColumn(int column) {
+	return column >= columnTypes.length || columnTypes[column] == null || columnTypes[column] == DMPItemType.BLOB;
+    }
+
+    /**
+     * Stop at the given file offset, it must be a row start. Rows rejected by the row filter are not scanned beyond it either.
+     */
+    void setDataEnd(long dataEnd) {
+	this.dataEnd = dataEnd;
+    }
+
+    void setCharset(DMPCharset charset) {
+	this.charset = charset;
+    }
+
+    /**
+     * Collect the counters and timers of the table data into the given metrics.
+     */
+    void setMetrics(DMPTableMetrics metrics) {
+	this.metrics = metrics;
+    }
+
+    private boolean isProjected(int column) {
+	return projection == null || (column < projection.length && projection[column]);
+    }
+
+    /**
+     * Only deliver rows accepted by the filter, the other rows are dropped before any value is decoded.
+     */
+    void setRowFilter(DMPRowFilter rowFilter, List<String> fieldNames) {
+	this.rowFilter = rowFilter;
+	this.fieldNames = fieldNames;
+	this.predicate = null;
+    }
+
+    private void bindFilter() {
+	BitSet columns = new BitSet();
+	predicate = rowFilter.bind(fieldNames, getColumnTypes(), charset, columns);
+	if (projection != null) {
+	    recorded = Arrays.copyOf(projection, Math.max(projection.length, columns.length()));
+	    columns.stream().forEach(i -> recorded[i] = true);
+	}
+    }
+
+    private boolean isRecorded(int column) {
+	boolean[] r = recorded != null ? recorded : projection;
+	return r == null || (column < r.length && r[column]);
+    }
+
+    /**
+     * Scan rows until one is accepted by the row filter.
+     * @return the number of values of the accepted row or 0 at the end of the table data
+     */
+    private int nextAcceptedRow(DMPScanner scanner) throws IOException {
+	if (rowFilter != null && predicate == null) bindFilter();
+	int itemCount;
+	while ((itemCount = scanRow(scanner)) > 0) {
+	    scannedRows++;
+	    if (predicate == null || predicate.test(this)) {
+		acceptedRows++;
+		break;
+	    }
+	    closeLargeValues();
+	}
+	return itemCount;
+    }
+
+    /**
+     * @return true if the value of the column in the current row is NULL or missing
+     */
+    boolean isNull(int column) {
+	int i = findSegment(column);
+	return i < 0 || segmentNull[i];
+    }
+
+    /**
+     * Compare the raw bytes of the value of the column in the current row with the given bytes, unsigned byte by byte.
+     * With padded the shorter value is extended with 0 bytes, otherwise the shorter value is less.
+     */
+    int compare(int column, byte[] value, boolean padded) {
+	int k = 0;
+	for (int i=findSegment(column);i<segmentCount && segmentItem[i] == column;i++) {
+	    int off = rowBase + segmentOffset[i];
+	    for (int j=0;j<segmentLength[i];j++, k++) {
+		int a = rowBuffer.get(off + j) & 0xff;
+		int b;
+		if (k < value.length) {
+		    b = value[k] & 0xff;
+		} else if (padded) {
+		    b = 0;
+		} else {
+		    return 1;
+		}
+		if (a != b) return a < b ? -1 : 1;
+	    }
+	}
+	for (; k<value.length; k++) {
+	    if (!padded || value[k] != 0) return -1;
+	}
+	return 0;
+    }
+
+    /**
+     * @return the index of the first segment of the column in the current row or -1
+     */
+    private int findSegment(int column) {
+	// the segments are ordered by column
+	int lo = 0;
+	int hi = segmentCount - 1;
+	while (lo <= hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (segmentItem[mid] < column) {
+		lo = mid + 1;
+	    } else {
+		hi = mid - 1;
+	    }
+	}
+	return lo < segmentCount && segmentItem[lo] == column ? lo : -1;
+    }
+
+    static DMPItemType getColumnType(int typeCode) {
+	// TODO: add more data types
+	return switch (typeCode) {
+	    case 1 -> DMPItemType.STRING;
+	    case 2 -> DMPItemType.NUMBER;
+	    case 12 -> DMPItemType.DATE;
+	    case 180 -> DMPItemType.TIMESTAMP;
+	    case 113-> DMPItemType.BLOB;
+	    default -> null;
+	};
+    }
+
+    /**
+     * Decode the complete data segment of a table, the scanner must be positioned directly after the INSERT statement.
+     * Afterwards the scanner is positioned after the newline which terminates the segment.
+     */
+    void decode(DMPScanner scanner, DMPTable table, DMPRowHandler handler) throws IOException {
+	long dataStart = scanner.getPosition();
+	long start = metrics != null ? System.nanoTime() : 0;
+	readColumnDefinitions(scanner);
+	table.columnTypes = getColumnTypes();
+	handler.onTableStart(table);
+	DMPRow row;
+	while ((row = nextRow(scanner)) != null) {
+	    handler.onRow(table, row);
+	    if (rowEnd != null) rowEnd.accept(scanner.getPosition());
+	}
+	if (metrics != null) updateMetrics(scanner.getPosition() - dataStart, start);
+	if (debugToStdout) System.out.println();
+	handler.onTableEnd(table);
+    }
+
+    /**
+     * Decode the complete data segment of a table into column batches of the given size, no DMPRow or DMPItem objects are created.
+     * The scanner must be positioned directly after the INSERT statement.
+     */
+    void decodeBatches(DMPScanner scanner, DMPTable table, int batchSize, DMPBatchHandler handler) throws IOException {
+	long dataStart = scanner.getPosition();
+	long start = metrics != null ? System.nanoTime() : 0;
+	readColumnDefinitions(scanner);
+	table.columnTypes = getColumnTypes();
+	handler.onTableStart(table);
+	// the batches hold all values in arrays
+	largeValueThreshold = 0;
+	List<DMPItemType> types = table.columnTypes;
+	DMPColumnBatch batch = null;
+	int itemCount;
+	while ((itemCount = nextAcceptedRow(scanner)) > 0) {
+	    if (batch == null) {
+		batch = new DMPColumnBatch(table, types, projection, batchSize);
+		batch.setCharset(charset);
+	    }
+	    addRow(scanner, batch);
+	    if (batch.getRowCount() == batchSize) {
+		handler.onBatch(table, batch);
+		batch = null;
+		if (rowEnd != null) rowEnd.accept(scanner.getPosition());
+	    }
+	}
+	if (batch != null) handler.onBatch(table, batch);
+	if (metrics != null) updateMetrics(scanner.getPosition() - dataStart, start);
+	if (debugToStdout) System.out.println();
+	handler.onTableEnd(table);
+    }
+
+    private void updateMetrics(long bytes, long start) {
+	metrics.decoded = true;
+	metrics.bytes = bytes;
+	metrics.rows = scannedRows;
+	metrics.filteredRows = scannedRows - acceptedRows;
+	metrics.nulls = nulls;
+	metrics.decodeNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Append the values of the row just scanned directly from the scanner buffer.
+     */
+    private void addRow(DMPScanner scanner, DMPColumnBatch batch) {
+	ByteBuffer buf = scanner.getBuffer();
+	int rowStart = scanner.getMarkStart();
+	int i = 0;
+	while (i < segmentCount) {
+	    int col = segmentItem[i];
+	    int end = i + 1;
+	    while (end < segmentCount && segmentItem[end] == col) end++;
+	    DMPColumnVector v = col < batch.getColumnCount() ? batch.getColumn(col) : null;
+	    if (v != null) {
+		if (segmentNull[i]) {
+		    v.addNull();
+		} else if (end - i == 1 || v.getOffsets() != null) {
+		    v.add(buf, rowStart + segmentOffset[i], segmentLength[i]);
+		    for (int k=i+1;k<end;k++) v.append(buf, rowStart + segmentOffset[k], segmentLength[k]);
+		} else {
+		    // a number or date in several parts, copy the parts together first
+		    int total = 0;
+		    for (int k=i;k<end;k++) total += segmentLength[k];
+		    byte[] data = new byte[total];
+		    int p = 0;
+		    for (int k=i;k<end;k++) {
+			buf.get(rowStart + segmentOffset[k], data, p, segmentLength[k]);
+			p += segmentLength[k];
+		    }
+		    v.add(ByteBuffer.wrap(data), 0, total);
+		}
+	    }
+	    i = end;
+	}
+	batch.endRow();
+    }
+
+    /**
+     * Skip the data segment of a table without decoding or copying it, only the length prefixes are read.
+     * Afterwards the scanner is positioned after the newline which terminates the segment.
+     * @return the number of skipped rows
+     */
+    long skip(DMPScanner scanner) throws IOException {
+	return scan(scanner, false, null);
+    }
+
+    /**
+     * Find the end of the data segment by its length prefixes, with keepBytes the whole segment
+     * from the mark stays in the buffer, otherwise the values are skipped.
+     * @param rowEnd if not null, called with the file offset after each row
+     * @return the number of rows
+     */
+    long scan(DMPScanner scanner, boolean keepBytes, LongConsumer rowEnd) throws IOException {
+	long dataStart = scanner.getPosition();
+	readColumnDefinitions(scanner);
+	long rows = 0;
+	int itemCount = 0;
+	boolean includeNextBatch = false;
+	while (!finished) {
+	    if (!keepBytes) scanner.mark();
+	    if (!scanner.ensure(2)) {
+		finished = true;
+		break;
+	    }
+	    int b0 = scanner.get(0);
+	    int b1 = scanner.get(1);
+	    scanner.advance(2);
+	    if (!includeNextBatch) {
+		if (b0 == 0xff && b1 == 0xff) {
+		    // the end, followed by a newline
+		    if (itemCount > 0) {
+			rows++;
+			if (rowEnd != null) rowEnd.accept(scanner.getPosition() - 2);
+		    }
+		    if (scanner.ensure(1) && scanner.get(0) == 0x0a) scanner.advance(1);
+		    finished = true;
+		    break;
+		}
+		if (b0 == 0 && b1 == 0) {
+		    // row separator
+		    if (itemCount > 0) {
+			rows++;
+			if (rowEnd != null) rowEnd.accept(scanner.getPosition());
+		    }
+		    itemCount = 0;
+		    continue;
+		}
+		if (b0 == 0xfe && b1 == 0xff) {
+		    // NULL value
+		    nulls++;
+		    itemCount++;
+		    if (oldFormat && itemCount == fieldCount) {
+			rows++;
+			itemCount = 0;
+			if (rowEnd != null) rowEnd.accept(scanner.getPosition());
+		    }
+		    continue;
+		}
+	    }
+	    includeNextBatch = (b1 & 0x80) != 0;
+	    int length = b0 | ((b1 & 0x7f) << 8);
+	    if (keepBytes) {
+		if (!scanner.ensure(length)) {
+		    scanner.advance(scanner.available());
+		    finished = true;
+		    break;
+		}
+		scanner.advance(length);
+	    } else if (!scanner.skip(length)) {
+		finished = true;
+		break;
+	    }
+	    if (!includeNextBatch) {
+		itemCount++;
+		if (oldFormat && itemCount == fieldCount) {
+		    rows++;
+		    itemCount = 0;
+		    if (rowEnd != null) rowEnd.accept(scanner.getPosition());
+		}
+	    }
+	}
+	if (metrics != null) {
+	    metrics.bytes = scanner.getPosition() - dataStart;
+	    metrics.rows = rows;
+	    metrics.nulls = nulls;
+	}
+	if (debugToStdout) {
+	    System.out.println((keepBytes ? "Scanned " : "Skipped ") + rows + " rows");
+	}
+	return rows;
+    }
+
+    void readColumnDefinitions(DMPScanner scanner) throws IOException {
+	// not if decoding starts at a row with the column types set
+	if (definitionsRead) return;
+	definitionsRead = true;
+	scanner.mark();
+	if (!scanner.ensure(2)) {
+	    finished = true;
+	    return;
+	}
+	// 2 bytes field count, then 2 bytes type code and 2 bytes length per column
+	fieldCount = scanner.get(0) | (scanner.get(1) << 8);
+	scanner.advance(2);
+	columnTypes = new DMPItemType[fieldCount];
+	columnTypeCodes = new int[fieldCount];
+	columnLengths = new int[fieldCount];
+	boolean hasLob = false;
+	for (int i=0;i<fieldCount;i++) {
+	    if (!scanner.ensure(4)) {
+		finished = true;
+		return;
+	    }
+	    int fc = scanner.get(0) | (scanner.get(1) << 8);
+	    columnTypeCodes[i] = fc;
+	    columnLengths[i] = scanner.get(2) | (scanner.get(3) << 8);
+	    scanner.advance(4);
+	    columnTypes[i] = getColumnType(fc);
+	    if (fc == 112 || fc == 113) hasLob = true;
+	    if (columnTypes[i] != null) {
+		if (!oldFormat && columnTypes[i] == DMPItemType.STRING) {
+		    // at least in version 10 we need to add 4, in version 7 not; TODO: when was this introduced?
+		    // string has additional settings (charset id and form) which are ignored currently
+		    if (!scanner.ensure(4)) {
+			finished = true;
+			return;
+		    }
+		    scanner.advance(4);
+		}
+	    } else {
+		if (metrics != null) metrics.unknownTypeCodes.add(fc);
+		if (debugToStdout) {
+		    System.out.println("Missing type for code " + fc);
+		}
+	    }
+	}
+	int headerEnd = scanner.getPos();
+	// the column definitions are terminated by 4 null bytes, tables with LOB columns
+	// have an additional list of the LOB column names before, which ends with the last run of null bytes
+	if (!hasLob || oldFormat) {
+	    if (scanner.ensure(4) && scanner.get(0) == 0 && scanner.get(1) == 0 && scanner.get(2) == 0 && scanner.get(3) == 0) {
+		scanner.advance(4);
+	    }
+	} else {
+	    int nullCount = 0;
+	    while (scanner.ensure(1)) {
+		if (scanner.get(0) == 0) {
+		    nullCount++;
+		} else {
+		    if (nullCount >= 4 && scanner.ensure(2) && isFieldStart(scanner.get(0), scanner.get(1))) {
+			break;
+		    }
+		    nullCount = 0;
+		}
+		scanner.advance(1);
+	    }
+	}
+	rowsStart = scanner.getPosition();
+	if (debugToStdout) {
+	    System.out.println("Skipping " + (scanner.getPos() - headerEnd) + " bytes");
+	}
+    }
+
+    private static boolean isFieldStart(int b0, int b1) {
+	return (b0 == 0xfe && b1 == 0xff) || (b0 == 0xff && b1 == 0xff) || (b0 > 0 && (b1 == 0 || b1 == 0x80));
+    }
+
+    /**
+     * @return the next row or null at the end of the table data
+     */
+    DMPRow nextRow(DMPScanner scanner) throws IOException {
+	int itemCount = nextAcceptedRow(scanner);
+	if (itemCount == 0) return null;
+	return createRow(scanner, itemCount, rowChunked);
+    }
+
+    /**
+     * Scan the next row and record the positions of its values, relative to the mark of the scanner.
+     * @return the number of values or 0 at the end of the table data
+     */
+    private int scanRow(DMPScanner scanner) throws IOException {
+	segmentCount = 0;
+	detached = false;
+	detachedLength = 0;
+	int itemCount = 0;
+	boolean chunked = false;
+	if (scanner.getPosition() >= dataEnd) return 0;
+	scanner.mark();
+	while (!finished) {
+	    if (!scanner.ensure(2)) {
+		finished = true;
+		break;
+	    }
+	    int b0 = scanner.get(0);
+	    int b1 = scanner.get(1);
+	    if (b0 == 0xff && b1 == 0xff) {
+		if (itemCount > 0) {
+		    // end marker without row separator, deliver the row first
+		    break;
+		}
+		// the end, followed by a newline
+		scanner.advance(2);
+		if (scanner.ensure(1) && scanner.get(0) == 0x0a) scanner.advance(1);
+		finished = true;
+		break;
+	    }
+	    scanner.advance(2);
+	    if (b0 == 0 && b1 == 0) {
+		// we have a new row, seems to be marked with double 0 bytes
+		if (itemCount > 0) break;
+		// empty rows could be because of old format
+		scanner.mark();
+		continue;
+	    }
+	    if (b0 == 0xfe && b1 == 0xff) {
+		// NULL value, seems to be coded as fe - ff
+		nulls++;
+		if (isRecorded(itemCount)) addSegment(scanner, itemCount, scanner.getPos() - 2, 2, true);
+	    } else {
+		// column data, coded as 2 bytes length and the bytes, a set high bit
+		// in the length means another part follows which belongs to the same value
+		boolean includeNextBatch;
+		boolean projected = isRecorded(itemCount);
+		boolean spillable = largeValueThreshold > 0 && isProjected(itemCount) && isLargeValueColumn(itemCount);
+		int firstSegment = segmentCount;
+		long valueLength = 0;
+		DMPLargeValue large = null;
+		do {
+		    int takeByteCount = b0 | ((b1 & 0x7f) << 8);
+		    includeNextBatch = (b1 & 0x80) != 0;
+		    valueLength += takeByteCount;
+		    if (spillable && large == null && valueLength > largeValueThreshold) {
+			large = spill(scanner, itemCount, firstSegment);
+		    }
+		    if (!scanner.ensure(takeByteCount)) {
+			takeByteCount = scanner.available();
+			finished = true;
+		    }
+		    if (large != null) {
+			large.write(scanner.getBuffer(), scanner.getPos(), takeByteCount);
+		    } else if (projected) {
+			addSegment(scanner, itemCount, scanner.getPos(), takeByteCount, false);
+		    }
+		    scanner.advance(takeByteCount);
+		    // the part is written, the buffer only has to hold the next one
+		    if (large != null) scanner.mark();
+		    if (includeNextBatch) {
+			if (projected) chunked = true;
+			if (finished || !scanner.ensure(2)) {
+			    finished = true;
+			    break;
+			}
+			b0 = scanner.get(0);
+			b1 = scanner.get(1);
+			scanner.advance(2);
+		    }
+		} while (includeNextBatch);
+		if (large != null) large.finish();
+	    }
+	    itemCount++;
+	    if (oldFormat && itemCount == fieldCount) {
+		// at least in version 7 we start directly with new row, no double 0 as spacer
+		break;
+	    }
+	}
+	rowChunked = chunked;
+	if (detached) {
+	    rowBuffer = ByteBuffer.wrap(detachedBytes);
+	    rowBase = 0;
+	} else {
+	    rowBuffer = scanner.getBuffer();
+	    rowBase = scanner.getMarkStart();
+	}
+	return itemCount;
+    }
+
+    /**
+     * Record a value or a part of it at the given buffer position, relative to the mark or copied if the row is detached.
+     */
+    private void addSegment(DMPScanner scanner, int item, int pos, int length, boolean isNull) {
+	if (segmentCount == segmentItem.length) {
+	    segmentItem = Arrays.copyOf(segmentItem, segmentCount * 2);
+	    segmentOffset = Arrays.copyOf(segmentOffset, segmentCount * 2);
+	    segmentLength = Arrays.copyOf(segmentLength, segmentCount * 2);
+	    segmentNull = Arrays.copyOf(segmentNull, segmentCount * 2);
+	    segmentLarge = Arrays.copyOf(segmentLarge, segmentCount * 2);
+	}
+	int offset = pos - scanner.getMarkStart();
+	if (detached) {
+	    offset = detachedLength;
+	    appendDetached(scanner.getBuffer(), pos, length);
+	}
+	segmentItem[segmentCount] = item;
+	segmentOffset[segmentCount] = offset;
+	segmentLength[segmentCount] = length;
+	segmentNull[segmentCount] = isNull;
+	segmentLarge[segmentCount] = null;
+	segmentCount++;
+    }
+
+    private void appendDetached(ByteBuffer buf, int pos, int length) {
+	if (detachedLength + length > detachedBytes.length) {
+	    detachedBytes = Arrays.copyOf(detachedBytes, Math.max(detachedBytes.length * 2, detachedLength + length));
+	}
+	buf.get(pos, detachedBytes, detachedLength, length);
+	detachedLength += length;
+    }
+
+    /**
+     * Start writing the value of the column into a temporary file, with the parts recorded so far from firstSegment on.
+     * The other values of the row are copied out of the scanner buffer first, so the buffer can drop the row start.
+     */
+    private DMPLargeValue spill(DMPScanner scanner, int item, int firstSegment) throws IOException {
+	ByteBuffer buf = detached ? ByteBuffer.wrap(detachedBytes) : scanner.getBuffer();
+	int base = detached ? 0 : scanner.getMarkStart();
+	DMPLargeValue ret = new DMPLargeValue(largeValueDirectory);
+	for (int i=firstSegment;i<segmentCount;i++) {
+	    ret.write(buf, base + segmentOffset[i], segmentLength[i]);
+	}
+	if (detached) {
+	    // the parts were the last bytes copied
+	    if (firstSegment < segmentCount) detachedLength = segmentOffset[firstSegment];
+	} else {
+	    detachedLength = 0;
+	    for (int i=0;i<firstSegment;i++) {
+		int offset = detachedLength;
+		appendDetached(buf, base + segmentOffset[i], segmentLength[i]);
+		segmentOffset[i] = offset;
+	    }
+	    detached = true;
+	}
+	segmentCount = firstSegment;
+	addSegment(scanner, item, scanner.getPos(), 0, false);
+	segmentLarge[segmentCount - 1] = ret;
+	return ret;
+    }
+
+    /**
+     * Delete the temporary files of a row which is not delivered.
+     */
+    private void closeLargeValues() {
+	for (int i=0;i<segmentCount;i++) {
+	    if (segmentLarge[i] != null) segmentLarge[i].close();
+	}
+    }
+
+    /**
+     * Build the row from the recorded segments, all items share one buffer with the raw bytes of the row.
+     */
+    private DMPRow createRow(DMPScanner scanner, int itemCount, boolean chunked) {
+	int rowStart = scanner.getMarkStart();
+	int rowLength = scanner.getPos() - rowStart;
+	DMPRow row = new DMPRow(itemCount);
+	if (!chunked && projection == null && !detached) {
+	    row.data = scanner.slice(rowStart, rowLength);
+	} else {
+	    // values in several parts or only some columns, copy the parts of the selected values together
+	    int total = 0;
+	    for (int i=0;i<segmentCount;i++) {
+		if (isProjected(segmentItem[i])) total += segmentLength[i];
+	    }
+	    byte[] data = new byte[total];
+	    int p = 0;
+	    for (int i=0;i<segmentCount;i++) {
+		if (!isProjected(segmentItem[i])) continue;
+		rowBuffer.get(rowBase + segmentOffset[i], data, p, segmentLength[i]);
+		segmentOffset[i] = p;
+		p += segmentLength[i];
+	    }
+	    row.data = ByteBuffer.wrap(data);
+	}
+	if (debugHexDumpToStdout && !detached) {
+	    System.out.println(DMPParser.byteArrayToString(scanner.getBytes(rowStart, rowLength)));
+	}
+	DMPItem cur = null;
+	int lastItem = -1;
+	for (int i=0;i<segmentCount;i++) {
+	    // columns only recorded for the row filter
+	    if (!isProjected(segmentItem[i])) continue;
+	    if (segmentItem[i] == lastItem) {
+		// another part of the same value, directly following after copying
+		cur.noOfbytes += segmentLength[i];
+		continue;
+	    }
+	    lastItem = segmentItem[i];
+	    int col = segmentItem[i];
+	    // skipped columns
+	    while (row.items.size() < col) row.items.add(null);
+	    DMPItemType type = segmentNull[i] ? DMPItemType.NULL : (col < columnTypes.length ? columnTypes[col] : null);
+	    cur = new DMPItem(row.data, segmentOffset[i], segmentLength[i], type);
+	    cur.largeValue = segmentLarge[i];
+	    cur.charset = charset;
+	    row.items.add(cur);
+	}
+	while (row.items.size() < itemCount) row.items.add(null);
+	if (debugToStdout) {
+	    for (DMPItem l : row.items) {
+		if (l == null) continue;
+		System.out.print(String.format("%02x", l.noOfbytes) + ", " + DMPParser.byteArrayToString(l.getByteArray()));
+		System.out.print(" -> ");
+		if (l.itemType == DMPItemType.NULL) {
+		    System.out.print("NULL");
+		} else if (l.itemType != null && l.itemType != DMPItemType.BLOB) {
+		    System.out.print(l.getStringValue());
+		}
+		System.out.println();
+	    }
+	    System.out.println();
+	}
+	return row;
+    }
+}
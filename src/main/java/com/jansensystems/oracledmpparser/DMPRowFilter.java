@@ -0,0 +1,206 @@
+package com.jansensystems.oracledmpparser;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Condition on the values of a row, evaluated by the parser on the raw bytes before a row is created,
+ * rejected rows are never decoded. The filter values are encoded once per table in the format of the column,
+ * NUMBER, DATE and TIMESTAMP encodings keep the order, so ranges are compared byte by byte as well.
+ * STRING and BLOB values are compared by their raw bytes, ranges use the binary order.
+ * Columns are referenced by name from the INSERT statement, not case sensitive, a column which
+ * does not exist in a table is treated as NULL. Like in SQL, comparisons with NULL values are false.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public abstract class DMPRowFilter {
+
+    DMPRowFilter() {
+    }
+
+    /**
+     * Create the predicate for a table, the indexes of the used columns are added to the set.
+     * String values are encoded with the character set of the export.
+     */
+    abstract Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns);
+
+    public static DMPRowFilter isNull(String column) {
+	checkColumn(column);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		int col = indexOf(fieldNames, column, columns);
+		if (col < 0) return row -> true;
+		return row -> row.isNull(col);
+	    }
+	};
+    }
+
+    public static DMPRowFilter isNotNull(String column) {
+	return not(isNull(column));
+    }
+
+    public static DMPRowFilter eq(String column, Object value) {
+	return in(column, Arrays.asList(value));
+    }
+
+    public static DMPRowFilter in(String column, Object... values) {
+	return in(column, Arrays.asList(values));
+    }
+
+    /**
+     * Values must be Number or String for NUMBER columns, LocalDateTime, LocalDate or Timestamp for DATE and TIMESTAMP columns,
+     * String or byte[] for STRING and BLOB columns.
+     */
+    public static DMPRowFilter in(String column, Collection<?> values) {
+	checkColumn(column);
+	if (values == null || values.stream().anyMatch(x -> x == null)) {
+	    throw new IllegalArgumentException("The values must not be NULL, use isNull() instead");
+	}
+	List<?> list = List.copyOf(values);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		int col = indexOf(fieldNames, column, columns);
+		if (col < 0) return row -> false;
+		DMPItemType type = col < columnTypes.size() ? columnTypes.get(col) : null;
+		boolean padded = isDateTime(type);
+		byte[][] encoded = list.stream().map(x -> encode(x, type, charset, column)).toArray(byte[][]::new);
+		return row -> {
+		    if (row.isNull(col)) return false;
+		    for (byte[] v : encoded) {
+			if (row.compare(col, v, padded) == 0) return true;
+		    }
+		    return false;
+		};
+	    }
+	};
+    }
+
+    /**
+     * Range including both ends, a NULL end is unbounded.
+     */
+    public static DMPRowFilter between(String column, Object from, Object to) {
+	checkColumn(column);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		int col = indexOf(fieldNames, column, columns);
+		if (col < 0) return row -> false;
+		DMPItemType type = col < columnTypes.size() ? columnTypes.get(col) : null;
+		boolean padded = isDateTime(type);
+		byte[] lower = from != null ? encode(from, type, charset, column) : null;
+		byte[] upper = to != null ? encode(to, type, charset, column) : null;
+		return row -> !row.isNull(col)
+			&& (lower == null || row.compare(col, lower, padded) >= 0)
+			&& (upper == null || row.compare(col, upper, padded) <= 0);
+	    }
+	};
+    }
+
+    public static DMPRowFilter greaterOrEqual(String column, Object value) {
+	return between(column, checkValue(value), null);
+    }
+
+    public static DMPRowFilter lessOrEqual(String column, Object value) {
+	return between(column, null, checkValue(value));
+    }
+
+    public static DMPRowFilter and(DMPRowFilter... filters) {
+	List<DMPRowFilter> list = checkFilters(filters);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		Predicate<DMPRowDecoder> ret = row -> true;
+		for (DMPRowFilter f : list) ret = ret.and(f.bind(fieldNames, columnTypes, charset, columns));
+		return ret;
+	    }
+	};
+    }
+
+    public static DMPRowFilter or(DMPRowFilter... filters) {
+	List<DMPRowFilter> list = checkFilters(filters);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		Predicate<DMPRowDecoder> ret = row -> false;
+		for (DMPRowFilter f : list) ret = ret.or(f.bind(fieldNames, columnTypes, charset, columns));
+		return ret;
+	    }
+	};
+    }
+
+    public static DMPRowFilter not(DMPRowFilter filter) {
+	checkFilters(filter);
+	return new DMPRowFilter() {
+	    @Override
+	    Predicate<DMPRowDecoder> bind(List<String> fieldNames, List<DMPItemType> columnTypes, DMPCharset charset, BitSet columns) {
+		return filter.bind(fieldNames, columnTypes, charset, columns).negate();
+	    }
+	};
+    }
+
+    private static void checkColumn(String column) {
+	if (column == null) {
+	    throw new IllegalArgumentException("The column must not be NULL");
+	}
+    }
+
+    private static Object checkValue(Object value) {
+	if (value == null) {
+	    throw new IllegalArgumentException("The value must not be NULL");
+	}
+	return value;
+    }
+
+    private static List<DMPRowFilter> checkFilters(DMPRowFilter... filters) {
+	if (filters == null || Arrays.asList(filters).contains(null)) {
+	    throw new IllegalArgumentException("The filters must not be NULL");
+	}
+	return List.of(filters);
+    }
+
+    private static int indexOf(List<String> fieldNames, String column, BitSet columns) {
+	if (fieldNames == null) return -1;
+	for (int i=0;i<fieldNames.size();i++) {
+	    if (fieldNames.get(i).equalsIgnoreCase(column)) {
+		columns.set(i);
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    private static boolean isDateTime(DMPItemType type) {
+	return type == DMPItemType.DATE || type == DMPItemType.TIMESTAMP;
+    }
+
+    /**
+     * Encode a filter value like the values of the column.
+     */
+    static byte[] encode(Object value, DMPItemType type, DMPCharset charset, String column) {
+	if (type == DMPItemType.NUMBER) {
+	    if (value instanceof BigDecimal v) return DMPNumber.encode(v);
+	    if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+		return DMPNumber.encode(BigDecimal.valueOf(((Number) value).longValue()));
+	    }
+	    if (value instanceof Number v) return DMPNumber.encode(new BigDecimal(v.toString()));
+	    if (value instanceof String v) return DMPNumber.encode(new BigDecimal(v));
+	} else if (isDateTime(type)) {
+	    if (value instanceof LocalDateTime v) return DMPDateTime.encode(v);
+	    if (value instanceof LocalDate v) return DMPDateTime.encode(v.atStartOfDay());
+	    if (value instanceof Timestamp v) return DMPDateTime.encode(v.toLocalDateTime());
+	} else {
+	    if (value instanceof String v) return v.getBytes(charset.getCharset());
+	    if (value instanceof byte[] v) return v;
+	}
+	throw new IllegalArgumentException("Value " + value + " can not be compared with column " + column + " of type " + type);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jansensystems.oracledmpparser;
+
+/**
+ * Callback for the incremental parsing mode, rows are handed out as soon as they are decoded.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+@FunctionalInterface
+public interface DMPRowHandler {
+
+    /**
+     * Called before the first row of a table, table name, create statement, field names and column types are set.
+     */
+    default void onTableStart(DMPTable table) {
+    }
+
+    void onRow(DMPTable table, DMPRow row);
+
+    /**
+     * Called before a checkpoint within the data of the table is passed to the checkpoint listener.
+     * A handler which buffers or batches rows has to write or commit them here, so the checkpoint covers them.
+     * It may set the outputSize of the checkpoint, to continue its output from there when the table is resumed.
+     */
+    default void onCheckpoint(DMPTable table, DMPCheckpoint checkpoint) {
+    }
+
+    default void onTableEnd(DMPTable table) {
+    }
+}
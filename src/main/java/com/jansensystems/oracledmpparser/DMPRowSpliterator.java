@@ -0,0 +1,96 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Rows of one table, split into chunks on row boundaries which can be decoded independently.
+ * Each chunk is read from its own mapping of the file, so parallel streams decode the chunks concurrently
+ * and still keep the row order.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPRowSpliterator implements Spliterator<DMPRow> {
+    private final FileChannel channel;
+    private final int windowSize;
+    private final DMPExportVersion exportVersion;
+    private final DMPCharset charset;
+    private final List<DMPItemType> columnTypes;
+    private final boolean[] projection;
+    private final DMPRowFilter rowFilter;
+    private final List<String> fieldNames;
+    private final long[] chunkStart;	// file offset of the first row of each chunk
+    private final long[] chunkRows;	// number of rows of each chunk
+    private int from;
+    private final int to;
+    private DMPScanner scanner = null;
+    private DMPRowDecoder decoder = null;
+    private long consumed = 0;
+
+    DMPRowSpliterator(FileChannel channel, int windowSize, DMPExportVersion exportVersion, DMPCharset charset, List<DMPItemType> columnTypes, boolean[] projection,
+	    DMPRowFilter rowFilter, List<String> fieldNames,
+	    long[] chunkStart, long[] chunkRows, int from, int to) {
+	this.channel = channel;
+	this.windowSize = windowSize;
+	this.exportVersion = exportVersion;
+	this.charset = charset;
+	this.columnTypes = columnTypes;
+	this.projection = projection;
+	this.rowFilter = rowFilter;
+	this.fieldNames = fieldNames;
+	this.chunkStart = chunkStart;
+	this.chunkRows = chunkRows;
+	this.from = from;
+	this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super DMPRow> action) {
+	try {
+	    if (scanner == null) {
+		if (from >= to) return false;
+		scanner = new DMPMappedScanner(channel, windowSize);
+		scanner.skip(chunkStart[from]);
+		decoder = new DMPRowDecoder(exportVersion, false, false);
+		decoder.setColumnTypes(columnTypes);
+		decoder.setProjection(projection);
+		decoder.setRowFilter(rowFilter, fieldNames);
+		decoder.setCharset(charset);
+		// the chunks of this spliterator are read in one go, up to the start of the next one
+		decoder.setDataEnd(to < chunkStart.length ? chunkStart[to] : Long.MAX_VALUE);
+	    }
+	    DMPRow row = decoder.nextRow(scanner);
+	    if (row == null) return false;
+	    consumed++;
+	    action.accept(row);
+	    return true;
+	} catch (IOException ex) {
+	    throw new UncheckedIOException(ex);
+	}
+    }
+
+    @Override
+    public Spliterator<DMPRow> trySplit() {
+	if (scanner != null || to - from < 2) return null;
+	int mid = (from + to) >>> 1;
+	DMPRowSpliterator ret = new DMPRowSpliterator(channel, windowSize, exportVersion, charset, columnTypes, projection, rowFilter, fieldNames, chunkStart, chunkRows, from, mid);
+	from = mid;
+	return ret;
+    }
+
+    @Override
+    public long estimateSize() {
+	long ret = 0;
+	for (int i=from;i<to;i++) ret += chunkRows[i];
+	return Math.max(ret - consumed, 0);
+    }
+
+    @Override
+    public int characteristics() {
+	return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,269 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Block oriented scanner over the raw dump bytes.
+ * Reads large chunks into one reusable buffer and hands out records as slices
+ * of that buffer, a slice is only valid until the next call to one of the next methods.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPScanner {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final InputStream in;
+    private final int bufferSize;
+    protected ByteBuffer buffer;
+    protected int start = 0;	// start of the current record
+    protected int pos = 0;	// scan position
+    protected int limit = 0;	// end of valid bytes in buffer
+    protected long bufferOffset = 0;	// file offset of buffer[0]
+    protected boolean eof = false;
+
+    private int recordStart = 0;
+    private int recordLength = 0;
+
+    DMPScanner(InputStream in) {
+	this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    DMPScanner(InputStream in, int bufferSize) {
+	this.in = in;
+	this.bufferSize = Math.max(bufferSize, 16);
+	this.buffer = ByteBuffer.wrap(new byte[this.bufferSize]);
+    }
+
+    /**
+     * Scanner over bytes which are completely in memory,
+     * or for scanners which provide their own buffers by overriding fill().
+     */
+    protected DMPScanner(ByteBuffer buffer) {
+	this.in = null;
+	this.bufferSize = buffer.capacity();
+	this.buffer = buffer;
+	this.limit = buffer.limit();
+    }
+
+    /**
+     * Scan to the next newline, the record excludes the newline.
+     * @return false if the end of the stream was reached, the record then contains the remaining bytes
+     */
+    boolean nextLine() throws IOException {
+	start = pos;
+	while (true) {
+	    final ByteBuffer buf = buffer;
+	    final int lim = limit;
+	    int p = pos;
+	    for (; p < lim; p++) {
+		if (buf.get(p) == 0x0a) {
+		    setRecord(start, p - start);
+		    pos = p + 1;
+		    return true;
+		}
+	    }
+	    pos = p;
+	    if (!fill()) {
+		setRecord(start, pos - start);
+		return false;
+	    }
+	}
+    }
+
+    /**
+     * Start a new record at the current position, everything before may be dropped from the buffer.
+     */
+    void mark() {
+	start = pos;
+    }
+
+    /**
+     * Make sure the given number of bytes can be read from the current position.
+     * The buffer may be compacted or replaced, so indices and the buffer itself must be fetched again afterwards.
+     * @return false if the stream ends before
+     */
+    boolean ensure(int count) throws IOException {
+	while (limit - pos < count) {
+	    if (!fill()) return false;
+	}
+	return true;
+    }
+
+    /**
+     * @return the number of bytes which can be read from the current position without filling the buffer
+     */
+    int available() {
+	return limit - pos;
+    }
+
+    int get(int index) {
+	return buffer.get(pos + index) & 0xff;
+    }
+
+    void advance(int count) {
+	pos += count;
+    }
+
+    /**
+     * Skip the given number of bytes from the current position, everything before may be dropped from the buffer.
+     * Bytes which are not in the buffer yet are skipped in the stream without reading them.
+     * @return false if the stream ends before
+     */
+    boolean skip(long count) throws IOException {
+	start = pos;
+	if (count <= limit - pos) {
+	    pos += (int) count;
+	    return true;
+	}
+	// drop the buffer completely
+	long remaining = count - (limit - pos);
+	bufferOffset += limit;
+	start = 0;
+	pos = 0;
+	limit = 0;
+	return skipInput(remaining);
+    }
+
+    /**
+     * Skip bytes of the input, the buffer is empty when called.
+     */
+    protected boolean skipInput(long count) throws IOException {
+	if (eof || in == null) return false;
+	while (count > 0) {
+	    long s = in.skip(count);
+	    if (s <= 0) {
+		// skip not possible, read a byte to find out if the stream ended
+		if (in.read() < 0) {
+		    eof = true;
+		    return false;
+		}
+		s = 1;
+	    }
+	    bufferOffset += s;
+	    count -= s;
+	}
+	return true;
+    }
+
+    private void setRecord(int offset, int length) {
+	recordStart = offset;
+	recordLength = length;
+    }
+
+    /**
+     * Read more bytes into the buffer, keeping everything from the start of the current record.
+     * @return false if no more bytes are available
+     */
+    protected boolean fill() throws IOException {
+	if (eof || in == null) return false;
+	byte[] array = buffer.array();
+	if (start > 0) {
+	    // compact, move the current record to the front
+	    int keep = limit - start;
+	    System.arraycopy(array, start, array, 0, keep);
+	    bufferOffset += start;
+	    pos -= start;
+	    limit = keep;
+	    start = 0;
+	}
+	if (limit == array.length) {
+	    // a single record larger than the buffer
+	    if (array.length >= Integer.MAX_VALUE - 8) {
+		throw new IOException("Record exceeds maximum buffer size");
+	    }
+	    int newSize = (int) Math.min((long) array.length * 2, Integer.MAX_VALUE - 8);
+	    byte[] n = new byte[newSize];
+	    System.arraycopy(array, 0, n, 0, limit);
+	    array = n;
+	    buffer = ByteBuffer.wrap(n);
+	}
+	int r = in.read(array, limit, array.length - limit);
+	while (r == 0) {
+	    r = in.read(array, limit, array.length - limit);
+	}
+	if (r < 0) {
+	    eof = true;
+	    return false;
+	}
+	limit += r;
+	return true;
+    }
+
+    ByteBuffer getBuffer() {
+	return buffer;
+    }
+
+    int getRecordStart() {
+	return recordStart;
+    }
+
+    int getRecordLength() {
+	return recordLength;
+    }
+
+    /**
+     * Copy bytes out of the buffer.
+     */
+    byte[] getBytes(int offset, int length) {
+	byte[] ret = new byte[length];
+	buffer.get(offset, ret, 0, length);
+	return ret;
+    }
+
+    /**
+     * @return the bytes of the given range, which stay valid when the buffer is reused
+     */
+    ByteBuffer slice(int offset, int length) {
+	if (in == null) {
+	    // the buffer is never reused
+	    return buffer.slice(offset, length);
+	}
+	return ByteBuffer.wrap(getBytes(offset, length));
+    }
+
+    /**
+     * Hand out the bytes from the mark to the scan position without copying them,
+     * the scanner continues in a new buffer with only the bytes after the scan position.
+     */
+    ByteBuffer detach() {
+	ByteBuffer ret = buffer.slice(start, pos - start);
+	if (in == null) {
+	    // the buffer is never reused
+	    return ret;
+	}
+	int keep = limit - pos;
+	byte[] n = new byte[Math.max(bufferSize, keep)];
+	buffer.get(pos, n, 0, keep);
+	buffer = ByteBuffer.wrap(n);
+	bufferOffset += pos;
+	start = 0;
+	pos = 0;
+	limit = keep;
+	setRecord(0, 0);
+	return ret;
+    }
+
+    int getPos() {
+	return pos;
+    }
+
+    int getMarkStart() {
+	return start;
+    }
+
+    /**
+     * @return the file offset of the first byte of the current record
+     */
+    long getRecordPosition() {
+	return bufferOffset + recordStart;
+    }
+
+    /**
+     * @return the file offset of the next byte to be scanned
+     */
+    long getPosition() {
+	return bufferOffset + pos;
+    }
+}
@@ -11,10 +11,13 @@ public class DMPTable {
     public String createTableSQL = null;
     public List<DMPRow> dataRows = null;
     public List<String> fieldNames = null;
+    public List<DMPItemType> columnTypes = null;
+    // the checkpoint from which the parse continues the table, null if the table is parsed from its start
+    public DMPCheckpoint resumedFrom = null;
 
     @Override
     public String toString() {
-	return "DMPTable{" + "tableName=" + tableName + ", dataRows=" + dataRows.size() + '}';
+	return "DMPTable{" + "tableName=" + tableName + ", dataRows=" + (dataRows != null ? dataRows.size() : 0) + '}';
     }
     
 }
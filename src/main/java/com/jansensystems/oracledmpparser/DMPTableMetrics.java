@@ -0,0 +1,51 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counters and timers of one table, see DMPParseListener.
+ * Tables which are not selected by the table filter are reported as well, their data is only skipped.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPTableMetrics {
+    public String tableName = null;
+    // false if the data was skipped without decoding
+    public boolean decoded = false;
+    // size of the data segment
+    public long bytes = 0;
+    // rows in the data segment, including the ones dropped by the row filter
+    public long rows = 0;
+    public long filteredRows = 0;
+    public long nulls = 0;
+    // type codes of the columns which could not be mapped to a DMPItemType
+    public List<Integer> unknownTypeCodes = new ArrayList<>();
+    // time to find the table and, for skipped tables, to skip its data
+    public long scanNanos = 0;
+    // time to decode the data, including the row or batch handler, which is called on the same thread
+    public long decodeNanos = 0;
+
+    /**
+     * @return the rows handed to the handler
+     */
+    public long getDeliveredRows() {
+	return decoded ? rows - filteredRows : 0;
+    }
+
+    public double getBytesPerSecond() {
+	long nanos = scanNanos + decodeNanos;
+	return nanos > 0 ? bytes * 1e9 / nanos : 0;
+    }
+
+    public double getRowsPerSecond() {
+	long nanos = scanNanos + decodeNanos;
+	return nanos > 0 ? rows * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+	return "DMPTableMetrics{" + "tableName=" + tableName + ", decoded=" + decoded + ", bytes=" + bytes + ", rows=" + rows + ", filteredRows=" + filteredRows
+		+ ", nulls=" + nulls + ", unknownTypeCodes=" + unknownTypeCodes + ", scanNanos=" + scanNanos + ", decodeNanos=" + decodeNanos + '}';
+    }
+}
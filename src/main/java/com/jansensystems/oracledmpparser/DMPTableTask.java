@@ -0,0 +1,28 @@
+package com.jansensystems.oracledmpparser;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Decoding of one table in the parallel mode.
+ * Remembers the size of the table data for the in flight limit and
+ * optionally adds itself to a queue when done, for delivery in completion order.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+class DMPTableTask extends FutureTask<DMPTable> {
+    final long length;
+    private final Queue<DMPTableTask> completed;
+
+    DMPTableTask(Callable<DMPTable> callable, long length, Queue<DMPTableTask> completed) {
+	super(callable);
+	this.length = length;
+	this.completed = completed;
+    }
+
+    @Override
+    protected void done() {
+	if (completed != null) completed.add(this);
+    }
+}
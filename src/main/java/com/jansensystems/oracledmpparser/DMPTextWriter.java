@@ -0,0 +1,615 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Writes the parsed rows into one CSV or JSON Lines file per table. The values are encoded directly from the raw bytes
+ * into an output buffer: numbers as exact decimal text, dates as ISO text and binary values as hex or base64,
+ * strings which are ASCII are copied without decoding. The output is UTF-8.
+ * Used as row handler while parsing, or with write() which can convert several tables in parallel:
+ * <pre>
+ * DMPTextWriter writer = new DMPTextWriter(Path.of("out"), DMPTextWriter.Format.CSV);
+ * writer.setParallelism(4);
+ * List&lt;Path&gt; files = writer.write(parser, file, x -&gt; true);
+ * </pre>
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPTextWriter implements DMPRowHandler, AutoCloseable {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    public enum Format {
+	// RFC 4180 with a header line, NULL is an empty field
+	CSV(".csv"),
+	// one JSON object per row with the field names as keys
+	JSON_LINES(".jsonl");
+
+	private final String extension;
+
+	Format(String extension) {
+	    this.extension = extension;
+	}
+
+	public String getExtension() {
+	    return extension;
+	}
+    }
+
+    public enum BinaryEncoding {
+	HEX, BASE64
+    }
+
+    private final Path directory;
+    private final Format format;
+    private int bufferSize = 1 << 20;
+    private BinaryEncoding binaryEncoding = BinaryEncoding.HEX;
+    private byte delimiter = ',';
+    private boolean header = true;
+    private int parallelism = 1;
+    private final List<Path> files = Collections.synchronizedList(new ArrayList<>());
+    // the table of the row handler
+    private TableFile current = null;
+
+    public DMPTextWriter(Path directory, Format format) {
+	if (directory == null) {
+	    throw new IllegalArgumentException("The directory must not be NULL");
+	}
+	if (format == null) {
+	    throw new IllegalArgumentException("The format must not be NULL");
+	}
+	this.directory = directory;
+	this.format = format;
+    }
+
+    @Override
+    public void onTableStart(DMPTable table) {
+	try {
+	    current = new TableFile(table);
+	} catch (IOException ex) {
+	    throw new UncheckedIOException(ex);
+	}
+    }
+
+    @Override
+    public void onRow(DMPTable table, DMPRow row) {
+	try {
+	    current.write(row);
+	} catch (IOException ex) {
+	    close();
+	    throw new UncheckedIOException(ex);
+	}
+    }
+
+    /**
+     * Write the buffer into the file, the checkpoint gets the size of the file.
+     */
+    @Override
+    public void onCheckpoint(DMPTable table, DMPCheckpoint checkpoint) {
+	try {
+	    checkpoint.outputSize = current.flush();
+	} catch (IOException ex) {
+	    close();
+	    throw new UncheckedIOException(ex);
+	}
+    }
+
+    @Override
+    public void onTableEnd(DMPTable table) {
+	TableFile file = current;
+	current = null;
+	try {
+	    file.finish();
+	} catch (IOException ex) {
+	    throw new UncheckedIOException(ex);
+	}
+    }
+
+    /**
+     * Close the file of a table which was not finished, because the parse failed.
+     */
+    @Override
+    public void close() {
+	if (current != null) {
+	    current.abort();
+	    current = null;
+	}
+    }
+
+    /**
+     * Write the collected rows of a table, for example in the consumer of parseParallel().
+     * May be called by several threads for different tables.
+     * @return the written file
+     */
+    public Path write(DMPTable table) throws IOException {
+	if (table == null || table.dataRows == null) {
+	    throw new IllegalArgumentException("The table and its rows must not be NULL");
+	}
+	TableFile file = new TableFile(table);
+	try {
+	    for (DMPRow row : table.dataRows) file.write(row);
+	} catch (IOException | RuntimeException ex) {
+	    file.abort();
+	    throw ex;
+	}
+	return file.finish();
+    }
+
+    /**
+     * Convert the selected tables of a dump file. With a parallelism above 1 the index is taken from the
+     * sidecar file (see DMPParser.openIndex()) and the tables are decoded and written by several threads, each streaming its table.
+     * @return the written files in the order of the tables in the dump
+     */
+    public List<Path> write(DMPParser parser, Path file, Function<String, Boolean> filter) throws IOException {
+	if (parser == null || file == null) {
+	    throw new IllegalArgumentException("The parser and the file must not be NULL");
+	}
+	final Function<String, Boolean> filter1 = (filter == null ? x -> true : filter);
+	if (parallelism == 1) {
+	    List<Path> ret = new ArrayList<>();
+	    try (DMPTextWriter writer = copy()) {
+		parser.parseRows(file, filter1, writer);
+		ret.addAll(writer.getFiles());
+	    } catch (UncheckedIOException ex) {
+		throw ex.getCause();
+	    }
+	    files.addAll(ret);
+	    return ret;
+	}
+	DMPIndex index = parser.openIndex(file);
+	ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+	try {
+	    List<Future<List<Path>>> tasks = new ArrayList<>();
+	    for (DMPIndexEntry entry : index.tables) {
+		if (entry.fieldNames == null || !filter1.apply(entry.tableName)) continue;
+		tasks.add(pool.submit(() -> {
+		    try (DMPTextWriter writer = copy()) {
+			parser.parseRows(file, index, List.of(entry.tableName), writer);
+			return writer.getFiles();
+		    }
+		}));
+	    }
+	    List<Path> ret = new ArrayList<>();
+	    for (Future<List<Path>> task : tasks) ret.addAll(task.get());
+	    files.addAll(ret);
+	    return ret;
+	} catch (InterruptedException ex) {
+	    Thread.currentThread().interrupt();
+	    throw new IOException("Writing interrupted", ex);
+	} catch (ExecutionException ex) {
+	    if (ex.getCause() instanceof IOException ioe) throw ioe;
+	    if (ex.getCause() instanceof UncheckedIOException uioe) throw uioe.getCause();
+	    if (ex.getCause() instanceof RuntimeException re) throw re;
+	    throw new RuntimeException(ex.getCause());
+	} finally {
+	    pool.shutdownNow();
+	}
+    }
+
+    /**
+     * @return a writer with the same settings and without written files, for one parse
+     */
+    private DMPTextWriter copy() {
+	DMPTextWriter ret = new DMPTextWriter(directory, format);
+	ret.bufferSize = bufferSize;
+	ret.binaryEncoding = binaryEncoding;
+	ret.delimiter = delimiter;
+	ret.header = header;
+	return ret;
+    }
+
+    /**
+     * @return the files written so far
+     */
+    public List<Path> getFiles() {
+	synchronized (files) {
+	    return new ArrayList<>(files);
+	}
+    }
+
+    /**
+     * @return the file name for the table, characters which are not allowed in file names are replaced by _
+     */
+    public Path getFile(String tableName) {
+	return directory.resolve(tableName.replaceAll("[^A-Za-z0-9_$#.-]", "_") + format.getExtension());
+    }
+
+    /**
+     * The output file of one table with its buffer.
+     */
+    private class TableFile {
+	final DMPTable table;
+	final Path path;
+	final FileChannel channel;
+	final byte[] buf;
+	int pos = 0;
+	// JSON: the keys with quotes and colon, and the comma before all but the first
+	final byte[][] keys;
+
+	TableFile(DMPTable table) throws IOException {
+	    this.table = table;
+	    if (table.fieldNames == null) {
+		throw new IllegalArgumentException("The table " + table.tableName + " has no field names");
+	    }
+	    this.path = getFile(table.tableName);
+	    this.buf = new byte[Math.max(bufferSize, 4096)];
+	    Files.createDirectories(directory);
+	    // a resumed table continues the file, without the rows written after the checkpoint
+	    boolean append = table.resumedFrom != null && Files.exists(path);
+	    if (append) {
+		this.channel = FileChannel.open(path, StandardOpenOption.WRITE);
+		if (table.resumedFrom.outputSize >= 0) channel.truncate(table.resumedFrom.outputSize);
+		channel.position(channel.size());
+	    } else {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	    }
+	    List<String> names = table.fieldNames;
+	    if (format == Format.JSON_LINES) {
+		keys = new byte[names.size()][];
+		for (int i=0;i<keys.length;i++) {
+		    pos = 0;
+		    if (i > 0) buf[pos++] = ',';
+		    writeJsonString(names.get(i).getBytes(StandardCharsets.UTF_8));
+		    buf[pos++] = ':';
+		    keys[i] = Arrays.copyOf(buf, pos);
+		}
+		pos = 0;
+	    } else {
+		keys = null;
+		if (header && !append) {
+		    for (int i=0;i<names.size();i++) {
+			if (i > 0) put(delimiter);
+			writeCsvString(names.get(i).getBytes(StandardCharsets.UTF_8));
+		    }
+		    put((byte) '\n');
+		}
+	    }
+	}
+
+	void write(DMPRow row) throws IOException {
+	    int columns = table.fieldNames.size();
+	    if (format == Format.JSON_LINES) {
+		put((byte) '{');
+		for (int i=0;i<columns;i++) {
+		    put(keys[i]);
+		    writeJsonValue(i < row.items.size() ? row.items.get(i) : null);
+		}
+		put((byte) '}');
+	    } else {
+		for (int i=0;i<columns;i++) {
+		    if (i > 0) put(delimiter);
+		    writeCsvValue(i < row.items.size() ? row.items.get(i) : null);
+		}
+	    }
+	    put((byte) '\n');
+	}
+
+	private void writeCsvValue(DMPItem item) throws IOException {
+	    if (item != null && item.isLargeValue()) {
+		// BLOB or LONG, the raw bytes are encoded
+		writeLargeBinary(item);
+		return;
+	    }
+	    if (item == null || item.noOfbytes == 0) return;
+	    switch (typeOf(item)) {
+		case NUMBER -> writeNumber(item);
+		case DATE, TIMESTAMP -> writeDateTime(item);
+		case BLOB -> writeBinary(item);
+		case STRING -> {
+		    if (isAscii(item)) {
+			writeCsvString(item.data, item.offset, item.noOfbytes);
+		    } else {
+			writeCsvString(item.getStringValue().getBytes(StandardCharsets.UTF_8));
+		    }
+		}
+		default -> {
+		}
+	    }
+	}
+
+	private void writeJsonValue(DMPItem item) throws IOException {
+	    if (item != null && item.isLargeValue()) {
+		put((byte) '"');
+		writeLargeBinary(item);
+		put((byte) '"');
+		return;
+	    }
+	    if (item == null || item.noOfbytes == 0 || item.itemType == DMPItemType.NULL) {
+		put(NULL);
+		return;
+	    }
+	    switch (typeOf(item)) {
+		case NUMBER -> {
+		    // JSON has no infinite numbers
+		    boolean infinite = DMPNumber.isInfinite(item.data, item.offset, item.noOfbytes);
+		    if (infinite) put((byte) '"');
+		    writeNumber(item);
+		    if (infinite) put((byte) '"');
+		}
+		case DATE, TIMESTAMP -> {
+		    if (!DMPDateTime.isDateTime(item.noOfbytes)) {
+			put(NULL);
+			return;
+		    }
+		    put((byte) '"');
+		    writeDateTime(item);
+		    put((byte) '"');
+		}
+		case BLOB -> {
+		    put((byte) '"');
+		    writeBinary(item);
+		    put((byte) '"');
+		}
+		case STRING -> {
+		    if (isAscii(item)) {
+			writeJsonString(item.data, item.offset, item.noOfbytes);
+		    } else {
+			writeJsonString(item.getStringValue().getBytes(StandardCharsets.UTF_8));
+		    }
+		}
+		default -> put(NULL);
+	    }
+	}
+
+	/**
+	 * @return the type of the value, values of columns without a decoded type, e.g. CHAR or RAW, are written as binary
+	 */
+	private DMPItemType typeOf(DMPItem item) {
+	    return item.itemType != null ? item.itemType : DMPItemType.BLOB;
+	}
+
+	private void writeNumber(DMPItem item) throws IOException {
+	    ensure(DMPNumber.MAX_TEXT_LENGTH);
+	    pos = DMPNumber.toText(item.data, item.offset, item.noOfbytes, buf, pos);
+	}
+
+	private void writeDateTime(DMPItem item) throws IOException {
+	    if (!DMPDateTime.isDateTime(item.noOfbytes)) return;
+	    ensure(64);
+	    pos = DMPDateTime.toText(item.data, item.offset, item.noOfbytes, buf, pos);
+	}
+
+	private void writeBinary(DMPItem item) throws IOException {
+	    writeBinary(item.data, item.offset, item.offset + item.noOfbytes);
+	}
+
+	/**
+	 * Encode a large value from its file, in parts of a multiple of 3 bytes so base64 is only padded at the end.
+	 */
+	private void writeLargeBinary(DMPItem item) throws IOException {
+	    byte[] part = new byte[3 << 14];
+	    try (InputStream in = item.getInputStream()) {
+		int n;
+		while ((n = in.readNBytes(part, 0, part.length)) > 0) {
+		    writeBinary(ByteBuffer.wrap(part), 0, n);
+		}
+	    }
+	}
+
+	private void writeBinary(ByteBuffer data, int offset, int end) throws IOException {
+	    if (binaryEncoding == BinaryEncoding.HEX) {
+		for (int i=offset;i<end;i++) {
+		    if (pos + 2 > buf.length) flush();
+		    int b = data.get(i) & 0xff;
+		    buf[pos++] = HEX[b >>> 4];
+		    buf[pos++] = HEX[b & 0x0f];
+		}
+	    } else {
+		int i = offset;
+		for (;i+3<=end;i+=3) {
+		    if (pos + 4 > buf.length) flush();
+		    int v = (data.get(i) & 0xff) << 16 | (data.get(i + 1) & 0xff) << 8 | (data.get(i + 2) & 0xff);
+		    buf[pos++] = BASE64[v >>> 18];
+		    buf[pos++] = BASE64[(v >>> 12) & 0x3f];
+		    buf[pos++] = BASE64[(v >>> 6) & 0x3f];
+		    buf[pos++] = BASE64[v & 0x3f];
+		}
+		if (i < end) {
+		    // the last 1 or 2 bytes, padded
+		    ensure(4);
+		    int v = (data.get(i) & 0xff) << 16 | (i + 1 < end ? (data.get(i + 1) & 0xff) << 8 : 0);
+		    buf[pos++] = BASE64[v >>> 18];
+		    buf[pos++] = BASE64[(v >>> 12) & 0x3f];
+		    buf[pos++] = i + 1 < end ? BASE64[(v >>> 6) & 0x3f] : (byte) '=';
+		    buf[pos++] = '=';
+		}
+	    }
+	}
+
+	private void writeCsvString(byte[] s) throws IOException {
+	    writeCsvString(ByteBuffer.wrap(s), 0, s.length);
+	}
+
+	private void writeCsvString(ByteBuffer s, int offset, int length) throws IOException {
+	    int end = offset + length;
+	    boolean quote = false;
+	    for (int i=offset;i<end && !quote;i++) {
+		byte b = s.get(i);
+		quote = b == delimiter || b == '"' || b == '\n' || b == '\r';
+	    }
+	    if (!quote) {
+		put(s, offset, length);
+		return;
+	    }
+	    put((byte) '"');
+	    for (int i=offset;i<end;i++) {
+		if (pos + 2 > buf.length) flush();
+		byte b = s.get(i);
+		if (b == '"') buf[pos++] = '"';
+		buf[pos++] = b;
+	    }
+	    put((byte) '"');
+	}
+
+	private void writeJsonString(byte[] s) throws IOException {
+	    writeJsonString(ByteBuffer.wrap(s), 0, s.length);
+	}
+
+	private void writeJsonString(ByteBuffer s, int offset, int length) throws IOException {
+	    put((byte) '"');
+	    int end = offset + length;
+	    for (int i=offset;i<end;i++) {
+		if (pos + 6 > buf.length) flush();
+		byte b = s.get(i);
+		if (b == '"' || b == '\\') {
+		    buf[pos++] = '\\';
+		    buf[pos++] = b;
+		} else if (b >= 0 && b < 0x20) {
+		    buf[pos++] = '\\';
+		    switch (b) {
+			case '\n' -> buf[pos++] = 'n';
+			case '\r' -> buf[pos++] = 'r';
+			case '\t' -> buf[pos++] = 't';
+			default -> {
+			    buf[pos++] = 'u';
+			    buf[pos++] = '0';
+			    buf[pos++] = '0';
+			    buf[pos++] = HEX[b >>> 4];
+			    buf[pos++] = HEX[b & 0x0f];
+			}
+		    }
+		} else {
+		    buf[pos++] = b;
+		}
+	    }
+	    put((byte) '"');
+	}
+
+	private boolean isAscii(DMPItem item) {
+	    // e.g. not UTF-16, where ASCII characters are written with a 0 byte
+	    if (!item.charset.isAsciiCompatible()) return false;
+	    ByteBuffer data = item.data;
+	    int end = item.offset + item.noOfbytes;
+	    for (int i=item.offset;i<end;i++) {
+		if (data.get(i) < 0) return false;
+	    }
+	    return true;
+	}
+
+	private void put(byte b) throws IOException {
+	    if (pos == buf.length) flush();
+	    buf[pos++] = b;
+	}
+
+	private void put(byte[] b) throws IOException {
+	    put(ByteBuffer.wrap(b), 0, b.length);
+	}
+
+	private void put(ByteBuffer b, int offset, int length) throws IOException {
+	    while (length > 0) {
+		if (pos == buf.length) flush();
+		int n = Math.min(length, buf.length - pos);
+		b.get(offset, buf, pos, n);
+		pos += n;
+		offset += n;
+		length -= n;
+	    }
+	}
+
+	private void ensure(int n) throws IOException {
+	    if (pos + n > buf.length) flush();
+	}
+
+	/**
+	 * @return the size of the file
+	 */
+	private long flush() throws IOException {
+	    ByteBuffer out = ByteBuffer.wrap(buf, 0, pos);
+	    while (out.hasRemaining()) channel.write(out);
+	    pos = 0;
+	    return channel.position();
+	}
+
+	Path finish() throws IOException {
+	    try (channel) {
+		flush();
+	    }
+	    files.add(path);
+	    return path;
+	}
+
+	void abort() {
+	    try {
+		channel.close();
+	    } catch (IOException ex) {
+		// the file is incomplete anyway
+	    }
+	}
+    }
+
+    public int getBufferSize() {
+	return bufferSize;
+    }
+
+    /**
+     * Size of the output buffer of each file, default is 1 MB.
+     */
+    public void setBufferSize(int bufferSize) {
+	this.bufferSize = bufferSize;
+    }
+
+    public BinaryEncoding getBinaryEncoding() {
+	return binaryEncoding;
+    }
+
+    /**
+     * Encoding of BLOB and other binary values, default is HEX.
+     */
+    public void setBinaryEncoding(BinaryEncoding binaryEncoding) {
+	this.binaryEncoding = binaryEncoding != null ? binaryEncoding : BinaryEncoding.HEX;
+    }
+
+    public char getDelimiter() {
+	return (char) delimiter;
+    }
+
+    /**
+     * Field delimiter of CSV files, default is the comma. Must be an ASCII character.
+     */
+    public void setDelimiter(char delimiter) {
+	if (delimiter == 0 || delimiter > 0x7f || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+	    throw new IllegalArgumentException("The delimiter must be an ASCII character other than quote and line breaks");
+	}
+	this.delimiter = (byte) delimiter;
+    }
+
+    public boolean isHeader() {
+	return header;
+    }
+
+    /**
+     * Write the field names as first line of CSV files, default is true.
+     */
+    public void setHeader(boolean header) {
+	this.header = header;
+    }
+
+    public int getParallelism() {
+	return parallelism;
+    }
+
+    /**
+     * Number of tables which write() converts in parallel, default is 1.
+     */
+    public void setParallelism(int parallelism) {
+	this.parallelism = Math.max(parallelism, 1);
+    }
+}
@@ -0,0 +1,196 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The volumes of a multi-volume export (exp FILE=a.dmp,b.dmp,... FILESIZE=...) as one continuous stream,
+ * to be used with the InputStream methods of DMPParser. Records may span the volume boundaries.
+ * While a volume is read, a background thread opens the next one and reads its first bytes ahead.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPVolumeInputStream extends InputStream {
+    public static final int DEFAULT_READ_AHEAD = 16 << 20;
+
+    private final List<Path> volumes;
+    private final int readAhead;
+    private int next = 0;	// index of the next volume to open
+    private Volume current = null;
+    private FutureTask<Volume> prefetch = null;
+    private boolean closed = false;
+
+    /**
+     * An opened volume with the bytes read ahead, which are returned before the rest of the channel.
+     */
+    private static class Volume {
+	final FileChannel channel;
+	final ByteBuffer head;
+
+	Volume(FileChannel channel, ByteBuffer head) {
+	    this.channel = channel;
+	    this.head = head;
+	}
+    }
+
+    public DMPVolumeInputStream(List<Path> volumes) {
+	this(volumes, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * @param readAhead number of bytes of the next volume which are read in the background, 0 only opens it
+     */
+    public DMPVolumeInputStream(List<Path> volumes, int readAhead) {
+	if (volumes == null || volumes.isEmpty()) {
+	    throw new IllegalArgumentException("The volumes must not be NULL or empty");
+	}
+	this.volumes = new ArrayList<>(volumes);
+	this.readAhead = Math.max(readAhead, 0);
+    }
+
+    /**
+     * @return the index of the volume being read, -1 before the first read
+     */
+    public int getVolume() {
+	return next - 1;
+    }
+
+    private static Volume open(Path file, int readAhead) throws IOException {
+	FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+	try {
+	    ByteBuffer head = ByteBuffer.allocate((int) Math.min(readAhead, channel.size()));
+	    while (head.hasRemaining() && channel.read(head) >= 0) {
+		// fill completely, the channel position stays after the head
+	    }
+	    head.flip();
+	    return new Volume(channel, head);
+	} catch (IOException | RuntimeException ex) {
+	    channel.close();
+	    throw ex;
+	}
+    }
+
+    /**
+     * Switch to the next volume and start reading the one after in the background.
+     * @return false if there are no more volumes
+     */
+    private boolean nextVolume() throws IOException {
+	if (current != null) {
+	    current.channel.close();
+	    current = null;
+	}
+	if (next >= volumes.size()) return false;
+	if (prefetch != null) {
+	    try {
+		current = prefetch.get();
+	    } catch (InterruptedException ex) {
+		Thread.currentThread().interrupt();
+		throw new IOException("Reading volume " + volumes.get(next) + " interrupted", ex);
+	    } catch (ExecutionException ex) {
+		if (ex.getCause() instanceof IOException ioe) throw ioe;
+		throw new IOException("Reading volume " + volumes.get(next) + " failed", ex.getCause());
+	    } finally {
+		prefetch = null;
+	    }
+	} else {
+	    // the first volume, no need to read ahead
+	    current = open(volumes.get(next), 0);
+	}
+	next++;
+	if (next < volumes.size()) {
+	    Path file = volumes.get(next);
+	    prefetch = new FutureTask<>(() -> open(file, readAhead));
+	    Thread t = new Thread(prefetch, "DMPVolumeInputStream-prefetch");
+	    t.setDaemon(true);
+	    t.start();
+	}
+	return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+	byte[] b = new byte[1];
+	return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+	if (closed) throw new IOException("Stream closed");
+	if (len == 0) return 0;
+	while (true) {
+	    if (current == null && !nextVolume()) return -1;
+	    if (current.head.hasRemaining()) {
+		int n = Math.min(len, current.head.remaining());
+		current.head.get(b, off, n);
+		return n;
+	    }
+	    int n = current.channel.read(ByteBuffer.wrap(b, off, len));
+	    if (n > 0) return n;
+	    if (n < 0 && !nextVolume()) return -1;
+	}
+    }
+
+    /**
+     * Skips by moving the channel positions, also over volume boundaries, without reading.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+	if (closed) throw new IOException("Stream closed");
+	long skipped = 0;
+	while (skipped < n) {
+	    if (current == null && !nextVolume()) break;
+	    if (current.head.hasRemaining()) {
+		int s = (int) Math.min(n - skipped, current.head.remaining());
+		current.head.position(current.head.position() + s);
+		skipped += s;
+		continue;
+	    }
+	    long position = current.channel.position();
+	    long s = Math.min(n - skipped, current.channel.size() - position);
+	    if (s <= 0) {
+		if (!nextVolume()) break;
+		continue;
+	    }
+	    current.channel.position(position + s);
+	    skipped += s;
+	}
+	return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+	if (closed || current == null) return 0;
+	long remaining = current.head.remaining() + Math.max(current.channel.size() - current.channel.position(), 0);
+	return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+	if (closed) return;
+	closed = true;
+	next = volumes.size();
+	try {
+	    if (current != null) current.channel.close();
+	} finally {
+	    current = null;
+	    if (prefetch != null) {
+		try {
+		    prefetch.get().channel.close();
+		} catch (InterruptedException ex) {
+		    Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+		    // not opened, nothing to close
+		}
+		prefetch = null;
+	    }
+	}
+    }
+}
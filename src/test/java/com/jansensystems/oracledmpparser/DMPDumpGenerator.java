@@ -0,0 +1,255 @@
+package com.jansensystems.oracledmpparser;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic dump files for tests and benchmarks. Every table starts with the NUMBER column ID
+ * holding the row number, followed by the configured column mix, values are random with a fixed seed.
+ *
+ * @author Matthias Jansen / Jansen-Systems
+ */
+public class DMPDumpGenerator {
+    // letters of STRING values for character sets other than US7ASCII
+    private static final String NON_ASCII = "\u00c4\u00d6\u00dc\u00e4\u00f6\u00fc\u00df\u00e9\u00e8\u00f1\u20ac";
+
+    private int version = 10;
+    private int tables = 1;
+    private long rowsPerTable = 1000;
+    private long targetSize = 0;
+    private List<DMPItemType> columns = List.of(DMPItemType.NUMBER, DMPItemType.STRING, DMPItemType.DATE, DMPItemType.TIMESTAMP);
+    private double nullDensity = 0.1;
+    private int stringLength = 20;
+    private int blobLength = 100;
+    private long seed = 4711;
+    // Oracle id and Java character set of the export, STRING values contain non-ASCII letters unless it is US7ASCII
+    private int charsetId = 1;
+    private Charset charset = StandardCharsets.US_ASCII;
+    private long rowCount = 0;
+
+    /**
+     * Major export version, below 8 the version 7 layout without row separators is written.
+     */
+    public void setVersion(int version) {
+	this.version = version;
+    }
+
+    public void setTables(int tables) {
+	this.tables = tables;
+    }
+
+    public void setRowsPerTable(long rowsPerTable) {
+	this.rowsPerTable = rowsPerTable;
+    }
+
+    /**
+     * Approximate file size, if set the rows per table are ignored and the size is split evenly between the tables.
+     */
+    public void setTargetSize(long targetSize) {
+	this.targetSize = targetSize;
+    }
+
+    /**
+     * The columns after the ID column, BLOB columns are written as LONG RAW in the version 7 layout.
+     */
+    public void setColumns(List<DMPItemType> columns) {
+	this.columns = columns;
+    }
+
+    /**
+     * Share of NULL values in the columns after the ID column, between 0 and 1.
+     */
+    public void setNullDensity(double nullDensity) {
+	this.nullDensity = nullDensity;
+    }
+
+    public void setStringLength(int stringLength) {
+	this.stringLength = stringLength;
+    }
+
+    /**
+     * Length of BLOB values, values longer than 16 KB are written in several parts.
+     */
+    public void setBlobLength(int blobLength) {
+	this.blobLength = blobLength;
+    }
+
+    /**
+     * Character set of the export by its Oracle id, e.g. 873 for AL32UTF8 or 178 for WE8MSWIN1252.
+     */
+    public void setCharset(int charsetId, Charset charset) {
+	this.charsetId = charsetId;
+	this.charset = charset;
+    }
+
+    public void setSeed(long seed) {
+	this.seed = seed;
+    }
+
+    /**
+     * @return the number of rows written by the last call of write()
+     */
+    public long getRowCount() {
+	return rowCount;
+    }
+
+    public void write(Path file) throws IOException {
+	try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+	    write(out);
+	}
+    }
+
+    public void write(OutputStream out) throws IOException {
+	Random random = new Random(seed);
+	boolean oldFormat = version < 8;
+	rowCount = 0;
+	long written = 0;
+	written += bytes(out, 3, charsetId >> 8, charsetId & 0xff);
+	written += ascii(out, String.format("EXPORT:V%02d.%02d.%02d\nUBENCH\nRTABLES\n8192\n0\n", version, oldFormat ? 3 : 2, oldFormat ? 4 : 1));
+	for (int t=1;t<=tables;t++) {
+	    String name = "T" + t;
+	    List<String> names = new ArrayList<>(List.of("\"ID\""));
+	    List<String> definitions = new ArrayList<>(List.of("\"ID\" NUMBER"));
+	    List<String> binds = new ArrayList<>(List.of(":1"));
+	    for (int c=0;c<columns.size();c++) {
+		names.add("\"C" + (c + 1) + "\"");
+		definitions.add("\"C" + (c + 1) + "\" " + sqlType(columns.get(c), oldFormat));
+		binds.add(":" + (c + 2));
+	    }
+	    written += ascii(out, "TABLE \"" + name + "\"\n");
+	    written += ascii(out, "CREATE TABLE \"" + name + "\" (" + String.join(", ", definitions) + ")\n");
+	    written += ascii(out, "INSERT INTO \"" + name + "\" (" + String.join(", ", names) + ") VALUES (" + String.join(", ", binds) + ")\n");
+	    written += writeColumnDefinitions(out, oldFormat);
+	    long tableEnd = targetSize > 0 ? targetSize * t / tables : 0;
+	    for (long r=0;targetSize > 0 ? written < tableEnd : r < rowsPerTable;r++) {
+		written += field(out, DMPNumber.encode(BigDecimal.valueOf(r)));
+		for (DMPItemType type : columns) {
+		    if (random.nextDouble() < nullDensity) {
+			out.write(0xfe);
+			out.write(0xff);
+			written += 2;
+		    } else {
+			written += field(out, value(type, random));
+		    }
+		}
+		if (!oldFormat) {
+		    out.write(0);
+		    out.write(0);
+		    written += 2;
+		}
+		rowCount++;
+	    }
+	    written += bytes(out, 0xff, 0xff, 0x0a);
+	}
+	ascii(out, "EXIT\n");
+    }
+
+    private long writeColumnDefinitions(OutputStream out, boolean oldFormat) throws IOException {
+	long ret = bytes(out, columns.size() + 1, 0, 2, 0, 22, 0);
+	int lobs = 0;
+	for (DMPItemType type : columns) {
+	    switch (type) {
+		case NUMBER -> ret += bytes(out, 2, 0, 22, 0);
+		case DATE -> ret += bytes(out, 12, 0, 7, 0);
+		case TIMESTAMP -> ret += bytes(out, 180, 0, 11, 0);
+		case BLOB -> {
+		    // LONG RAW before version 8
+		    ret += oldFormat ? bytes(out, 24, 0, 0, 0) : bytes(out, 113, 0, 0x48, 0);
+		    lobs++;
+		}
+		default -> {
+		    ret += bytes(out, 1, 0, stringLength & 0xff, stringLength >> 8);
+		    // charset id and form
+		    if (!oldFormat) ret += bytes(out, 0xb2, 0, 1, 0);
+		}
+	    }
+	}
+	if (lobs > 0 && !oldFormat) {
+	    // list of the LOB column names, like in a real export
+	    ret += bytes(out, 7, 0);
+	    for (int i=0;i<17;i++) ret += bytes(out, 0);
+	    for (int c=0;c<columns.size();c++) {
+		if (columns.get(c) != DMPItemType.BLOB) continue;
+		byte[] name = ("C" + (c + 1)).getBytes(StandardCharsets.US_ASCII);
+		out.write(name.length);
+		out.write(name);
+		ret += name.length + 1;
+	    }
+	    ret += bytes(out, 0);
+	}
+	ret += bytes(out, 0, 0, 0, 0);
+	return ret;
+    }
+
+    private byte[] value(DMPItemType type, Random random) {
+	return switch (type) {
+	    case NUMBER -> DMPNumber.encode(BigDecimal.valueOf(random.nextLong() % 10000000000L, random.nextInt(6)));
+	    case DATE -> DMPDateTime.encode(LocalDateTime.of(1950 + random.nextInt(100), 1 + random.nextInt(12), 1 + random.nextInt(28),
+		    random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+	    case TIMESTAMP -> DMPDateTime.encode(LocalDateTime.of(1950 + random.nextInt(100), 1 + random.nextInt(12), 1 + random.nextInt(28),
+		    random.nextInt(24), random.nextInt(60), random.nextInt(60), 1 + random.nextInt(999999999)));
+	    case BLOB -> {
+		byte[] ret = new byte[blobLength];
+		random.nextBytes(ret);
+		yield ret;
+	    }
+	    default -> {
+		byte[] ret = new byte[1 + random.nextInt(Math.max(stringLength, 1))];
+		for (int i=0;i<ret.length;i++) ret[i] = (byte) ('A' + random.nextInt(26));
+		if (charset.equals(StandardCharsets.US_ASCII)) yield ret;
+		// every other letter from outside ASCII, the length is then in characters
+		char[] c = new String(ret, StandardCharsets.US_ASCII).toCharArray();
+		for (int i=1;i<c.length;i+=2) c[i] = NON_ASCII.charAt(random.nextInt(NON_ASCII.length()));
+		yield new String(c).getBytes(charset);
+	    }
+	};
+    }
+
+    private static String sqlType(DMPItemType type, boolean oldFormat) {
+	return switch (type) {
+	    case NUMBER -> "NUMBER";
+	    case DATE -> "DATE";
+	    case TIMESTAMP -> "TIMESTAMP (9)";
+	    case BLOB -> oldFormat ? "LONG RAW" : "BLOB";
+	    default -> "VARCHAR2(4000)";
+	};
+    }
+
+    private static long field(OutputStream out, byte[] value) throws IOException {
+	long ret = 0;
+	int p = 0;
+	do {
+	    // a set high bit in the length means another part follows, fe ff and ff ff are markers
+	    // so the part length is kept well below 0x7ffe
+	    int part = Math.min(value.length - p, 0x4000);
+	    boolean more = p + part < value.length;
+	    out.write(part & 0xff);
+	    out.write((part >> 8) | (more ? 0x80 : 0));
+	    out.write(value, p, part);
+	    p += part;
+	    ret += part + 2;
+	} while (p < value.length);
+	return ret;
+    }
+
+    private static long bytes(OutputStream out, int... values) throws IOException {
+	for (int v : values) out.write(v);
+	return values.length;
+    }
+
+    private static long ascii(OutputStream out, String s) throws IOException {
+	byte[] b = s.getBytes(StandardCharsets.ISO_8859_1);
+	out.write(b);
+	return b.length;
+    }
+}
@@ -1,12 +1,55 @@
 package com.jansensystems.oracledmpparser;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /*
  * Copyright 2023 maz.
@@ -93,12 +136,12 @@ public class ParserTest {
 	Date d = new Date(2022 - 1900, 00, 01, 01, 40, 11); // => '2022-01-01 01:40:11'
 	Timestamp ts = Timestamp.valueOf("2022-06-02 08:45:40.346906000");
 	
-	Assertions.assertEquals(tables[0].dataRows.get(0).items.get(1).numberValue, 123);
-	Assertions.assertNotEquals(tables[0].dataRows.get(0).items.get(1).numberValue, 123.1);
-	Assertions.assertEquals(tables[0].dataRows.get(0).items.get(2).numberValue, 3.56789);
-	Assertions.assertEquals(tables[0].dataRows.get(1).items.get(3).stringValue, "STRING 2 TEST sadf asdf asdf asdf asdf");
-	Assertions.assertEquals(tables[0].dataRows.get(1).items.get(4).dateValue, d);
-	Assertions.assertEquals(tables[0].dataRows.get(5).items.get(6).timestampValue, ts);
+	Assertions.assertEquals(tables[0].dataRows.get(0).items.get(1).getNumberValue(), 123);
+	Assertions.assertNotEquals(tables[0].dataRows.get(0).items.get(1).getNumberValue(), 123.1);
+	Assertions.assertEquals(tables[0].dataRows.get(0).items.get(2).getNumberValue(), 3.56789);
+	Assertions.assertEquals(tables[0].dataRows.get(1).items.get(3).getStringValue(), "STRING 2 TEST sadf asdf asdf asdf asdf");
+	Assertions.assertEquals(tables[0].dataRows.get(1).items.get(4).getDateValue(), d);
+	Assertions.assertEquals(tables[0].dataRows.get(5).items.get(6).getTimestampValue(), ts);
 	// getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp");
     }
     
@@ -127,4 +170,1736 @@ public class ParserTest {
 	Assertions.assertEquals(tables[1].dataRows.size(), 4);
 	// getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp");
     }
+    
+    @Test
+    public void testParserRows() throws IOException {
+	DMPParser parser = new DMPParser();
+	List<String> events = new ArrayList<>();
+	List<DMPRow> rows = new ArrayList<>();
+	parser.parseRows(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp"), List.of("TABLE1", "TABLE2"), new DMPRowHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		events.add("start " + table.tableName + " " + table.fieldNames.size() + " " + table.columnTypes.size());
+	    }
+
+	    @Override
+	    public void onRow(DMPTable table, DMPRow row) {
+		if (table.tableName.equals("TABLE1")) rows.add(row);
+	    }
+
+	    @Override
+	    public void onTableEnd(DMPTable table) {
+		events.add("end " + table.tableName);
+		Assertions.assertNull(table.dataRows);
+	    }
+	});
+	Assertions.assertEquals(events, List.of("start TABLE1 7 7", "end TABLE1", "start TABLE2 3 3", "end TABLE2"));
+	Assertions.assertEquals(rows.size(), 7);
+	Assertions.assertEquals(rows.get(0).items.get(1).getNumberValue(), 123);
+	Assertions.assertEquals(rows.get(1).items.get(3).getStringValue(), "STRING 2 TEST sadf asdf asdf asdf asdf");
+    }
+    
+    @Test
+    public void testParserMapped() throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	DMPTable[] expected = parser.parseFile(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp")).toArray(new DMPTable[0]);
+	// small windows, so records span the window boundaries
+	for (int windowSize : new int[] {DMPMappedScanner.DEFAULT_WINDOW_SIZE, 4096, 100}) {
+	    parser.setMappedWindowSize(windowSize);
+	    DMPTable[] tables = parser.parse(file).toArray(new DMPTable[0]);
+	    Assertions.assertEquals(tables.length, expected.length);
+	    for (int i=0;i<tables.length;i++) {
+		Assertions.assertEquals(tables[i].tableName, expected[i].tableName);
+		Assertions.assertEquals(tables[i].dataRows.size(), expected[i].dataRows.size());
+		for (int r=0;r<tables[i].dataRows.size();r++) {
+		    Assertions.assertEquals(tables[i].dataRows.get(r).items.stream().map(x -> x.toString()).toList(), expected[i].dataRows.get(r).items.stream().map(x -> x.toString()).toList());
+		}
+	    }
+	}
+	DMPTable[] tables = parser.parse(file, List.of("TABLE2")).toArray(new DMPTable[0]);
+	Assertions.assertEquals(tables.length, 1);
+	Assertions.assertEquals(tables[0].dataRows.size(), 4);
+    }
+    
+    @Test
+    public void testItemBytes() throws IOException {
+	DMPParser parser = new DMPParser();
+	DMPTable[] tables = parser.parseFile(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp"), List.of("TABLE1")).toArray(new DMPTable[0]);
+	DMPRow row = tables[0].dataRows.get(0);
+	DMPItem item = row.items.get(1);
+	// 123 is coded as c2 02 18
+	Assertions.assertEquals(item.getItemType(), DMPItemType.NUMBER);
+	Assertions.assertEquals(item.getNoOfbytes(), 3);
+	Assertions.assertArrayEquals(item.getByteArray(), new byte[] {(byte) 0xc2, 0x02, 0x18});
+	Assertions.assertTrue(item.getBytes().isReadOnly());
+	Assertions.assertEquals(item.getBytes().get(0), (byte) 0xc2);
+	Assertions.assertTrue(row.getData().isReadOnly());
+	Assertions.assertEquals(row.items.get(5).getItemType(), DMPItemType.NULL);
+	Assertions.assertNull(row.items.get(5).toString());
+    }
+    
+    @Test
+    public void testNumberDecoding() throws IOException {
+	DMPParser parser = new DMPParser();
+	DMPTable[] tables = parser.parseFile(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp"), List.of("TABLE1")).toArray(new DMPTable[0]);
+	DMPItem item = tables[0].dataRows.get(0).items.get(1);
+	Assertions.assertTrue(item.isLongValue());
+	Assertions.assertEquals(item.getLongValue(), 123L);
+	Assertions.assertEquals(item.getNumber(), 123L);
+	Assertions.assertEquals(item.getStringValue(), "123");
+	item = tables[0].dataRows.get(0).items.get(2);
+	Assertions.assertFalse(item.isLongValue());
+	Assertions.assertEquals(item.getBigDecimalValue(), new BigDecimal("3.56789"));
+	Assertions.assertEquals(item.getNumber(), new BigDecimal("3.56789"));
+	Assertions.assertThrows(ArithmeticException.class, () -> tables[0].dataRows.get(0).items.get(2).getLongValue());
+
+	// negative values, 0 and infinity
+	Assertions.assertEquals(DMPNumber.toBigDecimal(ByteBuffer.wrap(new byte[] {0x3f, 0x47, 0x66}), 0, 3), new BigDecimal("-0.3"));
+	Assertions.assertEquals(DMPNumber.toDouble(ByteBuffer.wrap(new byte[] {0x40, 0x4e, 0x51, 0x66}), 0, 4), -0.00232);
+	Assertions.assertEquals(DMPNumber.toLong(ByteBuffer.wrap(new byte[] {(byte) 0x80}), 0, 1), 0L);
+	Assertions.assertEquals(DMPNumber.toDouble(ByteBuffer.wrap(new byte[] {(byte) 0xff, 0x65}), 0, 2), Double.POSITIVE_INFINITY);
+	Assertions.assertEquals(DMPNumber.toDouble(ByteBuffer.wrap(new byte[] {0x00}), 0, 1), Double.NEGATIVE_INFINITY);
+	Assertions.assertEquals(new DMPItem(ByteBuffer.wrap(new byte[] {(byte) 0xff, 0x65}), 0, 2, DMPItemType.NUMBER).getStringValue(), "Infinity");
+	Assertions.assertEquals(new DMPItem(ByteBuffer.wrap(new byte[] {0x00}), 0, 1, DMPItemType.NUMBER).getStringValue(), "-Infinity");
+	Assertions.assertEquals(DMPNumber.toNumber(ByteBuffer.allocate(0), 0, 0), BigDecimal.ZERO);
+	Assertions.assertEquals(DMPNumber.toDouble(ByteBuffer.allocate(0), 0, 0), 0d);
+
+	// the ends of the range, 80 02 is the smallest positive value and not 0
+	for (BigDecimal v : List.of(new BigDecimal("1E-130"), new BigDecimal("-1E-130"), new BigDecimal("-1.2345678901234567890123456789012345678E-130"),
+		new BigDecimal("1.2345678901234567890123456789012345678E-130"), new BigDecimal("9.9999999999999999999999999999999999999E+125"),
+		new BigDecimal("-9.9999999999999999999999999999999999999E+125"))) {
+	    byte[] b = DMPNumber.encode(v);
+	    ByteBuffer bb = ByteBuffer.wrap(b);
+	    Assertions.assertFalse(DMPNumber.isZero(bb, 0, b.length));
+	    Assertions.assertEquals(DMPNumber.toBigDecimal(bb, 0, b.length).compareTo(v), 0);
+	    Assertions.assertEquals(new DMPItem(bb, 0, b.length, DMPItemType.NUMBER).getStringValue(), v.toPlainString());
+	    byte[] text = new byte[DMPNumber.MAX_TEXT_LENGTH];
+	    Assertions.assertEquals(new String(text, 0, DMPNumber.toText(bb, 0, b.length, text, 0), StandardCharsets.US_ASCII), v.toPlainString());
+	}
+	Assertions.assertArrayEquals(DMPNumber.encode(new BigDecimal("1E-130")), new byte[] {(byte) 0x80, 0x02});
+
+	// round trip of encoded values
+	Random random = new Random(4711);
+	List<BigDecimal> values = new ArrayList<>(List.of(BigDecimal.valueOf(Long.MAX_VALUE), BigDecimal.valueOf(Long.MIN_VALUE),
+		BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE), BigDecimal.valueOf(Long.MIN_VALUE).subtract(BigDecimal.ONE),
+		new BigDecimal("100"), new BigDecimal("-1000"), new BigDecimal("0.001"), new BigDecimal("12345678901234567890.123456789")));
+	for (int i=0;i<10000;i++) {
+	    values.add(new BigDecimal(new BigInteger(random.nextInt(120) + 1, random), random.nextInt(60) - 20).multiply(BigDecimal.valueOf(random.nextBoolean() ? 1 : -1)));
+	}
+	for (BigDecimal v : values) {
+	    BigDecimal expected = v.stripTrailingZeros();
+	    if (expected.scale() < 0) expected = expected.setScale(0);
+	    // Oracle keeps at most 40 digits
+	    if (expected.precision() > 38) continue;
+	    byte[] b = DMPNumber.encode(v);
+	    ByteBuffer bb = ByteBuffer.wrap(b);
+	    Assertions.assertEquals(DMPNumber.toBigDecimal(bb, 0, b.length), expected);
+	    Assertions.assertEquals(DMPNumber.toDouble(bb, 0, b.length), expected.doubleValue());
+	    Assertions.assertEquals(new DMPItem(bb, 0, b.length, DMPItemType.NUMBER).getStringValue(), expected.toPlainString());
+	    boolean fits = expected.scale() == 0 && expected.unscaledValue().bitLength() < 64;
+	    Assertions.assertEquals(DMPNumber.fitsLong(bb, 0, b.length), fits);
+	    if (fits) Assertions.assertEquals(DMPNumber.toLong(bb, 0, b.length), expected.longValueExact());
+	}
+    }
+
+    @Test
+    public void testDateDecoding() throws IOException, InterruptedException, ExecutionException {
+	DMPParser parser = new DMPParser();
+	DMPTable[] tables = parser.parseFile(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp"), List.of("TABLE1")).toArray(new DMPTable[0]);
+	DMPItem date = tables[0].dataRows.get(1).items.get(4);
+	Assertions.assertEquals(date.getLocalDateTimeValue(), LocalDateTime.of(2022, 1, 1, 1, 40, 11));
+	Assertions.assertEquals(date.getStringValue(), "2022-01-01 01:40:11");
+	Assertions.assertEquals(date.getEpochSecond(), LocalDateTime.of(2022, 1, 1, 1, 40, 11).toEpochSecond(ZoneOffset.UTC));
+	DMPItem ts = tables[0].dataRows.get(5).items.get(6);
+	Assertions.assertEquals(ts.getLocalDateTimeValue(), LocalDateTime.of(2022, 6, 2, 8, 45, 40, 346906000));
+	Assertions.assertEquals(ts.getStringValue(), "2022-06-02 08:45:40.346906000");
+	Assertions.assertEquals(ts.getEpochNanos(), LocalDateTime.of(2022, 6, 2, 8, 45, 40).toEpochSecond(ZoneOffset.UTC) * 1000000000L + 346906000);
+	Assertions.assertThrows(DateTimeException.class, () -> tables[0].dataRows.get(0).items.get(1).getEpochSecond());
+
+	// same epoch days as java.time, also before 1970 and around leap years
+	for (LocalDate day = LocalDate.of(1599, 12, 1); day.isBefore(LocalDate.of(2401, 3, 1)); day = day.plusDays(13)) {
+	    Assertions.assertEquals(DMPDateTime.toEpochDay(day.getYear(), day.getMonthValue(), day.getDayOfMonth()), day.toEpochDay());
+	}
+
+	// concurrent parsers must not influence each other
+	ExecutorService executor = Executors.newFixedThreadPool(4);
+	try {
+	    List<Future<List<String>>> results = new ArrayList<>();
+	    for (int i=0;i<8;i++) {
+		results.add(executor.submit(() -> {
+		    List<String> ret = new ArrayList<>();
+		    for (int k=0;k<50;k++) {
+			for (DMPTable t : new DMPParser().parseFile(getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp"), List.of("TABLE1"))) {
+			    for (DMPRow r : t.dataRows) ret.add(String.valueOf(r.items.get(4).getDateValue()) + r.items.get(6).getTimestampValue());
+			}
+		    }
+		    return ret;
+		}));
+	    }
+	    List<String> expected = results.get(0).get();
+	    for (Future<List<String>> f : results) Assertions.assertEquals(f.get(), expected);
+	} finally {
+	    executor.shutdown();
+	}
+    }
+
+    @Test
+    public void testSkipTable() throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	byte[] content = Files.readAllBytes(file);
+	// rows, start and end position of each data segment
+	List<List<Long>> expected = scanSegments(new DMPScanner(new ByteArrayInputStream(content)), false);
+	Assertions.assertEquals(expected.size(), 4);
+	Assertions.assertEquals(expected.get(2).get(0), 7L);
+	Assertions.assertEquals(expected.get(3).get(0), 4L);
+	Assertions.assertEquals(scanSegments(new DMPScanner(new ByteArrayInputStream(content), 16), true), expected);
+	try (FileChannel channel = FileChannel.open(file)) {
+	    Assertions.assertEquals(scanSegments(new DMPMappedScanner(channel, 16), true), expected);
+	}
+
+	// large values are skipped in the stream without reading them
+	ByteArrayOutputStream segment = new ByteArrayOutputStream();
+	// one STRING column with charset settings, end of the column definitions
+	segment.write(new byte[] {0x01, 0x00, 0x01, 0x00, (byte) 0xe8, 0x03, (byte) 0xb2, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00});
+	for (int i=0;i<3;i++) {
+	    segment.write(new byte[] {(byte) 0xe8, 0x03});
+	    segment.write(new byte[1000]);
+	    segment.write(new byte[] {0x00, 0x00});
+	}
+	// value in two parts
+	segment.write(new byte[] {(byte) 0xe8, (byte) 0x83});
+	segment.write(new byte[1000]);
+	segment.write(new byte[] {0x05, 0x00, 1, 2, 3, 4, 5, 0x00, 0x00, (byte) 0xff, (byte) 0xff, 0x0a});
+	long[] readBytes = new long[1];
+	InputStream counting = new FilterInputStream(new ByteArrayInputStream(segment.toByteArray())) {
+	    @Override
+	    public int read(byte[] b, int off, int len) throws IOException {
+		int r = super.read(b, off, len);
+		if (r > 0) readBytes[0] += r;
+		return r;
+	    }
+	};
+	DMPScanner scanner = new DMPScanner(counting, 16);
+	DMPExportVersion version = new DMPExportVersion();
+	version.setMajor(12);
+	Assertions.assertEquals(new DMPRowDecoder(version, false, false).skip(scanner), 4L);
+	Assertions.assertEquals(scanner.getPosition(), segment.size());
+	Assertions.assertTrue(readBytes[0] < 200);
+
+	// skipped tables do not influence the wanted ones
+	DMPParser parser = new DMPParser();
+	DMPTable[] tables = parser.parseFile(new ByteArrayInputStream(content), List.of("TABLE2")).toArray(new DMPTable[0]);
+	Assertions.assertEquals(tables.length, 1);
+	Assertions.assertEquals(tables[0].dataRows.get(3).items.toString(), parser.parseFile(new ByteArrayInputStream(content)).get(3).dataRows.get(3).items.toString());
+    }
+
+    @Test
+    public void testIndex(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = dir.resolve("exptest.dmp");
+	Files.copy(Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI()), file);
+	DMPParser parser = new DMPParser();
+	DMPIndex index = parser.openIndex(file);
+	Assertions.assertTrue(Files.exists(DMPIndex.getIndexFile(file)));
+	Assertions.assertEquals(index.tables.size(), 4);
+	Assertions.assertEquals(index.exportVersion.getMajor(), 12);
+	DMPIndexEntry entry = index.getTable("table1");
+	Assertions.assertEquals(entry.rowCount, 7);
+	Assertions.assertEquals(entry.columnTypes.get(5), DMPItemType.BLOB);
+	Assertions.assertTrue(entry.insertStatement.startsWith("INSERT INTO \"TABLE1\""));
+	byte[] content = Files.readAllBytes(file);
+	Assertions.assertEquals(content[(int) entry.dataEnd - 1], 0x0a);
+	Assertions.assertEquals(new String(content, (int) entry.ddlOffset, 20), "CREATE TABLE \"TABLE1");
+
+	// second time the sidecar file is used
+	DMPIndex stored = parser.openIndex(file);
+	Assertions.assertEquals(stored.tables.size(), index.tables.size());
+	for (int i=0;i<index.tables.size();i++) {
+	    Assertions.assertEquals(stored.tables.get(i).toString(), index.tables.get(i).toString());
+	    Assertions.assertEquals(stored.tables.get(i).fieldNames, index.tables.get(i).fieldNames);
+	    Assertions.assertEquals(stored.tables.get(i).columnTypes, index.tables.get(i).columnTypes);
+	}
+
+	List<DMPTable> expected = parser.parseFile(new ByteArrayInputStream(content), List.of("TABLE1", "TABLE2"));
+	List<DMPTable> tables = parser.parse(file, stored, List.of("TABLE2", "TABLE1"));
+	Assertions.assertEquals(tables.size(), 2);
+	for (int i=0;i<tables.size();i++) {
+	    Assertions.assertEquals(tables.get(i).tableName, expected.get(i).tableName);
+	    Assertions.assertEquals(tables.get(i).createTableSQL, expected.get(i).createTableSQL);
+	    Assertions.assertEquals(tables.get(i).fieldNames, expected.get(i).fieldNames);
+	    for (int r=0;r<tables.get(i).dataRows.size();r++) {
+		Assertions.assertEquals(tables.get(i).dataRows.get(r).items.toString(), expected.get(i).dataRows.get(r).items.toString());
+	    }
+	}
+
+	// a changed file invalidates the index
+	Files.setLastModifiedTime(file, FileTime.fromMillis(index.lastModified + 2000));
+	Assertions.assertThrows(IllegalArgumentException.class, () -> parser.parse(file, stored, List.of("TABLE2")));
+	Assertions.assertEquals(parser.openIndex(file).lastModified, index.lastModified + 2000);
+    }
+
+    @Test
+    public void testParserParallel() throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file);
+	ForkJoinPool pool = new ForkJoinPool(3);
+	try {
+	    for (boolean ordered : new boolean[] {true, false}) {
+		for (long maxInFlight : new long[] {1, 1L << 30}) {
+		    parser.setOrderedOutput(ordered);
+		    parser.setMaxInFlightBytes(maxInFlight);
+		    parser.setExecutor(null);
+		    parser.setParallelism(4);
+		    List<DMPTable> tables = new ArrayList<>();
+		    parser.parseParallel(file, x -> true, tables::add);
+		    assertSameTables(tables, expected, ordered);
+		    tables.clear();
+		    parser.setExecutor(pool);
+		    parser.parseParallel(Files.newInputStream(file), x -> true, tables::add);
+		    assertSameTables(tables, expected, ordered);
+		}
+	    }
+	} finally {
+	    pool.shutdown();
+	}
+	parser.setExecutor(null);
+	List<DMPTable> tables = new ArrayList<>();
+	parser.parseParallel(file, List.of("TABLE2"), tables::add);
+	Assertions.assertEquals(tables.size(), 1);
+	Assertions.assertEquals(tables.get(0).dataRows.size(), 4);
+	// errors of the consumer are passed through
+	Assertions.assertThrows(IllegalStateException.class, () -> parser.parseParallel(file, x -> true, t -> {
+	    throw new IllegalStateException();
+	}));
+    }
+
+    private static void assertSameTables(List<DMPTable> tables, List<DMPTable> expected, boolean ordered) {
+	Assertions.assertEquals(tables.size(), expected.size());
+	if (!ordered) {
+	    tables = new ArrayList<>(tables);
+	    tables.sort((a, b) -> expected.indexOf(expected.stream().filter(x -> x.tableName.equals(a.tableName)).findFirst().get())
+		    - expected.indexOf(expected.stream().filter(x -> x.tableName.equals(b.tableName)).findFirst().get()));
+	}
+	for (int i=0;i<tables.size();i++) {
+	    Assertions.assertEquals(tables.get(i).tableName, expected.get(i).tableName);
+	    Assertions.assertEquals(tables.get(i).columnTypes, expected.get(i).columnTypes);
+	    Assertions.assertEquals(tables.get(i).dataRows.size(), expected.get(i).dataRows.size());
+	    for (int r=0;r<tables.get(i).dataRows.size();r++) {
+		Assertions.assertEquals(tables.get(i).dataRows.get(r).items.toString(), expected.get(i).dataRows.get(r).items.toString());
+	    }
+	}
+    }
+
+    @Test
+    public void testStreamRows(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPRow> expected = parser.parse(file, List.of("TABLE1")).get(0).dataRows;
+	// every row is a chunk of its own
+	parser.setRowChunkSize(1);
+	try (Stream<DMPRow> rows = parser.streamRows(file, "TABLE1")) {
+	    assertSameRows(rows.parallel().toList(), expected);
+	}
+	parser.setRowChunkSize(100);
+	try (Stream<DMPRow> rows = parser.streamRows(file, "TABLE1")) {
+	    assertSameRows(rows.toList(), expected);
+	}
+	try (Stream<DMPRow> rows = parser.streamRows(file, "IGNORE")) {
+	    Assertions.assertEquals(rows.parallel().count(), 0);
+	}
+
+	// version 7 layout without row separators
+	Path v7 = dir.resolve("v7.dmp");
+	writeV7Dump(v7, 1000);
+	expected = parser.parse(v7).get(0).dataRows;
+	Assertions.assertEquals(expected.size(), 1000);
+	Assertions.assertEquals(expected.get(999).items.get(0).getLongValue(), 999L);
+	Assertions.assertEquals(expected.get(998).items.get(1).getStringValue(), "row 998");
+	parser.setRowChunkSize(64);
+	try (Stream<DMPRow> rows = parser.streamRows(v7, "T7")) {
+	    assertSameRows(rows.parallel().toList(), expected);
+	}
+
+	// rejected rows do not run into the next chunk
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(1);
+	generator.setRowsPerTable(20000);
+	Path generated = dir.resolve("gen.dmp");
+	generator.write(generated);
+	parser.setRowFilter(DMPRowFilter.greaterOrEqual("ID", 10000));
+	parser.setRowChunkSize(4096);
+	try (Stream<DMPRow> rows = parser.streamRows(generated, "T1")) {
+	    expected = rows.toList();
+	}
+	Assertions.assertEquals(expected.size(), 10000);
+	Assertions.assertEquals(expected.get(0).items.get(0).getLongValue(), 10000L);
+	// the index is stored and reused
+	Path indexFile = DMPIndex.getIndexFile(generated);
+	Assertions.assertTrue(Files.exists(indexFile));
+	FileTime indexTime = Files.getLastModifiedTime(indexFile);
+	try (Stream<DMPRow> rows = parser.streamRows(generated, "T1")) {
+	    assertSameRows(rows.parallel().toList(), expected);
+	}
+	Assertions.assertEquals(Files.getLastModifiedTime(indexFile), indexTime);
+    }
+
+    @Test
+    public void testColumnBatches(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file);
+	Map<String, List<DMPColumnBatch>> batches = new LinkedHashMap<>();
+	parser.parseBatches(file, 3, new DMPBatchHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		batches.put(table.tableName, new ArrayList<>());
+	    }
+
+	    @Override
+	    public void onBatch(DMPTable table, DMPColumnBatch batch) {
+		batches.get(table.tableName).add(batch);
+	    }
+	});
+	Assertions.assertEquals(new ArrayList<>(batches.keySet()), expected.stream().map(x -> x.tableName).toList());
+	for (DMPTable table : expected) {
+	    assertSameBatches(batches.get(table.tableName), table.dataRows);
+	}
+	List<DMPColumnBatch> table1 = batches.get("TABLE1");
+	Assertions.assertEquals(table1.size(), 3);
+	Assertions.assertEquals(table1.get(2).getRowCount(), 1);
+	Assertions.assertTrue(table1.get(0).getColumn("keycol").isLongValues());
+	Assertions.assertNull(table1.get(0).getColumn("UNKNOWN"));
+
+	// version 7 layout from a stream
+	Path v7 = dir.resolve("v7.dmp");
+	writeV7Dump(v7, 1000);
+	List<DMPColumnBatch> v7Batches = new ArrayList<>();
+	try (InputStream in = Files.newInputStream(v7)) {
+	    parser.parseBatches(in, 64, (table, batch) -> v7Batches.add(batch));
+	}
+	Assertions.assertEquals(v7Batches.size(), 16);
+	assertSameBatches(v7Batches, parser.parse(v7).get(0).dataRows);
+	DMPColumnVector b = v7Batches.get(15).getColumn(1);
+	Assertions.assertEquals(b.getString(998 - 960), "row 998");
+	Assertions.assertTrue(b.isNull(999 - 960));
+	Assertions.assertEquals(v7Batches.get(15).getColumn(0).getLongValues()[39], 999L);
+    }
+
+    @Test
+    public void testProjection(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file);
+	parser.setProjection(DMPProjection.ofNames("keycol", "STRCOL1", "UNKNOWN"));
+	List<DMPTable> tables;
+	try (InputStream in = getClass().getClassLoader().getResourceAsStream("com/jansensystems/oracledmpparser/exptest.dmp")) {
+	    tables = parser.parseFile(in);
+	}
+	Assertions.assertEquals(tables.size(), expected.size());
+	DMPTable table1 = tables.stream().filter(x -> x.tableName.equals("TABLE1")).findFirst().get();
+	List<DMPRow> expected1 = expected.stream().filter(x -> x.tableName.equals("TABLE1")).findFirst().get().dataRows;
+	Assertions.assertEquals(table1.dataRows.size(), expected1.size());
+	for (int i=0;i<expected1.size();i++) {
+	    List<DMPItem> items = table1.dataRows.get(i).items;
+	    Assertions.assertEquals(items.size(), expected1.get(i).items.size());
+	    for (int c=0;c<items.size();c++) {
+		if (c == 0 || c == 3) {
+		    Assertions.assertEquals(String.valueOf(items.get(c)), String.valueOf(expected1.get(i).items.get(c)));
+		} else {
+		    Assertions.assertNull(items.get(c));
+		}
+	    }
+	}
+	try (Stream<DMPRow> rows = parser.streamRows(file, "TABLE1")) {
+	    Assertions.assertEquals(rows.map(x -> x.items.toString()).toList(), table1.dataRows.stream().map(x -> x.items.toString()).toList());
+	}
+
+	// by index, version 7 layout without row separators
+	Path v7 = dir.resolve("v7.dmp");
+	writeV7Dump(v7, 100);
+	parser.setProjection(DMPProjection.ofIndexes(1));
+	List<DMPRow> rows = parser.parse(v7).get(0).dataRows;
+	Assertions.assertEquals(rows.size(), 100);
+	Assertions.assertNull(rows.get(98).items.get(0));
+	Assertions.assertEquals(rows.get(98).items.get(1).getStringValue(), "row 98");
+	Assertions.assertEquals(rows.get(99).items.get(1).getItemType(), DMPItemType.NULL);
+	List<DMPColumnBatch> batches = new ArrayList<>();
+	parser.parseBatches(v7, 100, (table, batch) -> batches.add(batch));
+	Assertions.assertNull(batches.get(0).getColumn(0));
+	Assertions.assertEquals(batches.get(0).getColumn(1).getString(98), "row 98");
+	Assertions.assertTrue(batches.get(0).getColumn(1).isNull(99));
+    }
+
+    @Test
+    public void testRowFilter() throws IOException, URISyntaxException {
+	// the encodings keep the order of the values
+	Random random = new Random(4711);
+	List<BigDecimal> values = new ArrayList<>(List.of(BigDecimal.ZERO, BigDecimal.ONE, BigDecimal.ONE.negate(), new BigDecimal("-0.5"), new BigDecimal("100")));
+	for (int i=0;i<2000;i++) {
+	    values.add(new BigDecimal(new BigInteger(random.nextInt(100) + 1, random), random.nextInt(60) - 20).multiply(BigDecimal.valueOf(random.nextBoolean() ? 1 : -1)));
+	}
+	for (int i=0;i<values.size();i++) {
+	    BigDecimal v = values.get(i);
+	    BigDecimal w = values.get((i * 7 + 3) % values.size());
+	    byte[] encoded = DMPNumber.encode(v);
+	    Assertions.assertEquals(DMPNumber.toBigDecimal(ByteBuffer.wrap(encoded), 0, encoded.length).compareTo(v.round(new MathContext(38))), 0);
+	    Assertions.assertEquals(Integer.signum(Arrays.compareUnsigned(DMPNumber.encode(v), DMPNumber.encode(w))), v.compareTo(w));
+	}
+	LocalDateTime ldt = LocalDateTime.of(2022, 6, 2, 8, 45, 40, 346906000);
+	byte[] b = DMPDateTime.encode(ldt);
+	Assertions.assertEquals(DMPDateTime.toLocalDateTime(ByteBuffer.wrap(b), 0, b.length), ldt);
+	Assertions.assertEquals(DMPDateTime.encode(ldt.withNano(0)).length, 7);
+	byte[] previous = null;
+	for (int year : new int[] {-4712, -144, -101, -100, -99, -44, -1, 1, 99, 100, 1999, 9999}) {
+	    LocalDateTime t = LocalDateTime.of(year, 3, 15, 12, 0, 0);
+	    b = DMPDateTime.encode(t);
+	    Assertions.assertEquals(DMPDateTime.toLocalDateTime(ByteBuffer.wrap(b), 0, b.length), t);
+	    if (previous != null) Assertions.assertTrue(Arrays.compareUnsigned(previous, b) < 0);
+	    previous = b;
+	}
+	// 4712 BC as stored by Oracle
+	Assertions.assertArrayEquals(Arrays.copyOf(DMPDateTime.encode(LocalDateTime.of(-4712, 1, 1, 0, 0, 0)), 2), new byte[] {53, 88});
+
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPRow> all = parser.parse(file, List.of("TABLE1")).get(0).dataRows;
+	assertRowFilter(parser, file, DMPRowFilter.between("NUMCOL1", -456, 456), all, 1, 2, 3, 4, 7);
+	assertRowFilter(parser, file, DMPRowFilter.lessOrEqual("floatcol1", new BigDecimal("-0.00000000033")), all, 3, 5, 7);
+	assertRowFilter(parser, file, DMPRowFilter.greaterOrEqual("FLOATCOL1", 0.0), all, 1, 2, 4);
+	assertRowFilter(parser, file, DMPRowFilter.in("KEYCOL", 1, 6L, new BigDecimal("7")), all, 1, 6, 7);
+	assertRowFilter(parser, file, DMPRowFilter.isNull("STRCOL1"), all, 3, 4, 5, 6, 7);
+	assertRowFilter(parser, file, DMPRowFilter.eq("STRCOL1", "STRING 1 TEST"), all, 1);
+	assertRowFilter(parser, file, DMPRowFilter.between("DATECOL1", LocalDate.of(2022, 1, 1), LocalDate.of(2023, 1, 1)), all, 2);
+	assertRowFilter(parser, file, DMPRowFilter.eq("TIMESTAMP1", ldt), all, 6);
+	assertRowFilter(parser, file, DMPRowFilter.greaterOrEqual("TIMESTAMP1", LocalDate.of(2022, 6, 2)), all, 6);
+	assertRowFilter(parser, file, DMPRowFilter.or(DMPRowFilter.isNotNull("STRCOL1"), DMPRowFilter.eq("KEYCOL", 5)), all, 1, 2, 5);
+	assertRowFilter(parser, file, DMPRowFilter.and(DMPRowFilter.isNull("STRCOL1"), DMPRowFilter.not(DMPRowFilter.eq("KEYCOL", 5))), all, 3, 4, 6, 7);
+	assertRowFilter(parser, file, DMPRowFilter.isNull("UNKNOWN"), all, 1, 2, 3, 4, 5, 6, 7);
+	assertRowFilter(parser, file, DMPRowFilter.eq("UNKNOWN", 1), all);
+
+	// filter on a column which is not selected
+	parser.setProjection(DMPProjection.ofNames("KEYCOL"));
+	parser.setRowFilter(DMPRowFilter.between("NUMCOL1", 0, null));
+	List<DMPRow> rows = parser.parse(file, List.of("TABLE1")).get(0).dataRows;
+	Assertions.assertEquals(rows.stream().map(x -> x.items.get(0).getLongValue()).toList(), List.of(1L, 2L, 5L));
+	Assertions.assertNull(rows.get(0).items.get(1));
+	parser.setProjection(null);
+
+	parser.setRowFilter(DMPRowFilter.eq("STRCOL1", 5));
+	Assertions.assertThrows(IllegalArgumentException.class, () -> parser.parse(file, List.of("TABLE1")));
+	parser.setRowFilter(null);
+    }
+
+    private static void assertRowFilter(DMPParser parser, Path file, DMPRowFilter filter, List<DMPRow> all, long... keys) throws IOException {
+	List<String> expected = new ArrayList<>();
+	for (long key : keys) expected.add(all.get((int) key - 1).items.toString());
+	parser.setRowFilter(filter);
+	try {
+	    Assertions.assertEquals(parser.parse(file, List.of("TABLE1")).get(0).dataRows.stream().map(x -> x.items.toString()).toList(), expected);
+	    try (Stream<DMPRow> rows = parser.streamRows(file, "TABLE1")) {
+		Assertions.assertEquals(rows.map(x -> x.items.toString()).toList(), expected);
+	    }
+	    List<Long> batchKeys = new ArrayList<>();
+	    parser.parseBatches(file, List.of("TABLE1"), 2, (table, batch) -> {
+		for (int i=0;i<batch.getRowCount();i++) batchKeys.add(batch.getColumn(0).getLong(i));
+	    });
+	    Assertions.assertEquals(batchKeys, Arrays.stream(keys).boxed().toList());
+	} finally {
+	    parser.setRowFilter(null);
+	}
+    }
+
+    @Test
+    public void testGeneratedDump(@TempDir Path dir) throws IOException {
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(2);
+	generator.setRowsPerTable(300);
+	generator.setNullDensity(0.3);
+	generator.setColumns(List.of(DMPItemType.NUMBER, DMPItemType.STRING, DMPItemType.DATE, DMPItemType.TIMESTAMP, DMPItemType.BLOB));
+	generator.setBlobLength(40000);
+	DMPParser parser = new DMPParser();
+	for (int version : new int[] {7, 10}) {
+	    Path file = dir.resolve("gen" + version + ".dmp");
+	    generator.setVersion(version);
+	    generator.write(file);
+	    Assertions.assertEquals(generator.getRowCount(), 600L);
+	    List<DMPTable> tables = parser.parse(file);
+	    Assertions.assertEquals(tables.stream().map(x -> x.tableName).toList(), List.of("T1", "T2"));
+	    Assertions.assertEquals(tables.get(0).fieldNames, List.of("ID", "C1", "C2", "C3", "C4", "C5"));
+	    Assertions.assertEquals(tables.get(0).columnTypes, Arrays.asList(DMPItemType.NUMBER, DMPItemType.NUMBER, DMPItemType.STRING,
+		    DMPItemType.DATE, DMPItemType.TIMESTAMP, version < 8 ? null : DMPItemType.BLOB));
+	    long nulls = 0;
+	    for (DMPTable table : tables) {
+		Assertions.assertEquals(table.dataRows.size(), 300);
+		for (int i=0;i<300;i++) {
+		    List<DMPItem> items = table.dataRows.get(i).items;
+		    Assertions.assertEquals(items.get(0).getLongValue(), (long) i);
+		    Assertions.assertEquals(items.size(), 6);
+		    nulls += items.stream().filter(x -> x.getItemType() == DMPItemType.NULL).count();
+		    if (items.get(5).getItemType() != DMPItemType.NULL) Assertions.assertEquals(items.get(5).getNoOfbytes(), 40000);
+		}
+		List<DMPColumnBatch> batches = new ArrayList<>();
+		parser.parseBatches(file, List.of(table.tableName), 64, (t, batch) -> batches.add(batch));
+		assertSameBatches(batches, table.dataRows);
+	    }
+	    // 5 of 6 columns with 30 % NULL values
+	    Assertions.assertTrue(nulls > 600 * 5 * 0.25 && nulls < 600 * 5 * 0.35, "NULL values: " + nulls);
+	}
+    }
+
+    @Test
+    public void testExtract(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	Path target = dir.resolve("subset.dmp");
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file, List.of("TABLE1", "TABLE2"));
+	Assertions.assertEquals(parser.extract(file, target, List.of("table1", "TABLE2")), List.of("TABLE1", "TABLE2"));
+	assertSameTables(parser.parse(target), expected, true);
+	byte[] source = Files.readAllBytes(file);
+	byte[] subset = Files.readAllBytes(target);
+	String text = new String(subset, StandardCharsets.ISO_8859_1);
+	// header and the end of the export are kept, the sections of the other tables including their statistics are dropped
+	Assertions.assertArrayEquals(Arrays.copyOf(subset, 9153), Arrays.copyOf(source, 9153));
+	Assertions.assertFalse(text.contains("\"IGNORE"));
+	Assertions.assertTrue(text.contains("ANALCOMPUTE TR \"TABLE1\""));
+	Assertions.assertTrue(text.contains("\nENDTABLE\nMETRICEU 22\nMETRICEUG0\nEXIT\nEXIT\n"));
+
+	// all tables give the same file
+	parser.extract(file, target, x -> true);
+	Assertions.assertArrayEquals(Files.readAllBytes(target), source);
+
+	// the last table without ENDTABLE
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(3);
+	generator.setRowsPerTable(100);
+	generator.write(dir.resolve("gen.dmp"));
+	Assertions.assertEquals(parser.extract(dir.resolve("gen.dmp"), target, List.of("T2")), List.of("T2"));
+	List<DMPTable> tables = parser.parse(target);
+	Assertions.assertEquals(tables.stream().map(x -> x.tableName).toList(), List.of("T2"));
+	Assertions.assertEquals(tables.get(0).dataRows.size(), 100);
+	Assertions.assertTrue(Files.readString(target, StandardCharsets.ISO_8859_1).endsWith("\u00ff\u00ff\nEXIT\n"));
+    }
+
+    @Test
+    public void testParseListener(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	List<DMPTableMetrics> tables = new ArrayList<>();
+	List<DMPParseMetrics> totals = new ArrayList<>();
+	DMPParser parser = new DMPParser();
+	parser.setParseListener(new DMPParseListener() {
+	    @Override
+	    public void onTable(DMPTableMetrics metrics) {
+		tables.add(metrics);
+	    }
+
+	    @Override
+	    public void onParseEnd(DMPParseMetrics metrics) {
+		totals.add(metrics);
+	    }
+	});
+	parser.setRowFilter(DMPRowFilter.greaterOrEqual("KEYCOL", 3));
+	parser.parse(file, List.of("TABLE1"));
+	// tables which are not selected are reported with the skipped bytes and rows
+	Assertions.assertEquals(tables.stream().map(x -> x.tableName).toList(), List.of("IGNORE", "IGNORE2", "TABLE1", "TABLE2"));
+	Assertions.assertEquals(tables.stream().map(x -> x.decoded).toList(), List.of(false, false, true, false));
+	DMPTableMetrics table1 = tables.get(2);
+	Assertions.assertEquals(table1.rows, 7);
+	Assertions.assertEquals(table1.filteredRows, 2);
+	Assertions.assertEquals(table1.getDeliveredRows(), 5);
+	Assertions.assertEquals(table1.bytes, 325);
+	Assertions.assertTrue(table1.decodeNanos > 0);
+	Assertions.assertEquals(tables.get(3).rows, 4);
+	Assertions.assertEquals(tables.get(3).getDeliveredRows(), 0);
+	Assertions.assertEquals(totals.size(), 1);
+	Assertions.assertEquals(totals.get(0).bytes, Files.size(file));
+	Assertions.assertEquals(totals.get(0).tables, 4);
+	Assertions.assertEquals(totals.get(0).rows, 11);
+	Assertions.assertEquals(totals.get(0).deliveredRows, 5);
+
+	// nulls of all rows, also of the ones dropped by the filter
+	parser.setRowFilter(null);
+	tables.clear();
+	List<DMPTable> parsed = parser.parse(file);
+	for (int i=0;i<parsed.size();i++) {
+	    long nulls = parsed.get(i).dataRows.stream().flatMap(x -> x.items.stream()).filter(x -> x.itemType == DMPItemType.NULL).count();
+	    Assertions.assertEquals(tables.get(i).nulls, nulls);
+	}
+	Assertions.assertEquals(tables.get(2).nulls, 24);
+
+	// the same counters in the other modes
+	for (int mode=0;mode<3;mode++) {
+	    tables.clear();
+	    totals.clear();
+	    if (mode == 0) {
+		parser.parseParallel(file, x -> true, x -> {});
+	    } else if (mode == 1) {
+		parser.parseBatches(file, 2, (t, batch) -> {});
+	    } else {
+		parser.parse(file, parser.createIndex(file), List.of("TABLE1", "TABLE2"));
+	    }
+	    Assertions.assertEquals(tables.stream().filter(x -> x.tableName.equals("TABLE1")).findFirst().get().nulls, 24);
+	    Assertions.assertEquals(totals.get(0).deliveredRows, 11);
+	    Assertions.assertEquals(totals.get(0).nulls, 26);
+	}
+
+	// unknown type codes are counted per table, the column FLOAT1 of TABLE2 is changed to type 100
+	byte[] bytes = Files.readAllBytes(file);
+	int data = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("INSERT INTO \"TABLE2\"");
+	while (bytes[data] != 0x0a) data++;
+	Assertions.assertEquals(bytes[data + 11], 2);
+	bytes[data + 11] = 100;
+	tables.clear();
+	parser.parseFile(new ByteArrayInputStream(bytes));
+	Assertions.assertEquals(tables.get(3).unknownTypeCodes, List.of(100));
+	Assertions.assertEquals(tables.get(3).rows, 4);
+
+	// metrics registry
+	Map<String, Long> counters = new LinkedHashMap<>();
+	parser.setParseListener(new DMPMetricsListener(new DMPMetricsRegistry() {
+	    @Override
+	    public void count(String name, String table, long amount) {
+		counters.merge(name + "." + table, amount, Long::sum);
+	    }
+
+	    @Override
+	    public void time(String name, String table, long nanos) {
+		counters.merge(name + "." + table, 1L, Long::sum);
+	    }
+	}));
+	parser.parseFile(new ByteArrayInputStream(bytes), List.of("TABLE1"));
+	parser.parse(file, List.of("TABLE1"));
+	Assertions.assertEquals(counters.get("oracledmp.rows.TABLE1"), 14);
+	Assertions.assertEquals(counters.get("oracledmp.rows.TABLE2"), 8);
+	Assertions.assertEquals(counters.get("oracledmp.types.unknown.TABLE2"), 1);
+	Assertions.assertEquals(counters.get("oracledmp.nulls.TABLE1"), 48);
+	Assertions.assertEquals(counters.get("oracledmp.decode.TABLE1"), 2);
+	Assertions.assertNull(counters.get("oracledmp.decode.TABLE2"));
+    }
+
+    @Test
+    public void testConcurrentParsing(@TempDir Path dir) throws Exception {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withMappedWindowSize(4096));
+	List<Path> files = new ArrayList<>();
+	files.add(file);
+	for (int version : new int[] {7, 10}) {
+	    DMPDumpGenerator generator = new DMPDumpGenerator();
+	    generator.setVersion(version);
+	    generator.setTables(3);
+	    generator.setRowsPerTable(500);
+	    generator.setSeed(version);
+	    Path f = dir.resolve("gen" + version + ".dmp");
+	    generator.write(f);
+	    files.add(f);
+	}
+
+	// the export header of one file must not be kept for the next one
+	DMPParseResult generated = parser.parseRows(files.get(2), (t, row) -> {});
+	Assertions.assertEquals(generated.getExportUser(), "BENCH");
+	Assertions.assertEquals(generated.getExportTablespace(), "TABLES");
+	DMPParseResult exptest = parser.parseRows(file, (t, row) -> {});
+	Assertions.assertNotEquals(exptest.getExportUser(), "BENCH");
+	Assertions.assertEquals(exptest.getExportTablespace(), "USERS");
+	Assertions.assertEquals(exptest.getExportVersion().getMajor(), 12);
+	Assertions.assertEquals(parser.getExportTablespace(), "USERS");
+	Assertions.assertEquals(generated.getExportVersion().getMajor(), 10);
+
+	List<String> expected = new ArrayList<>();
+	for (Path f : files) expected.add(parser.parse(f).stream().map(x -> x.tableName + x.dataRows.stream().map(r -> r.items.toString()).toList()).toList().toString());
+	ExecutorService pool = Executors.newFixedThreadPool(4);
+	try {
+	    List<Future<String>> results = new ArrayList<>();
+	    for (int i=0;i<24;i++) {
+		Path f = files.get(i % files.size());
+		int mode = i % 4;
+		results.add(pool.submit(() -> {
+		    List<DMPTable> tables = new ArrayList<>();
+		    DMPParseResult result;
+		    if (mode == 0) {
+			try (InputStream in = Files.newInputStream(f)) {
+			    tables = parser.parseFile(in);
+			}
+			result = null;
+		    } else if (mode == 1) {
+			result = parser.parseParallel(f, x -> true, tables::add);
+		    } else {
+			List<DMPTable> collected = tables;
+			result = parser.parseRows(f, x -> true, new DMPRowHandler() {
+			    @Override
+			    public void onTableStart(DMPTable table) {
+				table.dataRows = new ArrayList<>();
+			    }
+
+			    @Override
+			    public void onRow(DMPTable table, DMPRow row) {
+				table.dataRows.add(row);
+			    }
+
+			    @Override
+			    public void onTableEnd(DMPTable table) {
+				collected.add(table);
+			    }
+			});
+		    }
+		    if (result != null) Assertions.assertEquals(result.getExportVersion().getMajor(), f == file ? 12 : f.getFileName().toString().equals("gen7.dmp") ? 7 : 10);
+		    return tables.stream().map(x -> x.tableName + x.dataRows.stream().map(r -> r.items.toString()).toList()).toList().toString();
+		}));
+	    }
+	    for (int i=0;i<results.size();i++) {
+		Assertions.assertEquals(results.get(i).get(), expected.get(i % files.size()));
+	    }
+	} finally {
+	    pool.shutdown();
+	}
+
+	// setters called by several threads at the same time keep all changes
+	DMPParser shared = new DMPParser();
+	ExecutorService setters = Executors.newFixedThreadPool(4);
+	try {
+	    List<Future<?>> done = new ArrayList<>();
+	    for (int t=0;t<4;t++) {
+		int setting = t;
+		done.add(setters.submit(() -> {
+		    for (int i=1;i<=5000;i++) {
+			switch (setting) {
+			    case 0 -> shared.setParallelism(i);
+			    case 1 -> shared.setRowChunkSize(i);
+			    case 2 -> shared.setMaxInFlightBytes(i);
+			    default -> shared.setCheckpointInterval(i);
+			}
+		    }
+		}));
+	    }
+	    for (Future<?> f : done) f.get();
+	} finally {
+	    setters.shutdown();
+	}
+	Assertions.assertEquals(shared.getParallelism(), 5000);
+	Assertions.assertEquals(shared.getRowChunkSize(), 5000);
+	Assertions.assertEquals(shared.getMaxInFlightBytes(), 5000L);
+	Assertions.assertEquals(shared.getCheckpointInterval(), 5000L);
+    }
+
+    @Test
+    public void testVolumes(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	byte[] bytes = Files.readAllBytes(file);
+	// boundaries in the header, in lines, in the column definitions and rows of TABLE1 and TABLE2, one volume of a single byte
+	int[] split = new int[] {0, 100, 9160, 10800, 10801, 15480, 20000, bytes.length};
+	List<Path> volumes = new ArrayList<>();
+	for (int i=1;i<split.length;i++) {
+	    Path volume = dir.resolve("exp" + i + ".dmp");
+	    Files.write(volume, Arrays.copyOfRange(bytes, split[i - 1], split[i]));
+	    volumes.add(volume);
+	}
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file);
+	for (int readAhead : new int[] {0, 64, DMPVolumeInputStream.DEFAULT_READ_AHEAD}) {
+	    try (InputStream in = new DMPVolumeInputStream(volumes, readAhead)) {
+		assertSameTables(parser.parseFile(in), expected, true);
+	    }
+	    // the tables which are not selected are skipped over the volume boundaries
+	    try (InputStream in = new DMPVolumeInputStream(volumes, readAhead)) {
+		assertSameTables(parser.parseFile(in, List.of("TABLE2")), expected.subList(3, 4), true);
+	    }
+	    try (InputStream in = new DMPVolumeInputStream(volumes, readAhead)) {
+		Assertions.assertArrayEquals(in.readAllBytes(), bytes);
+	    }
+	}
+	try (InputStream in = new DMPVolumeInputStream(volumes, 64)) {
+	    List<DMPTable> tables = new ArrayList<>();
+	    DMPParseResult result = parser.parseParallel(in, x -> true, tables::add);
+	    assertSameTables(tables, expected, true);
+	    Assertions.assertEquals(result.getExportTablespace(), "USERS");
+	}
+	try (DMPVolumeInputStream in = new DMPVolumeInputStream(volumes)) {
+	    Assertions.assertEquals(in.skip(10800), 10800);
+	    Assertions.assertEquals(in.getVolume(), 2);
+	    Assertions.assertEquals(in.read(), bytes[10800] & 0xff);
+	    Assertions.assertEquals(in.skip(bytes.length), bytes.length - 10801);
+	    Assertions.assertEquals(in.read(), -1);
+	}
+	Assertions.assertThrows(IOException.class, () -> {
+	    try (InputStream in = new DMPVolumeInputStream(List.of(volumes.get(0), dir.resolve("missing.dmp")))) {
+		parser.parseRows(in, (t, row) -> {});
+	    }
+	});
+    }
+
+    @Test
+    public void testAsyncRead() throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	byte[] bytes = Files.readAllBytes(file);
+	List<DMPTable> expected = new DMPParser().parse(file);
+	for (int bufferSize : new int[] {16, 1000, DMPAsyncInputStream.DEFAULT_BUFFER_SIZE}) {
+	    DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withAsyncReadDepth(2).withAsyncReadBufferSize(bufferSize));
+	    assertSameTables(parser.parseFile(new ByteArrayInputStream(bytes)), expected, true);
+	    // the tables which are not selected are skipped in the buffers
+	    assertSameTables(parser.parseFile(new ByteArrayInputStream(bytes), List.of("TABLE2")), expected.subList(3, 4), true);
+	    List<DMPTable> tables = new ArrayList<>();
+	    DMPParseResult result = parser.parseParallel(new ByteArrayInputStream(bytes), x -> true, tables::add);
+	    assertSameTables(tables, expected, true);
+	    Assertions.assertEquals(result.getExportTablespace(), "USERS");
+	    try (InputStream in = new DMPAsyncInputStream(new ByteArrayInputStream(bytes), bufferSize, 3)) {
+		Assertions.assertArrayEquals(in.readAllBytes(), bytes);
+	    }
+	}
+	// the wait times are reported with a listener
+	DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withAsyncReadDepth(4).withAsyncReadBufferSize(1000)
+		.withParseListener(new DMPParseListener() {}));
+	InputStream slow = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+	    @Override
+	    public int read(byte[] b, int off, int len) throws IOException {
+		try {
+		    Thread.sleep(1);
+		} catch (InterruptedException ex) {
+		    throw new InterruptedIOException();
+		}
+		return super.read(b, off, Math.min(len, 500));
+	    }
+	};
+	DMPParseResult result = parser.parseRows(slow, (t, row) -> {});
+	Assertions.assertEquals(result.getMetrics().bytes, bytes.length);
+	Assertions.assertTrue(result.getMetrics().readStalls > 0);
+	Assertions.assertTrue(result.getMetrics().readStallNanos > 0);
+	// errors of the reader thread are thrown by the parse
+	InputStream failing = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+	    @Override
+	    public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, Math.min(len, 1000));
+		if (n > 0 && ((ByteArrayInputStream) in).available() < 10000) throw new IOException("Device not ready");
+		return n;
+	    }
+	};
+	IOException ex = Assertions.assertThrows(IOException.class, () -> parser.parseRows(failing, (t, row) -> {}));
+	Assertions.assertEquals(ex.getMessage(), "Device not ready");
+    }
+
+    @Test
+    public void testJdbcLoader(@TempDir Path dir) throws IOException, URISyntaxException, SQLException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	List<DMPTable> expected = new DMPParser().parse(file);
+	DMPParser parser = new DMPParser();
+	for (int parallelism : new int[] {1, 3}) {
+	    JdbcDataSource ds = new JdbcDataSource();
+	    ds.setURL("jdbc:h2:mem:load" + parallelism + ";DB_CLOSE_DELAY=-1");
+	    try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+		s.execute("CREATE TABLE \"TABLE1\" (\"KEYCOL\" NUMERIC(38, 0), \"NUMCOL1\" NUMERIC(22, 0), \"FLOATCOL1\" DECFLOAT, \"STRCOL1\" VARCHAR(200),"
+			+ " \"DATECOL1\" TIMESTAMP, \"BLOBCOL1\" VARBINARY, \"TIMESTAMP1\" TIMESTAMP(6))");
+		s.execute("CREATE TABLE \"TABLE2\" (\"STRKEY\" VARCHAR(20), \"FLOAT1\" DECFLOAT, \"DEC1\" NUMERIC(22, 5))");
+	    }
+	    try (DMPJdbcLoader loader = new DMPJdbcLoader(ds)) {
+		loader.setBatchSize(2);
+		loader.setCommitSize(3);
+		loader.setParallelism(parallelism);
+		parser.parseRows(file, List.of("TABLE1", "TABLE2"), loader);
+		Assertions.assertEquals(loader.getLoadedRows(), Map.of("TABLE1", 7L, "TABLE2", 4L));
+	    }
+	    try (Connection c = ds.getConnection()) {
+		Assertions.assertEquals(selectRows(c, expected.get(2)), formatRows(expected.get(2)));
+		Assertions.assertEquals(selectRows(c, expected.get(3)), formatRows(expected.get(3)));
+		c.createStatement().execute("DELETE FROM \"TABLE1\"");
+	    }
+	    // collected tables, for example from parseParallel()
+	    DMPJdbcLoader loader = new DMPJdbcLoader(ds);
+	    loader.setParallelism(parallelism);
+	    parser.parseParallel(file, List.of("TABLE1"), table -> {
+		try {
+		    Assertions.assertEquals(loader.load(table), 7L);
+		} catch (SQLException ex) {
+		    throw new RuntimeException(ex);
+		}
+	    });
+	    try (Connection c = ds.getConnection()) {
+		Assertions.assertEquals(selectRows(c, expected.get(2)), formatRows(expected.get(2)));
+	    }
+	    // a missing table fails the parse
+	    try (DMPJdbcLoader failing = new DMPJdbcLoader(ds)) {
+		Assertions.assertThrows(RuntimeException.class, () -> parser.parseRows(file, List.of("IGNORE2", "TABLE2"), failing));
+		Assertions.assertEquals(failing.getLoadedRows(), Map.of());
+	    }
+	    // a failed row rolls back the table if it is committed once
+	    try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+		s.execute("DELETE FROM \"TABLE1\"");
+		s.execute("ALTER TABLE \"TABLE1\" ADD CONSTRAINT \"KEYCHECK\" CHECK (\"KEYCOL\" < 6)");
+	    }
+	    try (DMPJdbcLoader failing = new DMPJdbcLoader(ds)) {
+		failing.setParallelism(parallelism);
+		failing.setBatchSize(2);
+		failing.setCommitSize(0);
+		Assertions.assertThrows(RuntimeException.class, () -> parser.parseRows(file, List.of("TABLE1"), failing));
+	    }
+	    try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+		Assertions.assertEquals(selectRows(c, expected.get(2)), List.of());
+		s.execute("ALTER TABLE \"TABLE1\" DROP CONSTRAINT \"KEYCHECK\"");
+	    }
+	    // the CREATE TABLE statement of the table is executed
+	    DMPTable table = new DMPTable();
+	    table.tableName = "CREATED";
+	    table.createTableSQL = "CREATE TABLE \"CREATED\" (\"NAME\" VARCHAR(10), \"VALUE\" DECFLOAT)";
+	    table.fieldNames = List.of("NAME", "VALUE");
+	    table.columnTypes = List.of(DMPItemType.STRING, DMPItemType.NUMBER);
+	    table.dataRows = new ArrayList<>();
+	    for (int i=0;i<5;i++) table.dataRows.add(expected.get(3).dataRows.get(0));
+	    loader.setCreateTables(true);
+	    loader.setBatchSize(2);
+	    Assertions.assertEquals(loader.load(table), 5L);
+	    try (Connection c = ds.getConnection(); ResultSet rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM \"CREATED\"")) {
+		rs.next();
+		Assertions.assertEquals(rs.getInt(1), 5);
+	    }
+	    // an invalid date is not loaded as NULL
+	    DMPTable dates = new DMPTable();
+	    dates.tableName = "DATES";
+	    dates.createTableSQL = "CREATE TABLE \"DATES\" (\"D\" TIMESTAMP)";
+	    dates.fieldNames = List.of("D");
+	    dates.columnTypes = List.of(DMPItemType.DATE);
+	    DMPRow invalid = new DMPRow();
+	    invalid.items.add(new DMPItem(ByteBuffer.wrap(new byte[] {120, 122, 13, 1, 1, 1, 1}), 0, 7, DMPItemType.DATE));
+	    dates.dataRows = List.of(invalid);
+	    SQLException ex = Assertions.assertThrows(SQLException.class, () -> loader.load(dates));
+	    Assertions.assertTrue(ex.getMessage().contains("in column D of table DATES"), ex.getMessage());
+	}
+
+	// the LONG RAW column of version 7 has no type, its raw bytes are bound
+	Path v7 = dir.resolve("v7.dmp");
+	List<DMPRow> rows = writeV7BlobDump(v7);
+	JdbcDataSource ds = new JdbcDataSource();
+	ds.setURL("jdbc:h2:mem:loadraw;DB_CLOSE_DELAY=-1");
+	try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+	    s.execute("CREATE TABLE \"T1\" (\"ID\" NUMERIC(10, 0), \"C1\" VARBINARY)");
+	}
+	try (DMPJdbcLoader loader = new DMPJdbcLoader(ds)) {
+	    parser.parseRows(v7, loader);
+	    Assertions.assertEquals(loader.getLoadedRows(), Map.of("T1", 20L));
+	}
+	try (Connection c = ds.getConnection(); ResultSet rs = c.createStatement().executeQuery("SELECT \"ID\", \"C1\" FROM \"T1\" ORDER BY \"ID\"")) {
+	    for (DMPRow row : rows) {
+		Assertions.assertTrue(rs.next());
+		DMPItem item = row.items.get(1);
+		Assertions.assertArrayEquals(rs.getBytes(2), item.getItemType() == DMPItemType.NULL ? null : item.getByteArray());
+	    }
+	}
+    }
+
+    @Test
+    public void testTextWriter(@TempDir Path dir) throws IOException, URISyntaxException {
+	// numbers and dates are encoded like the decoded values
+	Random random = new Random(21);
+	byte[] out = new byte[DMPNumber.MAX_TEXT_LENGTH];
+	List<BigDecimal> numbers = new ArrayList<>(List.of(BigDecimal.ZERO, BigDecimal.ONE, new BigDecimal("100"), new BigDecimal("-0.05"),
+		new BigDecimal("1E+125"), new BigDecimal("-1E-130"), new BigDecimal("9.9999999999999999999999999999999999999E+125"),
+		new BigDecimal("-123456789012345678901234567890.12345678")));
+	for (int i=0;i<2000;i++) numbers.add(new BigDecimal(BigInteger.valueOf(random.nextLong()), random.nextInt(60) - 30));
+	for (BigDecimal n : numbers) {
+	    ByteBuffer b = ByteBuffer.wrap(DMPNumber.encode(n));
+	    int length = DMPNumber.toText(b, 0, b.limit(), out, 0);
+	    Assertions.assertEquals(new String(out, 0, length, StandardCharsets.US_ASCII), DMPNumber.toBigDecimal(b, 0, b.limit()).toPlainString());
+	}
+	Assertions.assertEquals(new String(out, 0, DMPNumber.toText(ByteBuffer.wrap(new byte[] {0}), 0, 1, out, 0), StandardCharsets.US_ASCII), "-Infinity");
+	for (LocalDateTime t : List.of(LocalDateTime.of(2023, 11, 1, 8, 40, 28), LocalDateTime.of(1, 1, 1, 0, 0, 0, 1), LocalDateTime.of(-44, 3, 15, 12, 0, 0))) {
+	    ByteBuffer b = ByteBuffer.wrap(DMPDateTime.encode(t));
+	    int length = DMPDateTime.toText(b, 0, b.limit(), out, 0);
+	    Assertions.assertEquals(new String(out, 0, length, StandardCharsets.US_ASCII), DMPDateTime.toString(b, 0, b.limit()).replace(' ', 'T'));
+	}
+
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	List<DMPTable> expected = parser.parse(file);
+	DMPTextWriter writer = new DMPTextWriter(dir.resolve("csv"), DMPTextWriter.Format.CSV);
+	// small buffer, so it is flushed within rows
+	writer.setBufferSize(16);
+	List<Path> files = writer.write(parser, file, x -> x.startsWith("TABLE"));
+	Assertions.assertEquals(files, List.of(writer.getFile("TABLE1"), writer.getFile("TABLE2")));
+	for (int i=0;i<2;i++) {
+	    DMPTable table = expected.get(2 + i);
+	    StringBuilder csv = new StringBuilder(String.join(",", table.fieldNames)).append('\n');
+	    for (DMPRow row : table.dataRows) {
+		List<String> values = new ArrayList<>();
+		for (int c=0;c<table.fieldNames.size();c++) {
+		    DMPItem item = c < row.items.size() ? row.items.get(c) : null;
+		    if (item == null || item.getNoOfbytes() == 0 || item.getItemType() == DMPItemType.NULL) {
+			values.add("");
+		    } else {
+			values.add(switch (item.getItemType()) {
+			    case DATE, TIMESTAMP -> item.getStringValue().replace(' ', 'T');
+			    case BLOB -> HexFormat.of().formatHex(item.getByteArray());
+			    default -> item.getStringValue().contains(",") ? "\"" + item.getStringValue() + "\"" : item.getStringValue();
+			});
+		    }
+		}
+		csv.append(String.join(",", values)).append('\n');
+	    }
+	    Assertions.assertEquals(Files.readString(files.get(i)), csv.toString());
+	}
+	// parallel tables, JSON Lines
+	List<Path> sequential = new DMPTextWriter(dir.resolve("json1"), DMPTextWriter.Format.JSON_LINES).write(parser, file, null);
+	DMPTextWriter parallel = new DMPTextWriter(dir.resolve("json2"), DMPTextWriter.Format.JSON_LINES);
+	parallel.setParallelism(3);
+	Files.deleteIfExists(DMPIndex.getIndexFile(file));
+	List<Path> parallelFiles = parallel.write(parser, file, null);
+	Assertions.assertEquals(parallelFiles.size(), 4);
+	// the index is kept in the sidecar file for the next conversion
+	Assertions.assertTrue(Files.exists(DMPIndex.getIndexFile(file)));
+	for (int i=0;i<4;i++) {
+	    Assertions.assertEquals(parallelFiles.get(i).getFileName(), sequential.get(i).getFileName());
+	    Assertions.assertEquals(Files.readString(parallelFiles.get(i)), Files.readString(sequential.get(i)));
+	}
+	Assertions.assertEquals(Files.readAllLines(sequential.get(3)).get(0), "{\"STRKEY\":\"K1\",\"FLOAT1\":1,\"DEC1\":14}");
+	Assertions.assertEquals(Files.readAllLines(sequential.get(0)).size(), 0);
+
+	// quoting, escaping, non-ASCII strings and base64
+	DMPTable table = new DMPTable();
+	table.tableName = "TEXT/1";
+	table.fieldNames = List.of("S", "B", "N");
+	table.dataRows = new ArrayList<>();
+	byte[] blob = new byte[100];
+	random.nextBytes(blob);
+	for (String text : List.of("plain", "a,b", "say \"hi\"", "two\nlines\t\u0001", "gr\u00fc\u00dfe")) {
+	    for (int len : new int[] {0, 1, 2, 3, 100}) {
+		DMPRow row = new DMPRow();
+		byte[] bytes = text.getBytes(Charset.defaultCharset());
+		row.items.add(new DMPItem(ByteBuffer.wrap(bytes), 0, bytes.length, DMPItemType.STRING));
+		row.items.add(new DMPItem(ByteBuffer.wrap(blob), 0, len, DMPItemType.BLOB));
+		table.dataRows.add(row);
+	    }
+	}
+	DMPTextWriter textWriter = new DMPTextWriter(dir, DMPTextWriter.Format.CSV);
+	textWriter.setBinaryEncoding(DMPTextWriter.BinaryEncoding.BASE64);
+	textWriter.setDelimiter(';');
+	textWriter.setHeader(false);
+	Path csvFile = textWriter.write(table);
+	Assertions.assertEquals(csvFile, dir.resolve("TEXT_1.csv"));
+	List<String> lines = Files.readAllLines(csvFile, StandardCharsets.UTF_8);
+	Assertions.assertEquals(lines.get(0), "plain;;");
+	Assertions.assertEquals(lines.get(4), "plain;" + Base64.getEncoder().encodeToString(blob) + ";");
+	Assertions.assertEquals(lines.get(7), "a,b;" + Base64.getEncoder().encodeToString(Arrays.copyOf(blob, 2)) + ";");
+	Assertions.assertEquals(lines.get(11), "\"say \"\"hi\"\"\";" + Base64.getEncoder().encodeToString(Arrays.copyOf(blob, 1)) + ";");
+	Assertions.assertEquals(lines.get(15) + "\n" + lines.get(16), "\"two\nlines\t\u0001\";;");
+	// strings are decoded with the default charset
+	String decoded = new String("gr\u00fc\u00dfe".getBytes(Charset.defaultCharset()), Charset.defaultCharset());
+	Assertions.assertEquals(lines.get(lines.size() - 1), decoded + ";" + Base64.getEncoder().encodeToString(blob) + ";");
+	DMPTextWriter jsonWriter = new DMPTextWriter(dir, DMPTextWriter.Format.JSON_LINES);
+	lines = Files.readAllLines(jsonWriter.write(table), StandardCharsets.UTF_8);
+	Assertions.assertEquals(lines.get(16), "{\"S\":\"two\\nlines\\t\\u0001\",\"B\":\"" + HexFormat.of().formatHex(blob, 0, 1) + "\",\"N\":null}");
+	Assertions.assertEquals(lines.get(11), "{\"S\":\"say \\\"hi\\\"\",\"B\":\"" + HexFormat.of().formatHex(blob, 0, 1) + "\",\"N\":null}");
+	Assertions.assertEquals(lines.get(20), "{\"S\":\"" + decoded + "\",\"B\":null,\"N\":null}");
+
+	// ASCII text is only copied as it is for ASCII compatible character sets
+	DMPTable utf16 = new DMPTable();
+	utf16.tableName = "UTF16";
+	utf16.fieldNames = List.of("S");
+	utf16.dataRows = new ArrayList<>();
+	for (String text : List.of("plain", "gr\u00fc\u00dfe")) {
+	    DMPRow row = new DMPRow();
+	    byte[] bytes = text.getBytes(StandardCharsets.UTF_16BE);
+	    DMPItem item = new DMPItem(ByteBuffer.wrap(bytes), 0, bytes.length, DMPItemType.STRING);
+	    item.charset = DMPCharset.of(StandardCharsets.UTF_16BE);
+	    row.items.add(item);
+	    utf16.dataRows.add(row);
+	}
+	Assertions.assertEquals(Files.readAllLines(textWriter.write(utf16), StandardCharsets.UTF_8), List.of("plain", "gr\u00fc\u00dfe"));
+	Assertions.assertEquals(Files.readAllLines(jsonWriter.write(utf16), StandardCharsets.UTF_8),
+		List.of("{\"S\":\"plain\"}", "{\"S\":\"gr\u00fc\u00dfe\"}"));
+
+	// the LONG RAW column of version 7 has no type, it is written as binary
+	Path v7 = dir.resolve("v7.dmp");
+	List<DMPRow> rows = writeV7BlobDump(v7);
+	List<String> csvLines = Files.readAllLines(new DMPTextWriter(dir.resolve("v7csv"), DMPTextWriter.Format.CSV).write(parser, v7, null).get(0));
+	List<String> jsonLines = Files.readAllLines(new DMPTextWriter(dir.resolve("v7json"), DMPTextWriter.Format.JSON_LINES).write(parser, v7, null).get(0));
+	for (int i=0;i<rows.size();i++) {
+	    DMPItem item = rows.get(i).items.get(1);
+	    String hex = item.getItemType() == DMPItemType.NULL ? null : HexFormat.of().formatHex(item.getByteArray());
+	    Assertions.assertEquals(csvLines.get(i + 1), i + "," + (hex != null ? hex : ""));
+	    Assertions.assertEquals(jsonLines.get(i), "{\"ID\":" + i + ",\"C1\":" + (hex != null ? "\"" + hex + "\"" : "null") + "}");
+	}
+    }
+
+    @Test
+    public void testCheckpoints(@TempDir Path dir) throws IOException, URISyntaxException, SQLException {
+	List<Path> files = new ArrayList<>();
+	files.add(Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI()));
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(3);
+	generator.setRowsPerTable(100);
+	generator.setColumns(List.of(DMPItemType.NUMBER, DMPItemType.STRING, DMPItemType.DATE, DMPItemType.TIMESTAMP, DMPItemType.BLOB));
+	generator.setBlobLength(300);
+	for (int version : new int[] {7, 10}) {
+	    Path file = dir.resolve("gen" + version + ".dmp");
+	    generator.setVersion(version);
+	    generator.write(file);
+	    files.add(file);
+	}
+	Path checkpointFile = dir.resolve("parse.checkpoint");
+	for (Path file : files) {
+	    List<String> expected = new ArrayList<>();
+	    new DMPParser().parseRows(file, (t, row) -> expected.add(rowText(t, row)));
+	    for (long interval : new long[] {1, 5000}) {
+		List<String> rows = new ArrayList<>();
+		List<DMPCheckpoint> checkpoints = new ArrayList<>();
+		List<Integer> delivered = new ArrayList<>();
+		DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(interval).withCheckpointListener(c -> {
+		    checkpoints.add(c);
+		    delivered.add(rows.size());
+		}));
+		parser.parseRows(file, (t, row) -> rows.add(rowText(t, row)));
+		Assertions.assertEquals(rows, expected);
+		Assertions.assertTrue(checkpoints.size() > (interval == 1 ? 10 : 0));
+		for (int i=0;i<checkpoints.size();i+=Math.max(checkpoints.size() / 40, 1)) {
+		    checkpoints.get(i).write(checkpointFile);
+		    DMPCheckpoint checkpoint = DMPCheckpoint.read(checkpointFile);
+		    List<String> before = expected.subList(0, delivered.get(i));
+		    if (checkpoint.isInTable()) {
+			Assertions.assertEquals(checkpoint.rowCount, before.stream().filter(x -> x.startsWith(checkpoint.tableName + ":")).count());
+			Assertions.assertEquals(checkpoint.columnTypes.size(), checkpoint.fieldNames.size());
+		    }
+		    List<String> resumed = new ArrayList<>(before);
+		    List<DMPCheckpoint> next = new ArrayList<>();
+		    List<Integer> nextDelivered = new ArrayList<>();
+		    DMPParser resumer = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(interval).withCheckpointListener(c -> {
+			next.add(c);
+			nextDelivered.add(resumed.size());
+		    }));
+		    DMPParseResult result = resumer.parseRows(file, checkpoint, null, (t, row) -> resumed.add(rowText(t, row)));
+		    Assertions.assertEquals(resumed, expected);
+		    Assertions.assertEquals(result.getExportUser(), checkpoint.exportUser);
+		    Assertions.assertEquals(result.getExportVersion().getMajor(), checkpoint.exportVersion.getMajor());
+		    // the checkpoints of a continued parse continue as well
+		    if (!next.isEmpty()) {
+			int k = next.size() / 2;
+			List<String> again = new ArrayList<>(expected.subList(0, nextDelivered.get(k)));
+			new DMPParser().parseRows(file, next.get(k), null, (t, row) -> again.add(rowText(t, row)));
+			Assertions.assertEquals(again, expected);
+			if (next.get(k).isInTable()) {
+			    String table = next.get(k).tableName;
+			    Assertions.assertEquals(next.get(k).rowCount, again.subList(0, nextDelivered.get(k)).stream().filter(x -> x.startsWith(table + ":")).count());
+			}
+		    }
+		}
+	    }
+	}
+
+	// selected tables and column batches
+	Path file = files.get(0);
+	List<String> expected = new ArrayList<>();
+	new DMPParser().parseRows(file, List.of("TABLE2"), (t, row) -> expected.add(rowText(t, row)));
+	List<DMPCheckpoint> checkpoints = new ArrayList<>();
+	DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(1).withCheckpointListener(checkpoints::add));
+	parser.parseRows(file, List.of("TABLE2"), (t, row) -> {});
+	for (DMPCheckpoint checkpoint : checkpoints) {
+	    List<String> resumed = new ArrayList<>();
+	    new DMPParser().parseRows(file, checkpoint, x -> x.equals("TABLE2"), (t, row) -> resumed.add(rowText(t, row)));
+	    Assertions.assertEquals(resumed, expected.subList(expected.size() - resumed.size(), expected.size()));
+	}
+	checkpoints.clear();
+	List<Integer> delivered = new ArrayList<>();
+	long[] count = new long[1];
+	parser = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(1).withCheckpointListener(c -> {
+	    checkpoints.add(c);
+	    delivered.add((int) count[0]);
+	}));
+	parser.parseBatches(file, 3, (t, batch) -> count[0] += batch.getRowCount());
+	Assertions.assertEquals(count[0], 11L);
+	Assertions.assertTrue(checkpoints.stream().anyMatch(DMPCheckpoint::isInTable));
+	for (int i=0;i<checkpoints.size();i++) {
+	    long[] resumed = new long[] {delivered.get(i)};
+	    new DMPParser().parseBatches(file, checkpoints.get(i), null, 3, (t, batch) -> resumed[0] += batch.getRowCount());
+	    Assertions.assertEquals(resumed[0], 11L);
+	}
+	// parallel parses create no checkpoints
+	checkpoints.clear();
+	parser.parseParallel(file, x -> !x.equals("TABLE1"), t -> {});
+	Assertions.assertEquals(checkpoints.size(), 0);
+	DMPCheckpoint outside = new DMPCheckpoint();
+	outside.offset = Files.size(file) + 1;
+	Assertions.assertThrows(IllegalArgumentException.class, () -> new DMPParser().parseRows(file, outside, null, (t, row) -> {}));
+
+	// the text writer and the JDBC loader store their rows before a checkpoint, a resumed parse continues their output
+	generator.setTables(2);
+	generator.setRowsPerTable(500);
+	generator.setColumns(List.of(DMPItemType.NUMBER, DMPItemType.STRING));
+	generator.setVersion(10);
+	Path sinkFile = dir.resolve("sinks.dmp");
+	generator.write(sinkFile);
+	List<DMPTable> tables = new DMPParser().parse(sinkFile);
+	for (DMPTextWriter.Format format : DMPTextWriter.Format.values()) {
+	    DMPTextWriter full = new DMPTextWriter(dir.resolve("full"), format);
+	    full.write(new DMPParser(), sinkFile, null);
+	    DMPTextWriter writer = new DMPTextWriter(dir.resolve("resumed"), format);
+	    writer.setBufferSize(4096);
+	    List<DMPCheckpoint> stored = new ArrayList<>();
+	    DMPParser crashing = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(6000).withCheckpointListener(stored::add));
+	    Assertions.assertThrows(IllegalStateException.class, () -> crashing.parseRows(sinkFile, failAfter(writer, 880)));
+	    writer.close();
+	    stored.get(stored.size() - 1).write(checkpointFile);
+	    DMPCheckpoint checkpoint = DMPCheckpoint.read(checkpointFile);
+	    Assertions.assertEquals(checkpoint.tableName, "T2");
+	    Assertions.assertTrue(checkpoint.outputSize > 0);
+	    Assertions.assertTrue(checkpoint.outputSize < Files.size(writer.getFile("T2")));
+	    new DMPParser().parseRows(sinkFile, checkpoint, null, writer);
+	    for (DMPTable table : tables) {
+		Assertions.assertEquals(Files.readString(writer.getFile(table.tableName)), Files.readString(full.getFile(table.tableName)));
+	    }
+	}
+	for (int parallelism : new int[] {1, 3}) {
+	    JdbcDataSource ds = new JdbcDataSource();
+	    ds.setURL("jdbc:h2:mem:checkpoints" + parallelism + ";DB_CLOSE_DELAY=-1");
+	    List<DMPCheckpoint> stored = new ArrayList<>();
+	    DMPParser crashing = new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(6000).withCheckpointListener(stored::add));
+	    try (DMPJdbcLoader loader = new DMPJdbcLoader(ds)) {
+		loader.setCreateTables(true);
+		loader.setParallelism(parallelism);
+		loader.setBatchSize(7);
+		loader.setCommitSize(0);
+		Assertions.assertThrows(IllegalStateException.class, () -> crashing.parseRows(sinkFile, failAfter(loader, 880)));
+	    }
+	    DMPCheckpoint checkpoint = stored.get(stored.size() - 1);
+	    try (Connection c = ds.getConnection(); ResultSet rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM \"T2\"")) {
+		rs.next();
+		Assertions.assertEquals(rs.getLong(1), checkpoint.rowCount);
+	    }
+	    try (DMPJdbcLoader loader = new DMPJdbcLoader(ds)) {
+		loader.setCreateTables(true);
+		loader.setParallelism(parallelism);
+		loader.setBatchSize(7);
+		new DMPParser().parseRows(sinkFile, checkpoint, null, loader);
+		Assertions.assertEquals(loader.getLoadedRows(), Map.of("T2", 500 - checkpoint.rowCount));
+	    }
+	    try (Connection c = ds.getConnection()) {
+		for (DMPTable table : tables) Assertions.assertEquals(selectRows(c, table), formatRows(table));
+	    }
+	}
+    }
+
+    @Test
+    public void testLargeValues(@TempDir Path dir) throws IOException {
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(2);
+	generator.setRowsPerTable(12);
+	generator.setColumns(List.of(DMPItemType.STRING, DMPItemType.BLOB, DMPItemType.NUMBER, DMPItemType.BLOB));
+	generator.setNullDensity(0.1);
+	// several parts per value
+	generator.setBlobLength(100000);
+	Path lobs = Files.createDirectory(dir.resolve("lobs"));
+	for (int version : new int[] {7, 10}) {
+	    Path file = dir.resolve("gen" + version + ".dmp");
+	    generator.setVersion(version);
+	    generator.write(file);
+	    List<List<byte[]>> expected = new ArrayList<>();
+	    new DMPParser().parseRows(file, (t, row) -> expected.add(row.items.stream().map(x -> x.getByteArray()).toList()));
+	    DMPParser parser = new DMPParser(DMPParserConfig.DEFAULT.withLargeValueThreshold(50000).withLargeValueDirectory(lobs));
+	    for (boolean stream : new boolean[] {false, true}) {
+		List<DMPItem> large = new ArrayList<>();
+		List<List<byte[]>> rows = new ArrayList<>();
+		DMPRowHandler handler = (t, row) -> {
+		    List<byte[]> values = new ArrayList<>();
+		    for (DMPItem item : row.items) {
+			if (item.getItemType() == DMPItemType.BLOB || item.getItemType() == null) {
+			    Assertions.assertTrue(item.isLargeValue());
+			    Assertions.assertEquals(item.getLength(), 100000L);
+			    large.add(item);
+			    try (InputStream in = item.getInputStream()) {
+				values.add(in.readAllBytes());
+			    } catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			    }
+			} else {
+			    Assertions.assertFalse(item.isLargeValue());
+			    values.add(item.getByteArray());
+			}
+		    }
+		    rows.add(values);
+		};
+		if (stream) {
+		    try (InputStream in = Files.newInputStream(file)) {
+			parser.parseRows(in, handler);
+		    }
+		} else {
+		    parser.parseRows(file, handler);
+		}
+		Assertions.assertEquals(rows.size(), expected.size());
+		for (int i=0;i<rows.size();i++) {
+		    Assertions.assertEquals(rows.get(i).size(), expected.get(i).size());
+		    for (int j=0;j<rows.get(i).size();j++) Assertions.assertArrayEquals(rows.get(i).get(j), expected.get(i).get(j));
+		}
+		Assertions.assertTrue(large.size() > 24);
+		DMPItem item = large.get(0);
+		Assertions.assertArrayEquals(item.getByteArray(), Files.readAllBytes(item.getLargeValue().getFile()));
+		try (ReadableByteChannel channel = item.getChannel()) {
+		    ByteBuffer b = ByteBuffer.allocate(200000);
+		    while (channel.read(b) >= 0) {
+		    }
+		    Assertions.assertEquals(b.position(), 100000);
+		}
+		try (Stream<Path> files = Files.list(lobs)) {
+		    Assertions.assertEquals(files.count(), (long) large.size());
+		}
+		large.forEach(x -> x.getLargeValue().close());
+		try (Stream<Path> files = Files.list(lobs)) {
+		    Assertions.assertEquals(files.count(), 0L);
+		}
+	    }
+
+	    // the files of rows dropped by the row filter and of columns which are not selected are deleted at once
+	    List<DMPItem> large = new ArrayList<>();
+	    parser.setRowFilter(DMPRowFilter.between("ID", 2, 4));
+	    parser.setProjection(DMPProjection.ofIndexes(0, 1, 2));
+	    parser.parseRows(file, (t, row) -> row.items.stream().filter(x -> x != null && x.isLargeValue()).forEach(large::add));
+	    try (Stream<Path> files = Files.list(lobs)) {
+		Assertions.assertEquals(files.count(), (long) large.size());
+	    }
+	    Assertions.assertTrue(large.size() <= 6);
+	    large.forEach(x -> x.getLargeValue().close());
+
+	    // text files are the same, also for the LONG RAW columns of version 7
+	    for (DMPTextWriter.Format format : DMPTextWriter.Format.values()) {
+		DMPTextWriter writer = new DMPTextWriter(dir.resolve("heap" + version + format), format);
+		writer.setBinaryEncoding(DMPTextWriter.BinaryEncoding.BASE64);
+		List<Path> heap = writer.write(new DMPParser(), file, null);
+		writer = new DMPTextWriter(dir.resolve("spilled" + version + format), format);
+		writer.setBinaryEncoding(DMPTextWriter.BinaryEncoding.BASE64);
+		List<Path> spilled = writer.write(new DMPParser(DMPParserConfig.DEFAULT.withLargeValueThreshold(1000)), file, null);
+		Assertions.assertEquals(spilled.size(), heap.size());
+		for (int i=0;i<heap.size();i++) Assertions.assertArrayEquals(Files.readAllBytes(spilled.get(i)), Files.readAllBytes(heap.get(i)));
+	    }
+	}
+    }
+
+    @Test
+    public void testCharsets(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path exptest = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParseResult result = new DMPParser().parseRows(exptest, (t, row) -> {});
+	Assertions.assertEquals(result.getExportCharsetId(), 1);
+	Assertions.assertEquals(result.getExportCharset(), StandardCharsets.US_ASCII);
+	Assertions.assertEquals(result.getExportTablespace(), "USERS");
+
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(2);
+	generator.setRowsPerTable(50);
+	generator.setColumns(List.of(DMPItemType.STRING, DMPItemType.NUMBER, DMPItemType.STRING));
+	Map<Integer, Charset> charsets = new LinkedHashMap<>();
+	charsets.put(873, StandardCharsets.UTF_8);
+	charsets.put(178, Charset.forName("windows-1252"));
+	charsets.put(31, StandardCharsets.ISO_8859_1);
+	for (int version : new int[] {7, 10}) {
+	    for (Map.Entry<Integer, Charset> e : charsets.entrySet()) {
+		Charset charset = e.getValue();
+		Path file = dir.resolve("gen" + version + "_" + e.getKey() + ".dmp");
+		generator.setVersion(version);
+		generator.setCharset(e.getKey(), charset);
+		generator.write(file);
+		List<String> strings = new ArrayList<>();
+		DMPParser parser = new DMPParser();
+		result = parser.parseRows(file, (t, row) -> {
+		    for (DMPItem item : row.items) {
+			if (item.getItemType() != DMPItemType.STRING) continue;
+			Assertions.assertEquals(item.getStringValue(), new String(item.getByteArray(), charset));
+			strings.add(item.getStringValue());
+		    }
+		});
+		Assertions.assertEquals(result.getExportCharsetId(), (int) e.getKey());
+		Assertions.assertEquals(result.getExportCharset(), charset);
+		Assertions.assertEquals(result.getExportUser(), "BENCH");
+		Assertions.assertTrue(strings.stream().anyMatch(x -> x.contains("\u00fc") || x.contains("\u00df")));
+
+		// column batches, the index, parallel rows and checkpoints use the same character set
+		List<String> batchStrings = new ArrayList<>();
+		parser.parseBatches(file, 7, (t, batch) -> {
+		    for (int c : new int[] {1, 3}) {
+			for (int i=0;i<batch.getRowCount();i++) {
+			    if (!batch.getColumn(c).isNull(i)) batchStrings.add(batch.getColumn(c).getString(i));
+			}
+		    }
+		});
+		Assertions.assertEquals(new HashSet<>(batchStrings), new HashSet<>(strings));
+		DMPIndex index = parser.createIndex(file);
+		Assertions.assertEquals(index.exportCharsetId, (int) e.getKey());
+		index.write(dir.resolve("index"));
+		index = DMPIndex.read(dir.resolve("index"));
+		List<String> indexStrings = new ArrayList<>();
+		parser.parseRows(file, index, List.of("T1", "T2"), (t, row) -> row.items.stream()
+			.filter(x -> x.getItemType() == DMPItemType.STRING).forEach(x -> indexStrings.add(x.getStringValue())));
+		Assertions.assertEquals(indexStrings, strings);
+		List<String> t2 = new ArrayList<>();
+		parser.parseRows(file, index, List.of("T2"), (t, row) -> row.items.stream()
+			.filter(x -> x.getItemType() == DMPItemType.STRING).forEach(x -> t2.add(x.getStringValue())));
+		try (Stream<DMPRow> rows = parser.streamRows(file, index, "T2")) {
+		    Assertions.assertEquals(rows.parallel().flatMap(x -> x.items.stream()).filter(x -> x.getItemType() == DMPItemType.STRING)
+			    .map(DMPItem::getStringValue).toList(), t2);
+		}
+		List<DMPCheckpoint> checkpoints = new ArrayList<>();
+		new DMPParser(DMPParserConfig.DEFAULT.withCheckpointInterval(2000).withCheckpointListener(checkpoints::add)).parseRows(file, (t, row) -> {});
+		checkpoints.get(0).write(dir.resolve("checkpoint"));
+		List<String> resumed = new ArrayList<>();
+		parser.parseRows(file, DMPCheckpoint.read(dir.resolve("checkpoint")), null, (t, row) -> row.items.stream()
+			.filter(x -> x.getItemType() == DMPItemType.STRING).forEach(x -> resumed.add(x.getStringValue())));
+		Assertions.assertEquals(resumed, strings.subList(strings.size() - resumed.size(), strings.size()));
+
+		// a configured character set replaces the one of the header
+		List<String> latin1 = new ArrayList<>();
+		result = new DMPParser(DMPParserConfig.DEFAULT.withCharset(StandardCharsets.ISO_8859_1)).parseRows(file, (t, row) -> {
+		    for (DMPItem item : row.items) {
+			if (item.getItemType() == DMPItemType.STRING) latin1.add(new String(item.getStringValue().getBytes(StandardCharsets.ISO_8859_1), charset));
+		    }
+		});
+		Assertions.assertEquals(result.getExportCharset(), StandardCharsets.ISO_8859_1);
+		Assertions.assertEquals(latin1, strings);
+
+		// string filter values are encoded with the character set of the export
+		String value = strings.stream().filter(x -> x.chars().anyMatch(ch -> ch > 0x7f)).findFirst().get();
+		List<List<String>> filtered = new ArrayList<>();
+		new DMPParser(DMPParserConfig.DEFAULT.withRowFilter(DMPRowFilter.or(DMPRowFilter.eq("C1", value), DMPRowFilter.eq("C3", value))))
+			.parseRows(file, (t, row) -> filtered.add(Arrays.asList(row.items.get(1).getStringValue(), row.items.get(3).getStringValue())));
+		Assertions.assertFalse(filtered.isEmpty());
+		for (List<String> f : filtered) Assertions.assertTrue(f.contains(value));
+	    }
+	}
+
+	// unknown ids decode with the JVM default, text from mapped buffers is copied first
+	DMPCharset unknown = DMPCharset.forOracleId(4711);
+	Assertions.assertEquals(unknown.getCharset(), Charset.defaultCharset());
+	DMPCharset utf8 = DMPCharset.forOracleId(873);
+	byte[] text = "na\u00efve caf\u00e9 \u20ac".getBytes(StandardCharsets.UTF_8);
+	ByteBuffer direct = ByteBuffer.allocateDirect(text.length + 2);
+	direct.put(1, text);
+	Assertions.assertEquals(utf8.decode(direct, 1, text.length), "na\u00efve caf\u00e9 \u20ac");
+	Assertions.assertEquals(utf8.decode(text, 0, 5), "na\u00efv");
+	Assertions.assertEquals(utf8.decode(text, 0, 2), "na");
+	Assertions.assertEquals(DMPCharset.forOracleId(1).decode(new byte[] {'a', (byte) 0xe9}, 0, 2), "a\ufffd");
+    }
+
+    @Test
+    public void testCatalog(@TempDir Path dir) throws IOException, URISyntaxException {
+	Path file = Path.of(getClass().getClassLoader().getResource("com/jansensystems/oracledmpparser/exptest.dmp").toURI());
+	DMPParser parser = new DMPParser();
+	DMPCatalog catalog = parser.catalog(file);
+	Assertions.assertEquals(catalog.tables.stream().map(x -> x.tableName).toList(), List.of("IGNORE", "IGNORE2", "TABLE1", "TABLE2"));
+	Assertions.assertEquals(catalog.tables.stream().map(x -> x.rowCount).toList(), List.of(0L, 0L, 7L, 4L));
+	Assertions.assertEquals(catalog.getRowCount(), 11);
+	Assertions.assertEquals(catalog.size, Files.size(file));
+	Assertions.assertEquals(catalog.exportVersion.getMajor(), 12);
+	Assertions.assertEquals(catalog.exportTablespace, "USERS");
+	Assertions.assertEquals(catalog.exportCharsetId, 1);
+	Assertions.assertEquals(catalog.exportCharset, StandardCharsets.US_ASCII);
+	DMPCatalogTable table1 = catalog.getTable("table1");
+	Assertions.assertTrue(table1.createTableSQL.startsWith("CREATE TABLE \"TABLE1\""));
+	Assertions.assertEquals(table1.columnTypes, List.of(DMPItemType.NUMBER, DMPItemType.NUMBER, DMPItemType.NUMBER, DMPItemType.STRING,
+		DMPItemType.DATE, DMPItemType.BLOB, DMPItemType.TIMESTAMP));
+	Assertions.assertEquals(table1.columnTypeCodes, List.of(2, 2, 2, 1, 12, 113, 180));
+	Assertions.assertEquals(table1.columnLengths, List.of(22, 22, 22, 200, 7, 72, 11));
+	Assertions.assertNull(catalog.getTable("TABLE3"));
+
+	// same result from a stream, the data segments are the ones of the index
+	DMPIndex index = parser.createIndex(file);
+	List<DMPTable> expected = parser.parse(file);
+	try (InputStream in = Files.newInputStream(file)) {
+	    DMPCatalog streamed = parser.catalog(in);
+	    Assertions.assertEquals(streamed.toString(), catalog.toString());
+	    for (int i=0;i<catalog.tables.size();i++) {
+		DMPCatalogTable t = catalog.tables.get(i);
+		Assertions.assertEquals(streamed.tables.get(i).toString(), t.toString());
+		Assertions.assertEquals(t.ddlOffset, index.tables.get(i).ddlOffset);
+		Assertions.assertEquals(t.dataStart, index.tables.get(i).dataStart);
+		Assertions.assertEquals(t.getDataSize(), index.tables.get(i).dataEnd - index.tables.get(i).dataStart);
+		Assertions.assertEquals(t.createTableSQL, expected.get(i).createTableSQL);
+		Assertions.assertEquals(t.fieldNames, expected.get(i).fieldNames);
+	    }
+	}
+
+	// unsupported columns have a type code but no type
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setTables(3);
+	generator.setRowsPerTable(250);
+	generator.setColumns(List.of(DMPItemType.STRING, DMPItemType.BLOB));
+	generator.setNullDensity(0);
+	generator.setBlobLength(1000);
+	generator.setVersion(7);
+	Path generated = dir.resolve("gen.dmp");
+	generator.write(generated);
+	DMPCatalog gen = parser.catalog(generated);
+	Assertions.assertEquals(gen.exportUser, "BENCH");
+	Assertions.assertEquals(gen.tables.size(), 3);
+	for (DMPCatalogTable t : gen.tables) {
+	    Assertions.assertEquals(t.rowCount, 250);
+	    Assertions.assertNull(t.columnTypes.get(2));
+	    Assertions.assertTrue(t.columnTypeCodes.get(2) > 0);
+	    Assertions.assertTrue(t.getDataSize() > 250 * 1000);
+	}
+    }
+
+    /**
+     * @return a handler which passes everything on and fails after the given number of rows, like a crashed process
+     */
+    private static DMPRowHandler failAfter(DMPRowHandler handler, int rows) {
+	int[] count = new int[1];
+	return new DMPRowHandler() {
+	    @Override
+	    public void onTableStart(DMPTable table) {
+		handler.onTableStart(table);
+	    }
+
+	    @Override
+	    public void onRow(DMPTable table, DMPRow row) {
+		if (++count[0] > rows) throw new IllegalStateException("Failed after " + rows + " rows");
+		handler.onRow(table, row);
+	    }
+
+	    @Override
+	    public void onCheckpoint(DMPTable table, DMPCheckpoint checkpoint) {
+		handler.onCheckpoint(table, checkpoint);
+	    }
+
+	    @Override
+	    public void onTableEnd(DMPTable table) {
+		handler.onTableEnd(table);
+	    }
+	};
+    }
+
+    private static String rowText(DMPTable table, DMPRow row) {
+	return table.tableName + ":" + row.items.stream().map(String::valueOf).collect(Collectors.joining("|"));
+    }
+
+    private static String formatValue(Object value) {
+	if (value instanceof BigDecimal bd) return bd.stripTrailingZeros().toPlainString();
+	if (value instanceof byte[] b) return Arrays.toString(b);
+	return String.valueOf(value);
+    }
+
+    private static List<String> formatRows(DMPTable table) {
+	List<String> ret = new ArrayList<>();
+	for (DMPRow row : table.dataRows) {
+	    List<String> values = new ArrayList<>();
+	    for (int i=0;i<table.fieldNames.size();i++) {
+		DMPItem item = i < row.items.size() ? row.items.get(i) : null;
+		if (item == null || item.getNoOfbytes() == 0) {
+		    values.add("null");
+		} else {
+		    values.add(formatValue(switch (item.getItemType()) {
+			case NUMBER -> item.getBigDecimalValue();
+			case DATE, TIMESTAMP -> item.getLocalDateTimeValue();
+			case BLOB -> item.getByteArray();
+			default -> item.getStringValue();
+		    }));
+		}
+	    }
+	    ret.add(String.join("|", values));
+	}
+	ret.sort(null);
+	return ret;
+    }
+
+    private static List<String> selectRows(Connection c, DMPTable table) throws SQLException {
+	List<String> ret = new ArrayList<>();
+	try (ResultSet rs = c.createStatement().executeQuery("SELECT * FROM \"" + table.tableName + "\"")) {
+	    while (rs.next()) {
+		List<String> values = new ArrayList<>();
+		for (int i=0;i<table.fieldNames.size();i++) {
+		    values.add(formatValue(switch (table.columnTypes.get(i)) {
+			case NUMBER -> rs.getBigDecimal(i + 1);
+			case DATE, TIMESTAMP -> rs.getTimestamp(i + 1) != null ? rs.getTimestamp(i + 1).toLocalDateTime() : null;
+			case BLOB -> rs.getBytes(i + 1);
+			default -> rs.getString(i + 1);
+		    }));
+		}
+		ret.add(String.join("|", values));
+	    }
+	}
+	ret.sort(null);
+	return ret;
+    }
+
+    private static void assertSameBatches(List<DMPColumnBatch> batches, List<DMPRow> expected) {
+	int r = 0;
+	for (DMPColumnBatch batch : batches) {
+	    for (int i=0;i<batch.getRowCount();i++, r++) {
+		List<DMPItem> items = expected.get(r).items;
+		for (int c=0;c<batch.getColumnCount();c++) {
+		    DMPColumnVector v = batch.getColumn(c);
+		    DMPItem item = c < items.size() ? items.get(c) : null;
+		    if (item == null || item.getItemType() == DMPItemType.NULL) {
+			Assertions.assertTrue(v.isNull(i));
+			continue;
+		    }
+		    Assertions.assertFalse(v.isNull(i));
+		    if (v.getType() == DMPItemType.NUMBER) {
+			Assertions.assertEquals(v.getDouble(i), item.getDoubleValue());
+		    } else if (v.getType() == DMPItemType.DATE || v.getType() == DMPItemType.TIMESTAMP) {
+			Assertions.assertEquals(v.getLocalDateTime(i), item.getLocalDateTimeValue());
+		    } else {
+			Assertions.assertArrayEquals(v.getBytes(i), item.getByteArray());
+		    }
+		}
+	    }
+	}
+	Assertions.assertEquals(r, expected.size());
+    }
+
+    private static void assertSameRows(List<DMPRow> rows, List<DMPRow> expected) {
+	Assertions.assertEquals(rows.size(), expected.size());
+	for (int r=0;r<rows.size();r++) {
+	    Assertions.assertEquals(rows.get(r).items.toString(), expected.get(r).items.toString());
+	}
+    }
+
+    /**
+     * Export version 7 file with one table, a NUMBER and a STRING column and no separators between the rows.
+     */
+    static void writeV7Dump(Path file, int rowCount) throws IOException {
+	ByteArrayOutputStream out = new ByteArrayOutputStream();
+	out.write("\u0003\u0000\u0001EXPORT:V07.03.04\nUSCOTT\nRTABLES\nTABLE \"T7\"\nCREATE TABLE \"T7\" (\"A\" NUMBER, \"B\" VARCHAR2(10))\nINSERT INTO \"T7\" (\"A\", \"B\") VALUES (:1, :2)\n".getBytes(StandardCharsets.US_ASCII));
+	out.write(new byte[] {0x02, 0x00, 0x02, 0x00, 0x16, 0x00, 0x01, 0x00, 0x0a, 0x00, 0x00, 0x00, 0x00, 0x00});
+	for (int i=0;i<rowCount;i++) {
+	    byte[] number = DMPNumber.encode(BigDecimal.valueOf(i));
+	    out.write(new byte[] {(byte) number.length, 0x00});
+	    out.write(number);
+	    if (i % 3 == 0) {
+		out.write(new byte[] {(byte) 0xfe, (byte) 0xff});
+	    } else {
+		byte[] str = ("row " + i).getBytes(StandardCharsets.US_ASCII);
+		out.write(new byte[] {(byte) str.length, 0x00});
+		out.write(str);
+	    }
+	}
+	out.write(new byte[] {(byte) 0xff, (byte) 0xff, 0x0a});
+	out.write("EXIT\n".getBytes(StandardCharsets.US_ASCII));
+	Files.write(file, out.toByteArray());
+    }
+
+    /**
+     * Generated export version 7 file with one table and a LONG RAW column, whose values have no type.
+     * @return the rows of the table
+     */
+    static List<DMPRow> writeV7BlobDump(Path file) throws IOException {
+	DMPDumpGenerator generator = new DMPDumpGenerator();
+	generator.setRowsPerTable(20);
+	generator.setColumns(List.of(DMPItemType.BLOB));
+	generator.setVersion(7);
+	generator.write(file);
+	List<DMPRow> ret = new DMPParser().parse(file).get(0).dataRows;
+	Assertions.assertTrue(ret.stream().anyMatch(x -> x.items.get(1).getItemType() == null));
+	return ret;
+    }
+
+    private List<List<Long>> scanSegments(DMPScanner scanner, boolean skip) throws IOException {
+	List<List<Long>> ret = new ArrayList<>();
+	DMPExportVersion version = new DMPExportVersion();
+	version.setMajor(12);
+	byte[] insertInto = "INSERT INTO ".getBytes(StandardCharsets.US_ASCII);
+	while (scanner.nextLine()) {
+	    if (DMPParseSession.startsWith(scanner.getBuffer(), scanner.getRecordStart(), scanner.getRecordLength(), insertInto)) {
+		long start = scanner.getPosition();
+		DMPRowDecoder decoder = new DMPRowDecoder(version, false, false);
+		long[] rows = new long[1];
+		if (skip) {
+		    rows[0] = decoder.skip(scanner);
+		} else {
+		    decoder.decode(scanner, new DMPTable(), (table, row) -> rows[0]++);
+		}
+		ret.add(List.of(rows[0], start, scanner.getPosition()));
+	    }
+	}
+	return ret;
+    }
 }